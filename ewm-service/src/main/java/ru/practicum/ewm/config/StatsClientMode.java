@@ -0,0 +1,7 @@
+package ru.practicum.ewm.config;
+
+// HTTP - отдельный stats-server, EMBEDDED - движок статистики внутри ewm-service со своим пулом соединений
+public enum StatsClientMode {
+    HTTP,
+    EMBEDDED
+}
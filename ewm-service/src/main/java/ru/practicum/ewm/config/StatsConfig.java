@@ -1,19 +1,288 @@
 package ru.practicum.ewm.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import ru.practicum.client.AdaptiveSampler;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.client.CachingStatsClient;
+import ru.practicum.client.EmbeddedStatsClient;
+import ru.practicum.client.HitSpillFile;
+import ru.practicum.client.OverflowPolicy;
+import ru.practicum.client.ResilienceSettings;
+import ru.practicum.client.ResilientStatsClient;
+import ru.practicum.client.SingleFlightStatsClient;
+import ru.practicum.client.SpillReplaySettings;
 import ru.practicum.client.StatsClient;
 import ru.practicum.client.StatsClientImpl;
+import ru.practicum.client.StatsTransportSettings;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryGovernor;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class StatsConfig {
 
+    @Value("${stats-client.mode:HTTP}")
+    private StatsClientMode mode;
+
     @Value("${stats-server.url}")
     private String statsServerUrl;
 
-    @Bean
-    public StatsClient statsClient() {
-        return new StatsClientImpl(statsServerUrl);
+    @Value("${stats-client.embedded.url:${spring.datasource.url:}}")
+    private String embeddedUrl;
+
+    @Value("${stats-client.embedded.username:${spring.datasource.username:}}")
+    private String embeddedUsername;
+
+    @Value("${stats-client.embedded.password:${spring.datasource.password:}}")
+    private String embeddedPassword;
+
+    @Value("${stats-client.embedded.pool-size:5}")
+    private int embeddedPoolSize;
+
+    @Value("${stats-client.embedded.entity-templates:events:/events/{id}}")
+    private List<String> embeddedEntityTemplates;
+
+    // Фильтр злоупотреблений и governor встроенного режима: те же параметры и умолчания, что stats.abuse.*
+    // и stats.governor.* у stats-server
+    @Value("${stats-client.embedded.abuse.enabled:true}")
+    private boolean abuseEnabled;
+
+    @Value("${stats-client.embedded.abuse.window-seconds:60}")
+    private long abuseWindowSeconds;
+
+    @Value("${stats-client.embedded.abuse.slots:6}")
+    private int abuseSlots;
+
+    @Value("${stats-client.embedded.abuse.max-hits-per-window:300}")
+    private long abuseMaxHitsPerWindow;
+
+    @Value("${stats-client.embedded.abuse.sketch-depth:4}")
+    private int abuseSketchDepth;
+
+    @Value("${stats-client.embedded.abuse.sketch-width:4096}")
+    private int abuseSketchWidth;
+
+    @Value("${stats-client.embedded.governor.standard-cost:100000}")
+    private long governorStandardCost;
+
+    @Value("${stats-client.embedded.governor.heavy-cost:2000000}")
+    private long governorHeavyCost;
+
+    @Value("${stats-client.embedded.governor.max-cost:50000000}")
+    private long governorMaxCost;
+
+    @Value("${stats-client.embedded.governor.timeout.cheap-seconds:2}")
+    private int governorCheapTimeout;
+
+    @Value("${stats-client.embedded.governor.timeout.standard-seconds:10}")
+    private int governorStandardTimeout;
+
+    @Value("${stats-client.embedded.governor.timeout.heavy-seconds:30}")
+    private int governorHeavyTimeout;
+
+    @Value("${stats-client.embedded.governor.slow-query-ms:1000}")
+    private long governorSlowQueryMs;
+
+    @Value("${stats-client.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${stats-client.read-timeout-ms:3000}")
+    private long readTimeoutMs;
+
+    @Value("${stats-client.transport.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${stats-client.transport.idle-eviction-ms:30000}")
+    private long idleEvictionMs;
+
+    @Value("${stats-client.transport.http2:false}")
+    private boolean http2;
+
+    @Value("${stats-client.transport.gzip-requests:true}")
+    private boolean gzipRequests;
+
+    @Value("${stats-client.transport.gzip-min-bytes:1024}")
+    private int gzipMinBytes;
+
+    @Value("${stats-client.async.capacity:10000}")
+    private int asyncCapacity;
+
+    @Value("${stats-client.async.batch-size:500}")
+    private int asyncBatchSize;
+
+    @Value("${stats-client.async.flush-interval-ms:200}")
+    private long asyncFlushIntervalMs;
+
+    @Value("${stats-client.async.aggregation-window-ms:0}")
+    private long aggregationWindowMs;
+
+    @Value("${stats-client.async.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${stats-client.async.spill-file:stats-spill/hits.dat}")
+    private String spillFile;
+
+    @Value("${stats-client.async.spill-max-bytes:67108864}")
+    private long spillMaxBytes;
+
+    @Value("${stats-client.async.spill-on-failure:false}")
+    private boolean spillOnFailure;
+
+    @Value("${stats-client.async.replay-max-hits-per-second:500}")
+    private int replayMaxHitsPerSecond;
+
+    @Value("${stats-client.async.replay-retry-delay-ms:5000}")
+    private long replayRetryDelayMs;
+
+    @Value("${stats-client.async.sampling.enabled:false}")
+    private boolean samplingEnabled;
+
+    @Value("${stats-client.async.sampling.start-fill:0.5}")
+    private double samplingStartFill;
+
+    @Value("${stats-client.async.sampling.max-interval:32}")
+    private int samplingMaxInterval;
+
+    @Value("${stats-client.resilience.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+
+    @Value("${stats-client.resilience.bulkhead-wait-ms:50}")
+    private long bulkheadWaitMs;
+
+    @Value("${stats-client.resilience.window-size:50}")
+    private int breakerWindowSize;
+
+    @Value("${stats-client.resilience.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${stats-client.resilience.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${stats-client.resilience.slow-call-ms:1000}")
+    private long slowCallMs;
+
+    @Value("${stats-client.resilience.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold;
+
+    @Value("${stats-client.resilience.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Value("${stats-client.resilience.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${stats-client.single-flight.timeout-ms:3000}")
+    private long singleFlightTimeoutMs;
+
+    @Value("${stats-client.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${stats-client.cache.ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    @Value("${stats-client.cache.max-stale-ms:60000}")
+    private long cacheMaxStaleMs;
+
+    @Value("${stats-client.cache.max-entries:100000}")
+    private int cacheMaxEntries;
+
+    @Value("${stats-client.cache.entity-templates:events:/events/{id}}")
+    private List<String> cacheEntityTemplates;
+
+    // Голый транспорт: HTTP или встроенный движок
+    @Bean(destroyMethod = "close")
+    public StatsClient statsTransportClient() {
+        return mode == StatsClientMode.EMBEDDED ? embeddedClient() : httpClient();
+    }
+
+    // Цепочка декораторов от транспорта наружу: resilient ограничивает одновременные запросы и при сбоях
+    // отдаёт последние известные счётчики, single-flight склеивает одинаковые одновременные запросы,
+    // кэш отдаёт счётчики, пока они свежее ttl, и сбрасывает их после отправленного через него хита.
+    // Хиты запросов идут через цепочку синхронно, не доставленные - через outbox и statsRelayClient
+    @Bean(destroyMethod = "close")
+    @Primary
+    public StatsClient statsClient(@Qualifier("statsTransportClient") StatsClient transportClient,
+                                   ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        StatsClient client = new ResilientStatsClient(transportClient, ResilienceSettings.builder()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .bulkheadWait(Duration.ofMillis(bulkheadWaitMs))
+                .windowSize(breakerWindowSize)
+                .minimumCalls(breakerMinimumCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallThreshold(Duration.ofMillis(slowCallMs))
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .openDuration(Duration.ofMillis(openDurationMs))
+                .halfOpenCalls(halfOpenCalls)
+                .build(), meterRegistry);
+        client = new SingleFlightStatsClient(client, Duration.ofMillis(singleFlightTimeoutMs), meterRegistry);
+        if (cacheEnabled) {
+            client = new CachingStatsClient(client, Duration.ofMillis(cacheTtlMs), Duration.ofMillis(cacheMaxStaleMs),
+                    cacheMaxEntries, new EntityTemplates(cacheEntityTemplates), meterRegistry);
+        }
+        return client;
+    }
+
+    // Транспорт ретранслятора outbox: копит хиты в очереди, отправляет их пачками через основную цепочку
+    // (и сбрасывает её кэш) и подтверждает каждый хит, чтобы строки outbox удалялись только после доставки
+    @Bean(destroyMethod = "close")
+    public AsyncStatsClient statsRelayClient(StatsClient statsClient,
+                                             ObjectProvider<MeterRegistry> meterRegistryProvider) throws IOException {
+        HitSpillFile spill = overflowPolicy == OverflowPolicy.SPILL || spillOnFailure
+                ? new HitSpillFile(Paths.get(spillFile), spillMaxBytes)
+                : null;
+        return new AsyncStatsClient(statsClient, asyncCapacity, asyncBatchSize,
+                Duration.ofMillis(asyncFlushIntervalMs), Duration.ofMillis(aggregationWindowMs), overflowPolicy,
+                spill, SpillReplaySettings.builder()
+                        .spillOnFailure(spillOnFailure)
+                        .maxHitsPerSecond(replayMaxHitsPerSecond)
+                        .retryDelay(Duration.ofMillis(replayRetryDelayMs))
+                        .build(),
+                samplingEnabled ? new AdaptiveSampler(samplingStartFill, samplingMaxInterval) : null,
+                meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    private StatsClient httpClient() {
+        return new StatsClientImpl(statsServerUrl, StatsTransportSettings.builder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .maxConnections(maxConnections)
+                .maxConnectionsPerRoute(maxConnections)
+                .idleEviction(Duration.ofMillis(idleEvictionMs))
+                .http2(http2)
+                .gzipRequests(gzipRequests)
+                .gzipMinBytes(gzipMinBytes)
+                .build());
+    }
+
+    // Отдельный небольшой пул: запись хитов не конкурирует за соединения основного пула ewm-service
+    private StatsClient embeddedClient() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("embedded-stats");
+        dataSource.setJdbcUrl(embeddedUrl);
+        dataSource.setUsername(embeddedUsername);
+        dataSource.setPassword(embeddedPassword);
+        dataSource.setMaximumPoolSize(embeddedPoolSize);
+        return new EmbeddedStatsClient(dataSource, new EntityTemplates(embeddedEntityTemplates),
+                new AbuseFilter(abuseEnabled, abuseWindowSeconds, abuseSlots, abuseMaxHitsPerWindow,
+                        abuseSketchDepth, abuseSketchWidth),
+                new QueryGovernor(new DataSourceTransactionManager(dataSource), new JdbcTemplate(dataSource),
+                        governorStandardCost, governorHeavyCost, governorMaxCost, governorCheapTimeout,
+                        governorStandardTimeout, governorHeavyTimeout, governorSlowQueryMs),
+                true);
     }
 }
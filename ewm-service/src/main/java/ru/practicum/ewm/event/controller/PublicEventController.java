@@ -5,10 +5,12 @@ import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventSearchParams;
+import ru.practicum.ewm.event.dto.EventSearchResult;
 import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.service.EventPublicService;
 
@@ -22,10 +24,13 @@ import java.util.List;
 @Slf4j
 public class PublicEventController {
 
+    // Курсор следующей страницы; передаётся обратно параметром cursor
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final EventPublicService eventPublicService;
 
     @GetMapping
-    public List<EventShortDto> getEvents(
+    public ResponseEntity<List<EventShortDto>> getEvents(
             @RequestParam(required = false) String text,
             @RequestParam(required = false) List<Long> categories,
             @RequestParam(required = false) Boolean paid,
@@ -37,6 +42,7 @@ public class PublicEventController {
             @RequestParam(required = false) String sort,
             @RequestParam(defaultValue = "0") @Min(0) int from,
             @RequestParam(defaultValue = "10") @Min(1) int size,
+            @RequestParam(required = false) String cursor,
             HttpServletRequest request) {
 
         log.info("GET /events - поиск событий с параметрами: text={}, categories={}, paid={}",
@@ -44,10 +50,16 @@ public class PublicEventController {
 
         EventSearchParams params = new EventSearchParams(
                 text, categories, paid, rangeStart, rangeEnd,
-                onlyAvailable, sort, from, size
+                onlyAvailable, sort, from, size, cursor
         );
 
-        return eventPublicService.getEvents(params, request.getRemoteAddr(), request.getRequestURI());
+        EventSearchResult result = eventPublicService.getEvents(params, request.getRemoteAddr(),
+                request.getRequestURI());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (result.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.getNextCursor());
+        }
+        return response.body(result.getEvents());
     }
 
     @GetMapping("/{id}")
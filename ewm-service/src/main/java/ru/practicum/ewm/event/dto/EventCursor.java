@@ -0,0 +1,52 @@
+package ru.practicum.ewm.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Позиция продолжения выдачи GET /events: последнее отданное событие в порядке (eventDate, id) или (id).
+// Клиенту передаётся непрозрачной строкой в заголовке X-Next-Cursor
+@Getter
+@AllArgsConstructor
+public class EventCursor {
+
+    private final LocalDateTime eventDate;
+    private final Long id;
+
+    public static EventCursor after(Event event, boolean byDate) {
+        return new EventCursor(byDate ? event.getEventDate() : null, event.getId());
+    }
+
+    public static EventCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 2);
+            if (parts.length == 1) {
+                return new EventCursor(null, Long.parseLong(parts[0]));
+            }
+            if (parts.length == 2) {
+                return new EventCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[0]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            // ниже общее сообщение об ошибке
+        }
+        throw new ValidationException("Некорректный курсор продолжения выдачи");
+    }
+
+    public boolean isByDate() {
+        return eventDate != null;
+    }
+
+    public String encode() {
+        String value = eventDate == null ? String.valueOf(id) : id + ":" + eventDate;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -20,4 +20,6 @@ public class EventSearchParams {
     private String sort;
     private int from;
     private int size;
+    // Непрозрачный курсор из заголовка X-Next-Cursor предыдущего ответа; если задан, from не используется
+    private String cursor;
 }
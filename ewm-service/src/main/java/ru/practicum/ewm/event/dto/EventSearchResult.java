@@ -0,0 +1,16 @@
+package ru.practicum.ewm.event.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class EventSearchResult {
+
+    private final List<EventShortDto> events;
+
+    // null - следующей страницы нет или выдача не поддерживает курсор (сортировка по релевантности)
+    private final String nextCursor;
+}
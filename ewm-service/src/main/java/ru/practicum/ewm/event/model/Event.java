@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.location.model.Location;
 import ru.practicum.ewm.user.model.User;
@@ -81,4 +82,10 @@ public class Event {
     @Size(min = 3, max = 120, message = "Заголовок должен содержать от 3 до 120 символов")
     @Column(name = "title", nullable = false, length = 120)
     private String title;
+
+    // Уникальные просмотры из stats-server для сортировки в базе; пишет только EventViewsSync,
+    // поэтому сохранение события через JPA не затирает значение, прочитанное до синхронизации
+    @Column(name = "views", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long views;
 }
@@ -2,6 +2,7 @@ package ru.practicum.ewm.event.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -40,12 +41,144 @@ public interface EventRepository extends JpaRepository<Event, Long> {
                   AND (e.eventDate >= :rangeStart)
                   AND (e.eventDate <= :rangeEnd)
             """)
-    Page<Event> findPublishedEvents(@Param("text") String text,
-                                    @Param("categories") List<Long> categories,
-                                    @Param("paid") Boolean paid,
-                                    @Param("rangeStart") LocalDateTime rangeStart,
-                                    @Param("rangeEnd") LocalDateTime rangeEnd,
-                                    Pageable pageable);
+    Slice<Event> findPublishedEvents(@Param("text") String text,
+                                     @Param("categories") List<Long> categories,
+                                     @Param("paid") Boolean paid,
+                                     @Param("rangeStart") LocalDateTime rangeStart,
+                                     @Param("rangeEnd") LocalDateTime rangeEnd,
+                                     Pageable pageable);
+
+    // Keyset-выдача в порядке id: следующая страница начинается строго после afterId (null - с начала)
+    @Query("""
+                SELECT e FROM Event e
+                WHERE e.state = 'PUBLISHED'
+                  AND (:text IS NULL OR :text = ''
+                       OR LOWER(e.annotation) LIKE CONCAT('%', LOWER(:text), '%')
+                       OR LOWER(e.description) LIKE CONCAT('%', LOWER(:text), '%'))
+                  AND (:categories IS NULL OR e.category.id IN :categories)
+                  AND (:paid IS NULL OR e.paid = :paid)
+                  AND (e.eventDate >= :rangeStart)
+                  AND (e.eventDate <= :rangeEnd)
+                  AND (:afterId IS NULL OR e.id > :afterId)
+                ORDER BY e.id
+            """)
+    Slice<Event> findPublishedEventsAfterId(@Param("text") String text,
+                                            @Param("categories") List<Long> categories,
+                                            @Param("paid") Boolean paid,
+                                            @Param("rangeStart") LocalDateTime rangeStart,
+                                            @Param("rangeEnd") LocalDateTime rangeEnd,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    // Keyset-выдача в порядке (eventDate, id), опирается на индекс idx_events_event_date_id
+    @Query("""
+                SELECT e FROM Event e
+                WHERE e.state = 'PUBLISHED'
+                  AND (:text IS NULL OR :text = ''
+                       OR LOWER(e.annotation) LIKE CONCAT('%', LOWER(:text), '%')
+                       OR LOWER(e.description) LIKE CONCAT('%', LOWER(:text), '%'))
+                  AND (:categories IS NULL OR e.category.id IN :categories)
+                  AND (:paid IS NULL OR e.paid = :paid)
+                  AND (e.eventDate >= :rangeStart)
+                  AND (e.eventDate <= :rangeEnd)
+                  AND (:afterId IS NULL OR e.eventDate > :afterDate
+                       OR (e.eventDate = :afterDate AND e.id > :afterId))
+                ORDER BY e.eventDate, e.id
+            """)
+    Slice<Event> findPublishedEventsAfterDate(@Param("text") String text,
+                                                @Param("categories") List<Long> categories,
+                                              @Param("paid") Boolean paid,
+                                              @Param("rangeStart") LocalDateTime rangeStart,
+                                              @Param("rangeEnd") LocalDateTime rangeEnd,
+                                              @Param("afterDate") LocalDateTime afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    // Идентификаторы опубликованных событий для полной синхронизации просмотров
+    @Query("SELECT e.id FROM Event e WHERE e.state = 'PUBLISHED'")
+    List<Long> findPublishedIds();
+
+    // Тексты опубликованных событий для построения индекса: id, annotation, description
+    @Query("SELECT e.id, e.annotation, e.description FROM Event e WHERE e.state = 'PUBLISHED'")
+    List<Object[]> findPublishedTexts();
+
+    // Полнотекстовый поиск опубликованных событий по сгенерированной колонке search_vector (GIN-индекс).
+    // Без sortByDate и sortByViews события упорядочены по релевантности; categories не может быть пустым -
+    // см. searchPublishedEvents
+    @Query(value = """
+                SELECT e.* FROM events e, websearch_to_tsquery('russian', :text) query
+                WHERE e.state = 'PUBLISHED'
+                  AND e.search_vector @@ query
+                  AND (:allCategories OR e.category_id IN (:categories))
+                  AND (CAST(:paid AS BOOLEAN) IS NULL OR e.paid = CAST(:paid AS BOOLEAN))
+                  AND e.event_date >= :rangeStart
+                  AND e.event_date <= :rangeEnd
+                ORDER BY CASE WHEN :sortByDate THEN e.event_date END,
+                         CASE WHEN :sortByViews THEN e.views END DESC,
+                         ts_rank(e.search_vector, query) DESC, e.id
+            """,
+            nativeQuery = true)
+    Slice<Event> findPublishedEventsByText(@Param("text") String text,
+                                           @Param("allCategories") boolean allCategories,
+                                           @Param("categories") List<Long> categories,
+                                           @Param("paid") Boolean paid,
+                                           @Param("rangeStart") LocalDateTime rangeStart,
+                                           @Param("rangeEnd") LocalDateTime rangeEnd,
+                                           @Param("sortByDate") boolean sortByDate,
+                                           @Param("sortByViews") boolean sortByViews,
+                                           Pageable pageable);
+
+    // Опубликованные события среди кандидатов из индекса текста, с остальными фильтрами публичного API.
+    // Кандидаты передаются одним параметром-массивом (id = ANY), а не списком IN из тысяч параметров.
+    // Порядок совпадает с publicSort и курсорами: по id, по (event_date, id) или по views DESC, id;
+    // afterId (и afterDate при sortByDate) продолжают выдачу после курсора
+    @Query(value = """
+                SELECT e.* FROM events e
+                WHERE e.state = 'PUBLISHED'
+                  AND e.id = ANY(:ids)
+                  AND (:allCategories OR e.category_id IN (:categories))
+                  AND (CAST(:paid AS BOOLEAN) IS NULL OR e.paid = CAST(:paid AS BOOLEAN))
+                  AND e.event_date >= :rangeStart
+                  AND e.event_date <= :rangeEnd
+                  AND (CAST(:afterId AS BIGINT) IS NULL
+                       OR (:sortByDate AND (e.event_date > CAST(:afterDate AS TIMESTAMP)
+                           OR (e.event_date = CAST(:afterDate AS TIMESTAMP) AND e.id > CAST(:afterId AS BIGINT))))
+                       OR (NOT :sortByDate AND e.id > CAST(:afterId AS BIGINT)))
+                ORDER BY CASE WHEN :sortByDate THEN e.event_date END,
+                         CASE WHEN :sortByViews THEN e.views END DESC,
+                         e.id
+            """,
+            nativeQuery = true)
+    Slice<Event> findPublishedEventsByIdArray(@Param("ids") Long[] ids,
+                                              @Param("allCategories") boolean allCategories,
+                                              @Param("categories") List<Long> categories,
+                                              @Param("paid") Boolean paid,
+                                              @Param("rangeStart") LocalDateTime rangeStart,
+                                              @Param("rangeEnd") LocalDateTime rangeEnd,
+                                              @Param("sortByDate") boolean sortByDate,
+                                              @Param("sortByViews") boolean sortByViews,
+                                              @Param("afterDate") LocalDateTime afterDate,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    default Slice<Event> findPublishedEventsByIds(List<Long> ids, List<Long> categories, Boolean paid,
+                                                  LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                  boolean sortByDate, boolean sortByViews,
+                                                  LocalDateTime afterDate, Long afterId, Pageable pageable) {
+        boolean allCategories = categories == null || categories.isEmpty();
+        return findPublishedEventsByIdArray(ids.toArray(Long[]::new), allCategories,
+                allCategories ? List.of(0L) : categories, paid, rangeStart, rangeEnd, sortByDate, sortByViews,
+                afterDate, afterId, pageable);
+    }
+
+    // Пустой IN () недопустим в SQL, поэтому отсутствие фильтра по категориям передаётся флагом
+    default Slice<Event> searchPublishedEvents(String text, List<Long> categories, Boolean paid,
+                                               LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                               boolean sortByDate, boolean sortByViews, Pageable pageable) {
+        boolean allCategories = categories == null || categories.isEmpty();
+        return findPublishedEventsByText(text, allCategories, allCategories ? List.of(0L) : categories,
+                paid, rangeStart, rangeEnd, sortByDate, sortByViews, pageable);
+    }
 
     // События пользователя
     Page<Event> findAllByInitiatorId(Long initiatorId, Pageable pageable);
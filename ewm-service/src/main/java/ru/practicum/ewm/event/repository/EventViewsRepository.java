@@ -0,0 +1,32 @@
+package ru.practicum.ewm.event.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Пакетная запись счётчиков просмотров мимо JPA: колонка views не обновляется через сущность Event
+@Repository
+@RequiredArgsConstructor
+public class EventViewsRepository {
+
+    // Строки с неизменившимся счётчиком не переписываются
+    private static final String UPDATE_SQL = "UPDATE events SET views = ? WHERE id = ? AND views <> ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void updateViews(Map<Long, Long> views) {
+        if (views.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, Long>> entries = new ArrayList<>(views.entrySet());
+        jdbcTemplate.batchUpdate(UPDATE_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+            ps.setLong(3, entry.getValue());
+        });
+    }
+}
@@ -0,0 +1,258 @@
+package ru.practicum.ewm.event.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.event.repository.EventRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Инвертированный индекс триграмм по аннотации и описанию опубликованных событий - тем же полям,
+// что ищет LIKE в базе. Поиск совпадает с LIKE '%text%' без учёта регистра: кандидаты из пересечения
+// списков триграмм проверяются по сохранённому тексту, поэтому ложных совпадений нет.
+// До окончания построения индекс не отвечает, и поиск идёт в базе
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventTextIndex {
+
+    private static final int GRAM = 3;
+
+    private final EventRepository eventRepository;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Integer, String[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Изменения, зафиксированные во время чтения базы при построении: снимок мог их не увидеть,
+    // поэтому они применяются поверх него. null - построение не идёт
+    private Map<Integer, Runnable> pendingUpdates;
+    private volatile boolean ready;
+
+    @Value("${ewm.search.index.enabled:false}")
+    private boolean enabled;
+
+    // Больше кандидатов не передаётся в базу массивом id - такой запрос отдаётся базе целиком
+    @Value("${ewm.search.index.max-candidates:10000}")
+    private int maxCandidates;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingUpdates = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Object[]> rows;
+        try {
+            rows = eventRepository.findPublishedTexts();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingUpdates = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            rows.forEach(row -> add(Math.toIntExact((Long) row[0]), (String) row[1], (String) row[2]));
+            pendingUpdates.values().forEach(Runnable::run);
+            pendingUpdates = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс текста событий построен: {} событий, {} триграмм", documents.size(), postings.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Изменение применяется после фиксации транзакции, чтобы откат не оставил в индексе чужой текст
+    public void indexAfterCommit(Event event) {
+        if (!enabled) {
+            return;
+        }
+        int id = Math.toIntExact(event.getId());
+        boolean published = event.getState() == EventState.PUBLISHED;
+        String annotation = event.getAnnotation();
+        String description = event.getDescription();
+        Runnable apply = () -> {
+            remove(id);
+            if (published) {
+                add(id, annotation, description);
+            }
+        };
+        Runnable update = () -> {
+            lock.writeLock().lock();
+            try {
+                apply.run();
+                if (pendingUpdates != null) {
+                    pendingUpdates.remove(id);
+                    pendingUpdates.put(id, apply);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    // Идентификаторы опубликованных событий, содержащих text, по возрастанию; пусто, если индекс
+    // не может ответить (выключен, ещё не построен, запрос короче триграммы, слишком много кандидатов)
+    public Optional<List<Long>> search(String text) {
+        if (!enabled || !ready || text == null) {
+            return Optional.empty();
+        }
+        String query = text.toLowerCase(Locale.ROOT);
+        if (query.length() < GRAM) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (long gram : grams(query)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return Optional.of(List.of());
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            int[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            int count = candidates.length;
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                count = intersect(candidates, count, lists.get(i));
+            }
+            if (count > maxCandidates) {
+                return Optional.empty();
+            }
+            List<Long> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String[] fields = documents.get(candidates[i]);
+                if (fields[0].contains(query) || fields[1].contains(query)) {
+                    result.add((long) candidates[i]);
+                }
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(int id, String annotation, String description) {
+        String[] fields = {normalize(annotation), normalize(description)};
+        documents.put(id, fields);
+        for (long gram : grams(fields)) {
+            postings.computeIfAbsent(gram, key -> new Postings()).add(id);
+        }
+    }
+
+    private void remove(int id) {
+        String[] fields = documents.remove(id);
+        if (fields == null) {
+            return;
+        }
+        for (long gram : grams(fields)) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    // Оставляет в candidates[0..count) только идентификаторы из list; оба массива отсортированы
+    private static int intersect(int[] candidates, int count, Postings list) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < list.size; i++) {
+            while (j < list.size && list.ids[j] < candidates[i]) {
+                j++;
+            }
+            if (j < list.size && list.ids[j] == candidates[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> grams(String... fields) {
+        Set<Long> grams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                grams.add(((long) field.charAt(i) << 32) | ((long) field.charAt(i + 1) << 16) | field.charAt(i + 2));
+            }
+        }
+        return grams;
+    }
+
+    // Отсортированный список идентификаторов событий на примитивном массиве
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -14,6 +14,7 @@ import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.model.StateAction;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.search.EventTextIndex;
 import ru.practicum.ewm.exception.ConflictException;
 import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.exception.ValidationException;
@@ -37,6 +38,7 @@ public class EventAdminService {
     private final CommentRepository commentRepository;
     private final CategoryService categoryService;
     private final LocationService locationService;
+    private final EventTextIndex eventTextIndex;
     private final EwmMapper mapper;
 
     public List<EventFullDto> getEvents(List<Long> users, List<EventState> states,
@@ -110,6 +112,7 @@ public class EventAdminService {
         }
 
         Event updatedEvent = eventRepository.save(event);
+        eventTextIndex.indexAfterCommit(updatedEvent);
         log.info("Событие с ID {} обновлено админом", eventId);
 
         return convertToEventFullDto(updatedEvent);
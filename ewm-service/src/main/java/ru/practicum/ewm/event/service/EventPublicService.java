@@ -2,33 +2,42 @@ package ru.practicum.ewm.event.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.EndpointHitDto;
-import ru.practicum.dto.ViewStats;
 import ru.practicum.ewm.comment.repository.CommentRepository;
+import ru.practicum.ewm.event.dto.EventCursor;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventSearchParams;
+import ru.practicum.ewm.event.dto.EventSearchResult;
 import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventSort;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.OffsetPageRequest;
+import ru.practicum.ewm.event.search.EventTextIndex;
 import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.exception.ValidationException;
 import ru.practicum.ewm.mapper.EwmMapper;
 import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.stats.service.StatsOutboxService;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,12 +50,19 @@ public class EventPublicService {
     private final ParticipationRequestRepository requestRepository;
     private final CommentRepository commentRepository;
     private final StatsClient statsClient;
+    private final StatsOutboxService statsOutboxService;
+    private final EventTextIndex eventTextIndex;
     private final EwmMapper mapper;
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public List<EventShortDto> getEvents(EventSearchParams params, String ip, String uri) {
+    // Полнотекстовый поиск требует PostgreSQL (tsvector); false возвращает поиск подстроки через LIKE
+    @Value("${ewm.search.full-text:true}")
+    private boolean fullTextSearch;
+
+    public EventSearchResult getEvents(EventSearchParams params, String ip, String uri) {
         log.info("Поиск событий с параметрами: {}", params);
+        long startedAt = System.currentTimeMillis();
 
         // Валидация дат
         if (params.getRangeStart() != null && params.getRangeEnd() != null) {
@@ -66,24 +82,53 @@ public class EventPublicService {
             rangeEnd = LocalDateTime.now().plusYears(100);
         }
 
-        // Создание Pageable с сортировкой
-        Pageable pageable;
-        if (EventSort.EVENT_DATE.name().equals(params.getSort())) {
-            pageable = PageRequest.of(params.getFrom() / params.getSize(), params.getSize(),
-                    Sort.by("eventDate").ascending());
-        } else {
-            pageable = PageRequest.of(params.getFrom() / params.getSize(), params.getSize());
+        boolean sortByDate = EventSort.EVENT_DATE.name().equals(params.getSort());
+        boolean sortByViews = EventSort.VIEWS.name().equals(params.getSort());
+        EventCursor cursor = EventCursor.decode(params.getCursor());
+        if (cursor != null && (sortByViews || cursor.isByDate() != sortByDate)) {
+            throw new ValidationException("Курсор выдан для другой сортировки");
         }
 
-        // Поиск событий
-        List<Event> events = eventRepository.findPublishedEvents(
-                params.getText(),
-                params.getCategories(),
-                params.getPaid(),
-                rangeStart,
-                rangeEnd,
-                pageable
-        ).getContent();
+        // Поиск событий; счётчик просмотров меняется между запросами, поэтому sort=VIEWS листается смещением
+        Slice<Event> slice;
+        boolean keyset = !sortByViews;
+        Optional<List<Long>> indexedIds = eventTextIndex.search(params.getText());
+        if (indexedIds.isEmpty() && fullTextSearch && params.getText() != null && !params.getText().isBlank()) {
+            // Порядок по релевантности задаётся в самом запросе и не продолжается курсором
+            if (cursor != null) {
+                throw new ValidationException("Курсор не поддерживается для полнотекстового поиска");
+            }
+            keyset = false;
+            slice = eventRepository.searchPublishedEvents(
+                    params.getText(),
+                    params.getCategories(),
+                    params.getPaid(),
+                    rangeStart,
+                    rangeEnd,
+                    sortByDate,
+                    sortByViews,
+                    OffsetPageRequest.of(params.getFrom(), params.getSize())
+            );
+        } else if (indexedIds.isPresent() && indexedIds.get().isEmpty()) {
+            slice = new SliceImpl<>(List.of());
+        } else if (indexedIds.isPresent()) {
+            // Текст уже отфильтрован индексом, база проверяет остальные условия для кандидатов
+            Pageable pageable = cursor != null
+                    ? PageRequest.of(0, params.getSize())
+                    : OffsetPageRequest.of(params.getFrom(), params.getSize());
+            slice = eventRepository.findPublishedEventsByIds(indexedIds.get(), params.getCategories(),
+                    params.getPaid(), rangeStart, rangeEnd, sortByDate, sortByViews,
+                    cursor != null ? cursor.getEventDate() : null, cursor != null ? cursor.getId() : null,
+                    pageable);
+        } else {
+            slice = cursor != null
+                    ? findPublishedEventsAfter(params, rangeStart, rangeEnd, sortByDate, cursor)
+                    : findPublishedEventsFrom(params, rangeStart, rangeEnd, publicSort(params));
+        }
+        List<Event> events = slice.getContent();
+        String nextCursor = keyset && slice.hasNext() && !events.isEmpty()
+                ? EventCursor.after(events.get(events.size() - 1), sortByDate).encode()
+                : null;
 
         // Фильтрация по доступности мест (до преобразования в DTO)
         if (Boolean.TRUE.equals(params.getOnlyAvailable())) {
@@ -98,35 +143,60 @@ public class EventPublicService {
         }
 
         // Получение статистики просмотров
-        List<EventShortDto> eventDtos = convertToEventShortDtoList(events);
+        List<EventShortDto> eventDtos = convertToEventShortDtoList(events, sortByViews);
+
+        saveStats(ip, uri, startedAt);
 
-        // Сортировка по просмотрам (если требуется)
+        log.info("Найдено {} событий", eventDtos.size());
+        return new EventSearchResult(eventDtos, nextCursor);
+    }
+
+    // Порядок совпадает с порядком продолжения курсором; VIEWS - по синхронизируемой колонке events.views
+    private Sort publicSort(EventSearchParams params) {
+        if (EventSort.EVENT_DATE.name().equals(params.getSort())) {
+            return Sort.by("eventDate", "id").ascending();
+        }
         if (EventSort.VIEWS.name().equals(params.getSort())) {
-            eventDtos.sort(Comparator.comparing(EventShortDto::getViews,
-                    Comparator.nullsLast(Comparator.naturalOrder())));
+            return Sort.by(Sort.Order.desc("views"), Sort.Order.asc("id"));
         }
+        return Sort.by("id").ascending();
+    }
 
-        saveStats(ip, uri);
+    // Первая страница или переход по смещению from
+    private Slice<Event> findPublishedEventsFrom(EventSearchParams params, LocalDateTime rangeStart,
+                                                 LocalDateTime rangeEnd, Sort sort) {
+        return eventRepository.findPublishedEvents(params.getText(), params.getCategories(), params.getPaid(),
+                rangeStart, rangeEnd, OffsetPageRequest.of(params.getFrom(), params.getSize(), sort));
+    }
 
-        log.info("Найдено {} событий", eventDtos.size());
-        return eventDtos;
+    // Продолжение выдачи после курсора без OFFSET: условие по ключу сортировки обслуживается индексом
+    private Slice<Event> findPublishedEventsAfter(EventSearchParams params, LocalDateTime rangeStart,
+                                                  LocalDateTime rangeEnd, boolean sortByDate, EventCursor cursor) {
+        Pageable pageable = PageRequest.of(0, params.getSize());
+        if (sortByDate) {
+            return eventRepository.findPublishedEventsAfterDate(params.getText(), params.getCategories(),
+                    params.getPaid(), rangeStart, rangeEnd, cursor.getEventDate(), cursor.getId(), pageable);
+        }
+        return eventRepository.findPublishedEventsAfterId(params.getText(), params.getCategories(),
+                params.getPaid(), rangeStart, rangeEnd, cursor.getId(), pageable);
     }
 
     public EventFullDto getEventById(Long eventId, String ip, String uri) {
         log.info("Получение события по ID: {}", eventId);
+        long startedAt = System.currentTimeMillis();
 
         Event event = eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
                 .orElseThrow(() -> new NotFoundException("Событие с ID " + eventId + " не найдено"));
 
         EventFullDto eventDto = convertToEventFullDto(event);
 
-        saveStats(ip, uri);
+        saveStats(ip, uri, startedAt);
 
         log.info("Событие с ID {} найдено", eventId);
         return eventDto;
     }
 
-    private List<EventShortDto> convertToEventShortDtoList(List<Event> events) {
+    private List<EventShortDto> convertToEventShortDtoList(List<Event> events, boolean sortByViews) {
         if (events.isEmpty()) {
             return List.of();
         }
@@ -135,8 +205,10 @@ public class EventPublicService {
                 .map(Event::getId)
                 .collect(Collectors.toList());
 
-        // Получение статистики просмотров
-        Map<Long, Long> viewsMap = getViewsMap(eventIds);
+        // Получение статистики просмотров. При sort=VIEWS показывается колонка events.views, по которой
+        // отсортирована выдача: живой счётчик stats-server опережает её на интервал синхронизации
+        // и мог бы показать порядок, не совпадающий с сортировкой
+        Map<Long, Long> viewsMap = sortByViews ? getSyncedViewsMap(events) : getViewsMap(eventIds);
 
         // Получение количества подтвержденных заявок
         Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(eventIds);
@@ -173,30 +245,27 @@ public class EventPublicService {
         return dto;
     }
 
+    private Map<Long, Long> getSyncedViewsMap(List<Event> events) {
+        Map<Long, Long> viewsMap = new HashMap<>();
+        for (Event event : events) {
+            viewsMap.put(event.getId(), event.getViews() != null ? event.getViews() : 0L);
+        }
+        return viewsMap;
+    }
+
     private Map<Long, Long> getViewsMap(List<Long> eventIds) {
         try {
-            // Формирование списка URI для запроса статистики
-            List<String> uris = eventIds.stream()
-                    .map(id -> "/events/" + id)
-                    .collect(Collectors.toList());
-
             // Запрос статистики с начала времени до текущего момента
             LocalDateTime start = LocalDateTime.of(1970, 1, 1, 0, 0, 0);
             LocalDateTime end = LocalDateTime.now();
 
-            Collection<ViewStats> stats = statsClient.getStat(
+            return statsClient.getViews(
                     start.format(FORMATTER),
                     end.format(FORMATTER),
-                    uris,
+                    "events",
+                    eventIds,
                     true
             );
-
-            return stats.stream()
-                    .collect(Collectors.toMap(
-                            stat -> extractEventIdFromUri(stat.getUri()),
-                            ViewStats::getHits,
-                            (existing, replacement) -> existing
-                    ));
         } catch (Exception e) {
             log.warn("Ошибка при получении статистики просмотров: {}", e.getMessage());
             return Map.of();
@@ -229,29 +298,42 @@ public class EventPublicService {
                 ));
     }
 
-    private Long extractEventIdFromUri(String uri) {
-        try {
-            String[] parts = uri.split("/");
-            return Long.parseLong(parts[parts.length - 1]);
-        } catch (Exception e) {
-            log.warn("Ошибка при извлечении ID события из URI: {}", uri);
-            return 0L;
+    // Хит отправляется синхронно после завершения транзакции запроса, чтобы следующий запрос уже видел
+    // этот просмотр. Если stats-server недоступен, хит пишется в локальный outbox и его позже доставит
+    // StatsOutboxRelay; ошибка и там только логируется, чтобы не ломать ответ пользователю
+    private void saveStats(String ip, String uri, long startedAt) {
+        EndpointHitDto hitDto = new EndpointHitDto(
+                "ewm-main-service",
+                uri,
+                ip,
+                LocalDateTime.now(),
+                System.currentTimeMillis() - startedAt
+        );
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliverHit(hitDto);
+                }
+            });
+        } else {
+            deliverHit(hitDto);
         }
     }
 
-    private void saveStats(String ip, String uri) {
+    private void deliverHit(EndpointHitDto hitDto) {
         try {
-            EndpointHitDto hitDto = new EndpointHitDto(
-                    "ewm-main-service",
-                    uri,
-                    ip,
-                    LocalDateTime.now()
-            );
-
             statsClient.hit(hitDto);
-            log.debug("Статистика сохранена: ip={}, uri={}", ip, uri);
+            log.debug("Статистика отправлена: ip={}, uri={}", hitDto.getIp(), hitDto.getUri());
+            return;
+        } catch (Exception e) {
+            log.warn("Ошибка при отправке статистики, хит записывается в outbox: {}", e.getMessage());
+        }
+        try {
+            statsOutboxService.append(hitDto);
         } catch (Exception e) {
-            log.warn("Ошибка при сохранении статистики: {}", e.getMessage());
+            log.error("Не удалось записать хит {} в outbox: {}", hitDto.getUri(), e.getMessage());
         }
     }
 }
@@ -0,0 +1,100 @@
+package ru.practicum.ewm.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventViewsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Синхронизирует events.views с stats-server. Первый запуск пересчитывает все опубликованные события,
+// дальше запрашиваются только uri, получившие хиты с прошлой синхронизации (минус overlap на задержку хитов,
+// отложенных в outbox), и для этих событий заново берётся полный счётчик уникальных просмотров:
+// уникальные просмотры по окнам не складываются. Окно отбирается по времени хита, а не по времени
+// приёма сервером, поэтому хит, доставленный позже overlap (повтор outbox после сбоя, досылка),
+// окно пропускает; такие хиты учитывает полный пересчёт раз в full-recount-interval-ms
+@Component
+@ConditionalOnProperty(name = "ewm.views-sync.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class EventViewsSync {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0, 0);
+    private static final Pattern EVENT_URI = Pattern.compile("^/events/(\\d+)$");
+
+    private final EventRepository eventRepository;
+    private final EventViewsRepository eventViewsRepository;
+    private final StatsClient transportClient;
+
+    @Value("${ewm.views-sync.overlap-ms:120000}")
+    private long overlapMs;
+
+    @Value("${ewm.views-sync.batch-size:500}")
+    private int batchSize;
+
+    @Value("${ewm.views-sync.full-recount-interval-ms:3600000}")
+    private long fullRecountIntervalMs;
+
+    private LocalDateTime lastSyncedAt;
+    private LocalDateTime lastFullRecountAt;
+
+    // Кэш и склейка запросов основного клиента здесь не нужны: нужен свежий счётчик из stats-server
+    public EventViewsSync(EventRepository eventRepository, EventViewsRepository eventViewsRepository,
+                          @Qualifier("statsTransportClient") StatsClient transportClient) {
+        this.eventRepository = eventRepository;
+        this.eventViewsRepository = eventViewsRepository;
+        this.transportClient = transportClient;
+    }
+
+    @Scheduled(fixedDelayString = "${ewm.views-sync.interval-ms:10000}")
+    public void sync() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        try {
+            boolean fullRecount = lastFullRecountAt == null
+                    || !now.isBefore(lastFullRecountAt.plus(Duration.ofMillis(fullRecountIntervalMs)));
+            Collection<Long> eventIds = fullRecount
+                    ? eventRepository.findPublishedIds()
+                    : changedSince(lastSyncedAt.minus(Duration.ofMillis(overlapMs)), now);
+            List<Long> ids = new ArrayList<>(eventIds);
+            for (int from = 0; from < ids.size(); from += batchSize) {
+                List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+                eventViewsRepository.updateViews(transportClient.getViews(
+                        EPOCH.format(FORMATTER), now.format(FORMATTER), "events", batch, true));
+            }
+            lastSyncedAt = now;
+            if (fullRecount) {
+                lastFullRecountAt = now;
+            }
+            log.debug("Синхронизированы просмотры {} событий", ids.size());
+        } catch (Exception e) {
+            log.warn("Ошибка при синхронизации просмотров событий: {}", e.getMessage());
+        }
+    }
+
+    private Set<Long> changedSince(LocalDateTime start, LocalDateTime end) {
+        Set<Long> ids = new TreeSet<>();
+        for (ViewStats stats : transportClient.getStat(start.format(FORMATTER), end.format(FORMATTER), null, false)) {
+            Matcher matcher = EVENT_URI.matcher(stats.getUri());
+            if (matcher.matches()) {
+                ids.add(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.ewm.stats.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Хит, ещё не доставленный в stats-server; пишется на пути запроса и удаляется ретранслятором после подтверждения.
+// Отклонённый сервером или исчерпавший попытки хит помечается dead_at и хранится до очистки по сроку
+@Entity
+@Table(name = "stats_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "id")
+public class StatsOutboxHit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "app", nullable = false)
+    private String app;
+
+    @Column(name = "uri", nullable = false, length = 512)
+    private String uri;
+
+    @Column(name = "ip", nullable = false, length = 64)
+    private String ip;
+
+    @Column(name = "hit_timestamp", nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(name = "duration_ms")
+    private Long duration;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "dead_at")
+    private LocalDateTime deadAt;
+}
@@ -0,0 +1,127 @@
+package ru.practicum.ewm.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.practicum.ewm.stats.model.StatsOutboxHit;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+// JDBC вместо JPA: IDENTITY-ключи отключают пакетную вставку в Hibernate, а SKIP LOCKED в JPQL не выразить
+@Repository
+@RequiredArgsConstructor
+public class StatsOutboxRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stats_outbox (app, uri, ip, hit_timestamp, duration_ms, attempts) VALUES (?, ?, ?, ?, ?, 0)";
+
+    // Параллельные ретрансляторы пропускают строки, захваченные другими, вместо ожидания блокировки;
+    // мёртвые строки и строки, чья следующая попытка ещё не наступила, не выбираются
+    private static final String LOCK_BATCH_SQL =
+            "SELECT id, app, uri, ip, hit_timestamp, duration_ms, attempts FROM stats_outbox "
+                    + "WHERE dead_at IS NULL AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+                    + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String LEASE_SQL = "UPDATE stats_outbox SET next_attempt_at = ? WHERE id = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM stats_outbox WHERE id = ?";
+
+    private static final String RETRY_SQL =
+            "UPDATE stats_outbox SET attempts = attempts + 1, next_attempt_at = ? WHERE id = ?";
+
+    private static final String MARK_DEAD_SQL =
+            "UPDATE stats_outbox SET attempts = attempts + 1, dead_at = ? WHERE id = ?";
+
+    private static final RowMapper<StatsOutboxHit> ROW_MAPPER = (rs, rowNum) -> StatsOutboxHit.builder()
+            .id(rs.getLong("id"))
+            .app(rs.getString("app"))
+            .uri(rs.getString("uri"))
+            .ip(rs.getString("ip"))
+            .timestamp(rs.getTimestamp("hit_timestamp").toLocalDateTime())
+            .duration(rs.getObject("duration_ms", Long.class))
+            .attempts(rs.getInt("attempts"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<StatsOutboxHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setString(1, hit.getApp());
+            ps.setString(2, hit.getUri());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+            if (hit.getDuration() == null) {
+                ps.setNull(5, Types.BIGINT);
+            } else {
+                ps.setLong(5, hit.getDuration());
+            }
+        });
+    }
+
+    public List<StatsOutboxHit> lockBatch(LocalDateTime now, int limit) {
+        return jdbcTemplate.query(LOCK_BATCH_SQL, ROW_MAPPER, Timestamp.valueOf(now), limit);
+    }
+
+    // Аренда: до leasedUntil строки не выбираются lockBatch, хотя блокировка уже снята
+    public void lease(List<StatsOutboxHit> hits, LocalDateTime leasedUntil) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(LEASE_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(leasedUntil));
+            ps.setLong(2, hit.getId());
+        });
+    }
+
+    public void deleteAll(List<StatsOutboxHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(DELETE_SQL, hits, hits.size(), (ps, hit) -> ps.setLong(1, hit.getId()));
+    }
+
+    // Время следующей попытки у строк пакета разное: задержка растёт с числом уже сделанных попыток
+    public void scheduleRetry(List<StatsOutboxHit> hits, Function<StatsOutboxHit, LocalDateTime> nextAttemptAt) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(RETRY_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(nextAttemptAt.apply(hit)));
+            ps.setLong(2, hit.getId());
+        });
+    }
+
+    public void markDead(List<StatsOutboxHit> hits, LocalDateTime now) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(MARK_DEAD_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setLong(2, hit.getId());
+        });
+    }
+
+    public int deleteDeadBefore(LocalDateTime threshold) {
+        return jdbcTemplate.update("DELETE FROM stats_outbox WHERE dead_at < ?", Timestamp.valueOf(threshold));
+    }
+
+    public long countPending() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_outbox WHERE dead_at IS NULL",
+                Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public long countDead() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_outbox WHERE dead_at IS NOT NULL",
+                Long.class);
+        return count == null ? 0 : count;
+    }
+}
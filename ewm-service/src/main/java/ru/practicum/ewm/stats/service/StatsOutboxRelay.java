@@ -0,0 +1,122 @@
+package ru.practicum.ewm.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.model.StatsOutboxHit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Строки outbox арендуются короткой транзакцией, отправляются через async-клиент вне транзакции,
+// а по его подтверждению второй короткой транзакцией удаляются или откладываются
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats-client.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class StatsOutboxRelay {
+
+    private final StatsOutboxService outboxService;
+    private final AsyncStatsClient relayClient;
+
+    @Value("${stats-client.outbox.relay.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${stats-client.outbox.relay.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    @Value("${stats-client.outbox.dead-retention-hours:168}")
+    private long deadRetentionHours;
+
+    // За один запуск арендует полные пакеты подряд, пока outbox не опустеет или не исчерпан лимит пакетов;
+    // пакеты отправляются, пока арендуются следующие, подтверждения ждутся не дольше аренды
+    @Scheduled(fixedDelayString = "${stats-client.outbox.relay.interval-ms:1000}")
+    public void relay() {
+        long deadline = System.nanoTime() + outboxService.getLease().toNanos();
+        List<InFlight> inFlight = new ArrayList<>();
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                List<StatsOutboxHit> batch = outboxService.lease(batchSize);
+                if (!batch.isEmpty()) {
+                    inFlight.add(submit(batch));
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ошибка при аренде хитов из outbox: {}", e.getMessage());
+        }
+        for (InFlight batch : inFlight) {
+            try {
+                complete(batch, deadline);
+            } catch (Exception e) {
+                log.warn("Ошибка при отправке хитов из outbox: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats-client.outbox.purge-interval-ms:3600000}")
+    public void purgeDead() {
+        try {
+            int purged = outboxService.purgeDead(Duration.ofHours(deadRetentionHours));
+            if (purged > 0) {
+                log.info("Из outbox удалено {} мёртвых хитов старше {} ч", purged, deadRetentionHours);
+            }
+        } catch (Exception e) {
+            log.warn("Ошибка при очистке мёртвых хитов outbox: {}", e.getMessage());
+        }
+    }
+
+    private InFlight submit(List<StatsOutboxHit> batch) {
+        Map<EndpointHitDto, StatsOutboxHit> rows = new IdentityHashMap<>(batch.size() * 2);
+        List<EndpointHitDto> hits = new ArrayList<>(batch.size());
+        for (StatsOutboxHit row : batch) {
+            EndpointHitDto hit = new EndpointHitDto(row.getApp(), row.getUri(), row.getIp(), row.getTimestamp(),
+                    row.getDuration());
+            rows.put(hit, row);
+            hits.add(hit);
+        }
+        return new InFlight(batch, rows, relayClient.submit(hits));
+    }
+
+    // Без подтверждения к концу аренды строки не трогаются: после аренды их выберет следующий запуск
+    private void complete(InFlight batch, long deadline) throws InterruptedException, ExecutionException {
+        AsyncStatsClient.Delivery delivery;
+        try {
+            delivery = batch.delivery().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Нет подтверждения отправки {} хитов из outbox, они будут отправлены повторно после аренды",
+                    batch.batch().size());
+            return;
+        }
+        List<StatsOutboxHit> rejected = delivery.rejected().stream().map(batch.rows()::get).toList();
+        List<StatsOutboxHit> lost = delivery.lost().stream().map(batch.rows()::get).toList();
+        Set<StatsOutboxHit> undelivered = Collections.newSetFromMap(new IdentityHashMap<>());
+        undelivered.addAll(rejected);
+        undelivered.addAll(lost);
+        List<StatsOutboxHit> delivered = batch.batch().stream()
+                .filter(row -> !undelivered.contains(row))
+                .toList();
+        outboxService.complete(delivered, rejected, lost, delivery.error());
+    }
+
+    // rows - строка outbox для каждого отправленного объекта хита: подтверждение возвращает те же объекты
+    private record InFlight(List<StatsOutboxHit> batch, Map<EndpointHitDto, StatsOutboxHit> rows,
+                            CompletableFuture<AsyncStatsClient.Delivery> delivery) {
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.ewm.stats.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.model.StatsOutboxHit;
+import ru.practicum.ewm.stats.repository.StatsOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@Slf4j
+public class StatsOutboxService {
+
+    private final StatsOutboxRepository outboxRepository;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+
+    public StatsOutboxService(StatsOutboxRepository outboxRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${stats-client.outbox.relay.max-attempts:20}") int maxAttempts,
+                              @Value("${stats-client.outbox.relay.lease-ms:60000}") long leaseMs,
+                              @Value("${stats-client.outbox.relay.retry-delay-ms:1000}") long retryDelayMs,
+                              @Value("${stats-client.outbox.relay.max-retry-delay-ms:600000}") long maxRetryDelayMs) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Число попыток доставки из outbox должно быть положительным");
+        }
+        this.outboxRepository = outboxRepository;
+        this.maxAttempts = maxAttempts;
+        this.lease = Duration.ofMillis(leaseMs);
+        this.retryDelay = Duration.ofMillis(retryDelayMs);
+        this.maxRetryDelay = Duration.ofMillis(maxRetryDelayMs);
+        Gauge.builder("stats.outbox.pending", outboxRepository, StatsOutboxRepository::countPending)
+                .description("Хиты в outbox, ожидающие доставки в stats-server")
+                .register(meterRegistry);
+        Gauge.builder("stats.outbox.dead", outboxRepository, StatsOutboxRepository::countDead)
+                .description("Хиты в outbox, отклонённые сервером или исчерпавшие попытки доставки")
+                .register(meterRegistry);
+    }
+
+    // Запасной путь для хитов, которые не удалось отправить сразу; вызывается уже после завершения
+    // транзакции запроса, поэтому пишет в собственной
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void append(EndpointHitDto hit) {
+        appendAll(List.of(hit));
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void appendAll(List<EndpointHitDto> hits) {
+        outboxRepository.insertAll(hits.stream()
+                .map(hit -> StatsOutboxHit.builder()
+                        .app(hit.getApp())
+                        .uri(hit.getUri())
+                        .ip(hit.getIp())
+                        .timestamp(hit.getTimestamp())
+                        .duration(hit.getDuration())
+                        .build())
+                .toList());
+    }
+
+    // Забирает до batchSize строк и сдвигает их следующую попытку на время аренды. Транзакция короткая:
+    // отправка идёт уже после её завершения, и до конца аренды строки не выберет другой запуск.
+    // Если итог отправки не будет записан через complete, строки после аренды отправятся повторно
+    @Transactional
+    public List<StatsOutboxHit> lease(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StatsOutboxHit> batch = outboxRepository.lockBatch(now, batchSize);
+        outboxRepository.lease(batch, now.plus(lease));
+        return batch;
+    }
+
+    // Итог отправки арендованных строк: доставленные удаляются, отклонённые сервером помечаются мёртвыми.
+    // У потерянных из-за временной ошибки растёт счётчик попыток, следующая откладывается с экспоненциальной
+    // задержкой, после maxAttempts строка тоже становится мёртвой
+    @Transactional
+    public void complete(List<StatsOutboxHit> delivered, List<StatsOutboxHit> rejected, List<StatsOutboxHit> lost,
+                         String error) {
+        LocalDateTime now = LocalDateTime.now();
+        outboxRepository.deleteAll(delivered);
+        outboxRepository.markDead(rejected, now);
+        if (!rejected.isEmpty()) {
+            log.warn("stats-server отклонил {} хитов из outbox, они помечены мёртвыми", rejected.size());
+        }
+        if (!lost.isEmpty()) {
+            deferRetry(lost, now, error);
+        }
+        log.debug("Из outbox доставлено {} хитов", delivered.size());
+    }
+
+    // Мёртвые строки хранятся retention для разбора и затем удаляются; доставленные удаляются сразу
+    @Transactional
+    public int purgeDead(Duration retention) {
+        return outboxRepository.deleteDeadBefore(LocalDateTime.now().minus(retention));
+    }
+
+    public Duration getLease() {
+        return lease;
+    }
+
+    private void deferRetry(List<StatsOutboxHit> hits, LocalDateTime now, String error) {
+        List<StatsOutboxHit> exhausted = hits.stream()
+                .filter(hit -> hit.getAttempts() + 1 >= maxAttempts)
+                .toList();
+        List<StatsOutboxHit> retried = hits.stream()
+                .filter(hit -> hit.getAttempts() + 1 < maxAttempts)
+                .toList();
+        outboxRepository.scheduleRetry(retried, hit -> now.plus(backoff(hit.getAttempts())));
+        outboxRepository.markDead(exhausted, now);
+        if (exhausted.isEmpty()) {
+            log.warn("Не удалось отправить {} хитов из outbox, повтор отложен: {}", hits.size(), error);
+        } else {
+            log.warn("Не удалось отправить {} хитов из outbox, {} из них исчерпали {} попыток и помечены мёртвыми: {}",
+                    hits.size(), exhausted.size(), maxAttempts, error);
+        }
+    }
+
+    // retryDelay * 2^attempts, но не больше maxRetryDelay
+    private Duration backoff(int attempts) {
+        Duration delay = retryDelay.multipliedBy(1L << Math.min(attempts, 30));
+        return delay.compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay;
+    }
+}
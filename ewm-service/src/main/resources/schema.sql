@@ -80,10 +80,34 @@ CREATE TABLE IF NOT EXISTS comments (
     CONSTRAINT fk_comments_author FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS stats_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    ip VARCHAR(64) NOT NULL,
+    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    duration_ms BIGINT,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITHOUT TIME ZONE,
+    dead_at TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT pk_stats_outbox PRIMARY KEY (id)
+);
+
+-- Поисковый вектор по аннотации (вес A) и описанию (вес B) для полнотекстового поиска в GET /events
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (setweight(to_tsvector('russian', coalesce(annotation, '')), 'A')
+        || setweight(to_tsvector('russian', coalesce(description, '')), 'B')) STORED;
+
+-- Счётчик уникальных просмотров, синхронизируемый из stats-server, для сортировки GET /events?sort=VIEWS
+ALTER TABLE events ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+
 CREATE INDEX IF NOT EXISTS idx_events_category_id ON events (category_id);
 CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id);
 CREATE INDEX IF NOT EXISTS idx_events_state ON events (state);
 CREATE INDEX IF NOT EXISTS idx_events_event_date ON events (event_date);
+CREATE INDEX IF NOT EXISTS idx_events_event_date_id ON events (event_date, id);
+CREATE INDEX IF NOT EXISTS idx_events_published_views ON events (views DESC, id) WHERE state = 'PUBLISHED';
+CREATE INDEX IF NOT EXISTS idx_events_search_vector ON events USING GIN (search_vector);
 CREATE INDEX IF NOT EXISTS idx_requests_event_id ON requests (event_id);
 CREATE INDEX IF NOT EXISTS idx_requests_requester_id ON requests (requester_id);
 CREATE INDEX IF NOT EXISTS idx_requests_status ON requests (status);
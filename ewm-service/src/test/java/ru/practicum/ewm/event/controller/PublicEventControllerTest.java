@@ -7,6 +7,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventSearchParams;
+import ru.practicum.ewm.event.dto.EventSearchResult;
 import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.service.EventPublicService;
 
@@ -34,11 +35,12 @@ class PublicEventControllerTest {
         );
 
         when(eventPublicService.getEvents(any(EventSearchParams.class), anyString(), anyString()))
-                .thenReturn(events);
+                .thenReturn(new EventSearchResult(events, null));
 
         mockMvc.perform(get("/events"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().doesNotExist(PublicEventController.NEXT_CURSOR_HEADER));
     }
 
     @Test
@@ -46,7 +48,7 @@ class PublicEventControllerTest {
         List<EventShortDto> events = List.of(new EventShortDto());
 
         when(eventPublicService.getEvents(any(EventSearchParams.class), anyString(), anyString()))
-                .thenReturn(events);
+                .thenReturn(new EventSearchResult(events, null));
 
         mockMvc.perform(get("/events")
                         .param("text", "test")
@@ -58,6 +60,18 @@ class PublicEventControllerTest {
                 .andExpect(jsonPath("$.length()").value(1));
     }
 
+    @Test
+    void getEvents_WithCursor_ShouldPassItAndReturnNextCursorHeader() throws Exception {
+        when(eventPublicService.getEvents(argThat(params -> "abc".equals(params.getCursor())),
+                anyString(), anyString()))
+                .thenReturn(new EventSearchResult(List.of(new EventShortDto()), "def"));
+
+        mockMvc.perform(get("/events").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string(PublicEventController.NEXT_CURSOR_HEADER, "def"));
+    }
+
     @Test
     void getEventById_ValidId_ShouldReturnEvent() throws Exception {
         EventFullDto event = new EventFullDto();
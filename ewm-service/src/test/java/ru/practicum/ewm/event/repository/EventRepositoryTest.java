@@ -0,0 +1,102 @@
+package ru.practicum.ewm.event.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.location.model.Location;
+import ru.practicum.ewm.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class EventRepositoryTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    private Category concerts;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User initiator = entityManager.persist(User.builder().name("user").email("user@example.com").build());
+        concerts = entityManager.persist(Category.builder().name("concerts").build());
+        Category exhibitions = entityManager.persist(Category.builder().name("exhibitions").build());
+        ids.add(persist(initiator, concerts, NOW.plusDays(3), EventState.PUBLISHED));
+        ids.add(persist(initiator, exhibitions, NOW.plusDays(1), EventState.PUBLISHED));
+        ids.add(persist(initiator, concerts, NOW.plusDays(2), EventState.PUBLISHED));
+        ids.add(persist(initiator, concerts, NOW.plusDays(4), EventState.PENDING));
+        entityManager.clear();
+    }
+
+    @Test
+    void findPublishedEventsByIds_ShouldFilterCandidatesAndOrderById() {
+        List<Long> found = eventRepository.findPublishedEventsByIds(ids, null, null, NOW, NOW.plusYears(1),
+                        false, false, null, null, PageRequest.of(0, 10))
+                .map(Event::getId)
+                .getContent();
+
+        assertEquals(ids.subList(0, 3), found);
+    }
+
+    @Test
+    void findPublishedEventsByIds_ShouldApplyCategoriesAndContinueAfterCursor() {
+        List<Long> found = eventRepository.findPublishedEventsByIds(ids, List.of(concerts.getId()), null,
+                        NOW, NOW.plusYears(1), false, false, null, ids.get(0), PageRequest.of(0, 10))
+                .map(Event::getId)
+                .getContent();
+
+        assertEquals(List.of(ids.get(2)), found);
+    }
+
+    @Test
+    void findPublishedEventsByIds_SortedByDate_ShouldContinueAfterDateCursor() {
+        List<Long> firstPage = eventRepository.findPublishedEventsByIds(ids, null, null, NOW, NOW.plusYears(1),
+                        true, false, null, null, PageRequest.of(0, 2))
+                .map(Event::getId)
+                .getContent();
+        List<Long> nextPage = eventRepository.findPublishedEventsByIds(ids, null, null, NOW, NOW.plusYears(1),
+                        true, false, NOW.plusDays(2), ids.get(2), PageRequest.of(0, 2))
+                .map(Event::getId)
+                .getContent();
+
+        assertEquals(List.of(ids.get(1), ids.get(2)), firstPage);
+        assertEquals(List.of(ids.get(0)), nextPage);
+    }
+
+    private Long persist(User initiator, Category category, LocalDateTime eventDate, EventState state) {
+        return entityManager.persist(Event.builder()
+                .annotation("Аннотация события для поиска")
+                .description("Описание события для поиска")
+                .title("title")
+                .category(category)
+                .initiator(initiator)
+                .location(Location.builder().lat(55.75f).lon(37.61f).build())
+                .createdOn(NOW)
+                .eventDate(eventDate)
+                .paid(false)
+                .participantLimit(0)
+                .requestModeration(true)
+                .state(state)
+                .build()).getId();
+    }
+}
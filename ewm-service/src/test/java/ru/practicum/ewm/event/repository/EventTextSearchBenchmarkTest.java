@@ -0,0 +1,156 @@
+package ru.practicum.ewm.event.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Сравнение прежнего поиска подстроки (LIKE по annotation и description) с полнотекстовым поиском
+// по search_vector на реальном PostgreSQL. Оба способа ищут одно и то же слово-метку, которое встречается
+// в описании примерно TAGGED_EVENTS событий, и должны находить одинаковое число строк. Нужен Docker.
+// Запуск: mvn -pl ewm-service test -Dtest=EventTextSearchBenchmarkTest -Dewm.benchmark=true
+@EnabledIfSystemProperty(named = "ewm.benchmark", matches = "true")
+@Slf4j
+class EventTextSearchBenchmarkTest {
+
+    private static final int EVENTS = 50_000;
+    private static final int TAGS = 1_000;
+    private static final int TAGGED_EVENTS = EVENTS / TAGS;
+    private static final int QUERIES = 200;
+    private static final String[] WORDS = {
+            "концерт", "выставка", "лекция", "фестиваль", "театр", "джаз", "музей", "прогулка", "мастер-класс",
+            "кино", "город", "вечер", "музыка", "история", "искусство", "спорт", "забег", "книга", "встреча",
+            "ярмарка", "экскурсия", "парк", "река", "дети", "семья", "архитектура", "фотография", "наука"
+    };
+
+    private static final String LIKE_SQL = """
+            SELECT e.id FROM events e
+            WHERE e.state = 'PUBLISHED'
+              AND (LOWER(e.annotation) LIKE CONCAT('%', LOWER(?), '%')
+                   OR LOWER(e.description) LIKE CONCAT('%', LOWER(?), '%'))
+              AND e.event_date >= ? AND e.event_date <= ?
+            LIMIT 10
+            """;
+
+    private static final String FULL_TEXT_SQL = """
+            SELECT e.id FROM events e, websearch_to_tsquery('russian', ?) query
+            WHERE e.state = 'PUBLISHED'
+              AND e.search_vector @@ query
+              AND e.event_date >= ? AND e.event_date <= ?
+            ORDER BY ts_rank(e.search_vector, query) DESC, e.id
+            LIMIT 10
+            """;
+
+    @Test
+    void compareLikeWithFullText() throws Exception {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")) {
+            postgres.start();
+            try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(),
+                    postgres.getUsername(), postgres.getPassword())) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+                fill(connection);
+
+                // Прогрев кэша страниц и планов
+                run(connection, "like", LIKE_SQL, 2, 20);
+                run(connection, "full-text", FULL_TEXT_SQL, 1, 20);
+
+                long likeRows = run(connection, "like", LIKE_SQL, 2, QUERIES);
+                long fullTextRows = run(connection, "full-text", FULL_TEXT_SQL, 1, QUERIES);
+
+                assertTrue(likeRows > 0, "Запросы ничего не нашли, сравнение бессмысленно");
+                assertEquals(likeRows, fullTextRows, "LIKE и полнотекстовый поиск нашли разное число событий");
+            }
+        }
+    }
+
+    private void fill(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO users (name, email) VALUES ('bench', 'bench@example.com')");
+            statement.execute("INSERT INTO categories (name) VALUES ('bench')");
+            statement.execute("INSERT INTO locations (lat, lon) VALUES (55.75, 37.61)");
+        }
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement insert = connection.prepareStatement("""
+                INSERT INTO events (annotation, category_id, created_on, description, event_date, initiator_id,
+                                    location_id, state, title)
+                VALUES (?, 1, ?, ?, ?, 1, 1, 'PUBLISHED', ?)
+                """)) {
+            for (int i = 0; i < EVENTS; i++) {
+                insert.setString(1, text(random, 30));
+                insert.setTimestamp(2, Timestamp.valueOf(now));
+                insert.setString(3, text(random, 600) + " " + tag(random.nextInt(TAGS)));
+                insert.setTimestamp(4, Timestamp.valueOf(now.plusDays(1 + random.nextInt(365))));
+                insert.setString(5, text(random, 5));
+                insert.addBatch();
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE events");
+        }
+    }
+
+    // Возвращает общее число найденных строк, чтобы оба способа можно было сверить
+    private long run(Connection connection, String name, String sql, int textParams, int queries) throws Exception {
+        Random random = new Random(7);
+        long rows = 0;
+        Timestamp from = Timestamp.valueOf(LocalDateTime.now());
+        Timestamp to = Timestamp.valueOf(LocalDateTime.now().plusYears(2));
+        long startNanos = System.nanoTime();
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            for (int i = 0; i < queries; i++) {
+                String text = tag(random.nextInt(TAGS));
+                int index = 1;
+                while (index <= textParams) {
+                    query.setString(index++, text);
+                }
+                query.setTimestamp(index++, from);
+                query.setTimestamp(index, to);
+                try (ResultSet resultSet = query.executeQuery()) {
+                    while (resultSet.next()) {
+                        resultSet.getLong(1);
+                        rows++;
+                    }
+                }
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        log.info("{}: {} запросов, {} мс на запрос, найдено {} строк", name, queries,
+                String.format("%.2f", elapsedNanos / 1e6 / queries), rows);
+        return rows;
+    }
+
+    // Метка фиксированной длины, чтобы LIKE по подстроке не находил одну метку внутри другой
+    private String tag(int index) {
+        return String.format("метка%04d", index);
+    }
+
+    private String text(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+}
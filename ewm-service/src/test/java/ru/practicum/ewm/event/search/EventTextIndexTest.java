@@ -0,0 +1,121 @@
+package ru.practicum.ewm.event.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.event.repository.EventRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventTextIndexTest {
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @InjectMocks
+    private EventTextIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxCandidates", 10000);
+        when(eventRepository.findPublishedTexts()).thenReturn(List.of(
+                new Object[]{1L, "Джазовый концерт в парке", "Летний джаз"},
+                new Object[]{2L, "Выставка современного искусства", "Арт-неделя"},
+                new Object[]{3L, "Ночной концерт органной музыки", "Орган"}));
+        index.build();
+    }
+
+    @Test
+    void search_BeforeBuild_ShouldDeferToDatabase() {
+        EventTextIndex notBuilt = new EventTextIndex(eventRepository);
+        ReflectionTestUtils.setField(notBuilt, "enabled", true);
+        ReflectionTestUtils.setField(notBuilt, "maxCandidates", 10000);
+
+        assertTrue(notBuilt.search("концерт").isEmpty());
+    }
+
+    @Test
+    void build_ShouldKeepUpdatesCommittedWhileReadingDatabase() {
+        EventTextIndex rebuilt = new EventTextIndex(eventRepository);
+        ReflectionTestUtils.setField(rebuilt, "enabled", true);
+        ReflectionTestUtils.setField(rebuilt, "maxCandidates", 10000);
+        // Событие 2 опубликовано после того, как снимок базы уже прочитан без него
+        when(eventRepository.findPublishedTexts()).thenAnswer(invocation -> {
+            rebuilt.indexAfterCommit(Event.builder()
+                    .id(2L)
+                    .annotation("Выставка современного искусства")
+                    .description("Арт-неделя")
+                    .state(EventState.PUBLISHED)
+                    .build());
+            return List.<Object[]>of(new Object[]{1L, "Джазовый концерт в парке", "Летний джаз"});
+        });
+
+        rebuilt.build();
+
+        assertEquals(Optional.of(List.of(2L)), rebuilt.search("выставка"));
+        assertEquals(Optional.of(List.of(1L)), rebuilt.search("концерт"));
+    }
+
+    @Test
+    void search_ShouldMatchSubstringIgnoringCase() {
+        assertEquals(Optional.of(List.of(1L, 3L)), index.search("КОНЦЕРТ"));
+        assertEquals(Optional.of(List.of(2L)), index.search("арт-нед"));
+        assertEquals(Optional.of(List.of()), index.search("театр"));
+    }
+
+    @Test
+    void search_ShouldRejectCandidatesWithAllTrigramsButNoSubstring() {
+        // Все триграммы "органной концерт" есть в событии 3 ("ночной концерт органной"), но не подряд
+        assertEquals(Optional.of(List.of()), index.search("органной концерт"));
+        assertEquals(Optional.of(List.of(3L)), index.search("концерт органной"));
+    }
+
+    @Test
+    void search_WithShortQueryOrDisabledIndex_ShouldDeferToDatabase() {
+        assertTrue(index.search("дж").isEmpty());
+
+        ReflectionTestUtils.setField(index, "maxCandidates", 1);
+        assertTrue(index.search("концерт").isEmpty());
+
+        ReflectionTestUtils.setField(index, "enabled", false);
+        assertTrue(index.search("выставка").isEmpty());
+    }
+
+    @Test
+    void indexAfterCommit_ShouldAddPublishedAndRemoveUnpublishedEvents() {
+        Event published = Event.builder()
+                .id(4L)
+                .annotation("Концерт под открытым небом")
+                .description("Open air")
+                .state(EventState.PUBLISHED)
+                .build();
+        index.indexAfterCommit(published);
+        assertEquals(Optional.of(List.of(1L, 3L, 4L)), index.search("концерт"));
+
+        published.setAnnotation("Лекция об истории города");
+        index.indexAfterCommit(published);
+        assertEquals(Optional.of(List.of(1L, 3L)), index.search("концерт"));
+        assertEquals(Optional.of(List.of(4L)), index.search("истории"));
+
+        Event canceled = Event.builder()
+                .id(1L)
+                .annotation("Джазовый концерт в парке")
+                .description("Летний джаз")
+                .state(EventState.CANCELED)
+                .build();
+        index.indexAfterCommit(canceled);
+        assertEquals(Optional.of(List.of(3L)), index.search("концерт"));
+    }
+}
@@ -15,6 +15,7 @@ import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.model.StateAction;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.search.EventTextIndex;
 import ru.practicum.ewm.exception.ConflictException;
 import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.exception.ValidationException;
@@ -50,6 +51,9 @@ class EventAdminServiceTest {
     @Mock
     private LocationService locationService;
 
+    @Mock
+    private EventTextIndex eventTextIndex;
+
     @Mock
     private EwmMapper mapper;
 
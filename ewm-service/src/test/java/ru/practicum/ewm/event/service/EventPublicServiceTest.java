@@ -9,27 +9,34 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.EndpointHitDto;
-import ru.practicum.dto.ViewStats;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.comment.repository.CommentRepository;
+import ru.practicum.ewm.event.dto.EventCursor;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventSearchParams;
+import ru.practicum.ewm.event.dto.EventSearchResult;
 import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventSort;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.search.EventTextIndex;
 import ru.practicum.ewm.exception.NotFoundException;
 import ru.practicum.ewm.exception.ValidationException;
 import ru.practicum.ewm.location.model.Location;
 import ru.practicum.ewm.mapper.EwmMapper;
 import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.stats.service.StatsOutboxService;
 import ru.practicum.ewm.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,6 +58,12 @@ class EventPublicServiceTest {
     @Mock
     private StatsClient statsClient;
 
+    @Mock
+    private StatsOutboxService statsOutboxService;
+
+    @Mock
+    private EventTextIndex eventTextIndex;
+
     @Mock
     private EwmMapper mapper;
 
@@ -131,13 +144,12 @@ class EventPublicServiceTest {
 
         EventShortDto event1 = new EventShortDto();
         event1.setId(1L);
-        event1.setViews(5L);
         event1.setCommentsCount(0L);
 
         EventShortDto event2 = new EventShortDto();
         event2.setId(2L);
-        event2.setViews(10L);
         event2.setCommentsCount(0L);
+        testEvent.setViews(5L);
 
         Event testEvent2 = Event.builder()
                 .id(2L)
@@ -149,9 +161,11 @@ class EventPublicServiceTest {
                 .eventDate(LocalDateTime.now().plusDays(1))
                 .createdOn(LocalDateTime.now())
                 .state(EventState.PUBLISHED)
+                .views(10L)
                 .build();
 
-        Page<Event> eventPage = new PageImpl<>(List.of(testEvent, testEvent2));
+        // База уже отдаёт события по убыванию events.views
+        Page<Event> eventPage = new PageImpl<>(List.of(testEvent2, testEvent));
         when(eventRepository.findPublishedEvents(any(), any(), any(), any(), any(), any(Pageable.class)))
                 .thenReturn(eventPage);
         when(mapper.toEventShortDto(testEvent)).thenReturn(event1);
@@ -161,17 +175,19 @@ class EventPublicServiceTest {
         when(commentRepository.countCommentsByEventIds(anyList()))
                 .thenReturn(List.of(new Object[]{1L, 0L}, new Object[]{2L, 0L}));
 
-        ViewStats stats1 = new ViewStats("ewm-main-service", "/events/1", 5L);
-        ViewStats stats2 = new ViewStats("ewm-main-service", "/events/2", 10L);
-        when(statsClient.getStat(anyString(), anyString(), anyList(), anyBoolean()))
-                .thenReturn(List.of(stats1, stats2));
-
-        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events");
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
 
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertTrue(result.get(0).getViews() <= result.get(1).getViews());
+        // Показываются просмотры из events.views, по которым отсортирована выдача, а не живой счётчик
+        assertEquals(10L, result.get(0).getViews());
+        assertEquals(5L, result.get(1).getViews());
+        verify(statsClient, never()).getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean());
+        Sort byViews = Sort.by(Sort.Order.desc("views"), Sort.Order.asc("id"));
+        verify(eventRepository).findPublishedEvents(any(), any(), any(), any(), any(),
+                argThat(pageable -> pageable.getSort().equals(byViews)));
         verify(statsClient).hit(any(EndpointHitDto.class));
+        verify(statsOutboxService, never()).append(any());
     }
 
     @Test
@@ -184,6 +200,7 @@ class EventPublicServiceTest {
 
         assertEquals("Событие с ID 999 не найдено", exception.getMessage());
         verify(statsClient, never()).hit(any());
+        verify(statsOutboxService, never()).append(any());
     }
 
     @Test
@@ -241,13 +258,137 @@ class EventPublicServiceTest {
 
         when(mapper.toEventShortDto(eventWithLimit)).thenReturn(dto1);
         when(mapper.toEventShortDto(eventWithoutLimit)).thenReturn(dto2);
-        when(statsClient.getStat(anyString(), anyString(), anyList(), anyBoolean()))
-                .thenReturn(List.of());
+        when(statsClient.getViews(anyString(), anyString(), eq("events"), anyList(), anyBoolean()))
+                .thenReturn(Map.of());
 
-        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events");
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
 
         assertNotNull(result);
         assertEquals(2, result.size()); // Оба события доступны
         verify(statsClient).hit(any(EndpointHitDto.class));
+        verify(statsOutboxService, never()).append(any());
+    }
+
+    @Test
+    void getEvents_WithTextAndFullTextSearch_ShouldUseFullTextQuery() {
+        ReflectionTestUtils.setField(eventPublicService, "fullTextSearch", true);
+        testParams.setText("концерт");
+        testParams.setCategories(List.of(1L));
+        testParams.setSort(EventSort.EVENT_DATE.name());
+
+        when(eventRepository.searchPublishedEvents(eq("концерт"), eq(List.of(1L)), isNull(), any(), any(),
+                eq(true), eq(false), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testEvent)));
+        when(mapper.toEventShortDto(testEvent)).thenReturn(testEventShortDto);
+        when(requestRepository.countConfirmedRequestsByEventIds(anyList())).thenReturn(List.of());
+        when(commentRepository.countCommentsByEventIds(anyList())).thenReturn(List.of());
+        when(statsClient.getViews(anyString(), anyString(), eq("events"), anyList(), anyBoolean()))
+                .thenReturn(Map.of());
+
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
+
+        assertEquals(1, result.size());
+        verify(eventRepository, never()).findPublishedEvents(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getEvents_WithIndexedText_ShouldFilterByIndexedIds() {
+        testParams.setText("annotation");
+        when(eventTextIndex.search("annotation")).thenReturn(Optional.of(List.of(1L)));
+        when(eventRepository.findPublishedEventsByIds(eq(List.of(1L)), any(), any(), any(), any(),
+                eq(false), eq(false), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(testEvent)));
+        when(mapper.toEventShortDto(testEvent)).thenReturn(testEventShortDto);
+        when(requestRepository.countConfirmedRequestsByEventIds(anyList())).thenReturn(List.of());
+        when(commentRepository.countCommentsByEventIds(anyList())).thenReturn(List.of());
+        when(statsClient.getViews(anyString(), anyString(), eq("events"), anyList(), anyBoolean()))
+                .thenReturn(Map.of());
+
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
+
+        assertEquals(1, result.size());
+        verify(eventRepository, never()).findPublishedEvents(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getEvents_WithNoIndexMatches_ShouldNotQueryEvents() {
+        testParams.setText("missing");
+        when(eventTextIndex.search("missing")).thenReturn(Optional.of(List.of()));
+
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
+
+        assertTrue(result.isEmpty());
+        verify(eventRepository, never()).findPublishedEventsByIds(any(), any(), any(), any(), any(),
+                anyBoolean(), anyBoolean(), any(), any(), any());
+        verify(eventRepository, never()).findPublishedEvents(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getEvents_WhenStatsServerUnavailable_ShouldWriteHitToOutbox() {
+        testParams.setText("missing");
+        when(eventTextIndex.search("missing")).thenReturn(Optional.of(List.of()));
+        doThrow(new RuntimeException("stats-server недоступен")).when(statsClient).hit(any(EndpointHitDto.class));
+
+        List<EventShortDto> result = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getEvents();
+
+        assertTrue(result.isEmpty());
+        verify(statsOutboxService).append(argThat(hit -> "/events".equals(hit.getUri())));
+    }
+
+    @Test
+    void getEvents_WhenMoreEventsExist_ShouldReturnCursorAndContinueAfterIt() {
+        testParams.setSize(1);
+        testParams.setSort(EventSort.EVENT_DATE.name());
+        when(eventRepository.findPublishedEvents(any(), any(), any(), any(), any(), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of(testEvent), Pageable.ofSize(1), true));
+        when(mapper.toEventShortDto(testEvent)).thenReturn(testEventShortDto);
+        when(requestRepository.countConfirmedRequestsByEventIds(anyList())).thenReturn(List.of());
+        when(commentRepository.countCommentsByEventIds(anyList())).thenReturn(List.of());
+        when(statsClient.getViews(anyString(), anyString(), eq("events"), anyList(), anyBoolean()))
+                .thenReturn(Map.of());
+
+        String cursor = eventPublicService.getEvents(testParams, "127.0.0.1", "/events").getNextCursor();
+
+        assertNotNull(cursor);
+        testParams.setCursor(cursor);
+        when(eventRepository.findPublishedEventsAfterDate(any(), any(), any(), any(), any(),
+                eq(testEvent.getEventDate()), eq(1L), any(Pageable.class)))
+                .thenReturn(new SliceImpl<>(List.of()));
+
+        EventSearchResult next = eventPublicService.getEvents(testParams, "127.0.0.1", "/events");
+
+        assertTrue(next.getEvents().isEmpty());
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void getEvents_WithCursorForOtherSort_ShouldThrowValidationException() {
+        testParams.setCursor(EventCursor.after(testEvent, true).encode());
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> eventPublicService.getEvents(testParams, "127.0.0.1", "/events"));
+
+        assertEquals("Курсор выдан для другой сортировки", exception.getMessage());
+    }
+
+    @Test
+    void getEvents_WithMalformedCursor_ShouldThrowValidationException() {
+        testParams.setCursor("не курсор");
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> eventPublicService.getEvents(testParams, "127.0.0.1", "/events"));
+
+        assertEquals("Некорректный курсор продолжения выдачи", exception.getMessage());
+    }
+
+    @Test
+    void getEvents_WithViewsSortAndCursor_ShouldThrowValidationException() {
+        testParams.setSort(EventSort.VIEWS.name());
+        testParams.setCursor(EventCursor.after(testEvent, false).encode());
+
+        ValidationException exception = assertThrows(ValidationException.class,
+                () -> eventPublicService.getEvents(testParams, "127.0.0.1", "/events"));
+
+        assertEquals("Курсор выдан для другой сортировки", exception.getMessage());
     }
 }
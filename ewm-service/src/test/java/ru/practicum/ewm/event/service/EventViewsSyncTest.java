@@ -0,0 +1,107 @@
+package ru.practicum.ewm.event.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventViewsRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EventViewsSyncTest {
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private EventViewsRepository eventViewsRepository;
+
+    @Mock
+    private StatsClient transportClient;
+
+    @InjectMocks
+    private EventViewsSync eventViewsSync;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(eventViewsSync, "overlapMs", 120000L);
+        ReflectionTestUtils.setField(eventViewsSync, "batchSize", 2);
+        ReflectionTestUtils.setField(eventViewsSync, "fullRecountIntervalMs", 3600000L);
+    }
+
+    @Test
+    void sync_FirstRun_ShouldRecountAllPublishedEventsInBatches() {
+        when(eventRepository.findPublishedIds()).thenReturn(List.of(1L, 2L, 3L));
+        when(transportClient.getViews(anyString(), anyString(), eq("events"), eq(List.of(1L, 2L)), eq(true)))
+                .thenReturn(Map.of(1L, 5L, 2L, 7L));
+        when(transportClient.getViews(anyString(), anyString(), eq("events"), eq(List.of(3L)), eq(true)))
+                .thenReturn(Map.of(3L, 1L));
+
+        eventViewsSync.sync();
+
+        verify(eventViewsRepository).updateViews(Map.of(1L, 5L, 2L, 7L));
+        verify(eventViewsRepository).updateViews(Map.of(3L, 1L));
+        verify(transportClient, never()).getStat(any(), any(), any(), any());
+    }
+
+    @Test
+    void sync_NextRun_ShouldRecountOnlyEventsHitSinceLastSync() {
+        when(eventRepository.findPublishedIds()).thenReturn(List.of());
+        eventViewsSync.sync();
+
+        when(transportClient.getStat(anyString(), anyString(), isNull(), eq(false))).thenReturn(List.of(
+                new ViewStats("ewm-main-service", "/events/4", 3L),
+                new ViewStats("ewm-main-service", "/events", 10L),
+                new ViewStats("ewm-main-service", "/events/2", 1L)));
+        when(transportClient.getViews(anyString(), anyString(), eq("events"), eq(List.of(2L, 4L)), eq(true)))
+                .thenReturn(Map.of(2L, 8L, 4L, 3L));
+
+        eventViewsSync.sync();
+
+        verify(eventRepository, times(1)).findPublishedIds();
+        verify(eventViewsRepository).updateViews(Map.of(2L, 8L, 4L, 3L));
+    }
+
+    @Test
+    void sync_AfterFullRecountInterval_ShouldRecountAllPublishedEventsAgain() {
+        when(eventRepository.findPublishedIds()).thenReturn(List.of(1L));
+        when(transportClient.getViews(anyString(), anyString(), eq("events"), eq(List.of(1L)), eq(true)))
+                .thenReturn(Map.of(1L, 2L))
+                .thenReturn(Map.of(1L, 3L));
+        eventViewsSync.sync();
+
+        // Хит события 1 пришёл позже окна overlap: дельта его не видит, полный пересчёт учитывает
+        ReflectionTestUtils.setField(eventViewsSync, "lastFullRecountAt", LocalDateTime.now().minusHours(2));
+        eventViewsSync.sync();
+
+        verify(eventRepository, times(2)).findPublishedIds();
+        verify(transportClient, never()).getStat(any(), any(), any(), any());
+        verify(eventViewsRepository).updateViews(Map.of(1L, 3L));
+    }
+
+    @Test
+    void sync_WhenStatsServerFails_ShouldRetryFullRecountNextTime() {
+        when(eventRepository.findPublishedIds()).thenReturn(List.of(1L));
+        when(transportClient.getViews(anyString(), anyString(), eq("events"), anyList(), eq(true)))
+                .thenThrow(new IllegalStateException("stats-server недоступен"))
+                .thenReturn(Map.of(1L, 2L));
+
+        eventViewsSync.sync();
+        eventViewsSync.sync();
+
+        verify(eventRepository, times(2)).findPublishedIds();
+        verify(eventViewsRepository).updateViews(Map.of(1L, 2L));
+    }
+}
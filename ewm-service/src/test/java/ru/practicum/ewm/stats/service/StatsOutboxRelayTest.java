@@ -0,0 +1,93 @@
+package ru.practicum.ewm.stats.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.client.AsyncStatsClient;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.model.StatsOutboxHit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsOutboxRelayTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+    @Mock
+    private StatsOutboxService outboxService;
+
+    @Mock
+    private AsyncStatsClient relayClient;
+
+    private StatsOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new StatsOutboxRelay(outboxService, relayClient);
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxBatchesPerRun", 10);
+        when(outboxService.getLease()).thenReturn(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void relay_ShouldCompleteRowsByDeliveryOutcome() {
+        StatsOutboxHit delivered = hit(1L, "/events/1");
+        StatsOutboxHit rejected = hit(2L, "/events/2");
+        StatsOutboxHit lost = hit(3L, "/events/3");
+        when(outboxService.lease(2)).thenReturn(List.of(delivered, rejected), List.of(lost));
+        when(relayClient.submit(anyList())).thenAnswer(invocation -> {
+            List<EndpointHitDto> hits = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(hits.size() == 2
+                    ? new AsyncStatsClient.Delivery(List.of(hits.get(1)), List.of(), null)
+                    : new AsyncStatsClient.Delivery(List.of(), hits, "stats-server недоступен"));
+        });
+
+        relay.relay();
+
+        verify(outboxService).complete(List.of(delivered), List.of(rejected), List.of(), null);
+        verify(outboxService).complete(List.of(), List.of(), List.of(lost), "stats-server недоступен");
+        verify(outboxService, times(2)).lease(2);
+    }
+
+    @Test
+    void relay_WithoutConfirmationWithinLease_ShouldLeaveRowsLeased() {
+        when(outboxService.getLease()).thenReturn(Duration.ofMillis(50));
+        when(outboxService.lease(2)).thenReturn(List.of(hit(1L, "/events/1")));
+        when(relayClient.submit(anyList())).thenReturn(new CompletableFuture<>());
+
+        relay.relay();
+
+        verify(outboxService, never()).complete(any(), any(), any(), any());
+    }
+
+    @Test
+    void relay_WhenOutboxEmpty_ShouldNotSubmit() {
+        when(outboxService.lease(2)).thenReturn(List.of());
+
+        relay.relay();
+
+        verifyNoInteractions(relayClient);
+    }
+
+    private StatsOutboxHit hit(Long id, String uri) {
+        return StatsOutboxHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(NOW)
+                .duration(5L)
+                .build();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.practicum.ewm.stats.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.ewm.stats.model.StatsOutboxHit;
+import ru.practicum.ewm.stats.repository.StatsOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsOutboxServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+    @Mock
+    private StatsOutboxRepository outboxRepository;
+
+    private StatsOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new StatsOutboxService(outboxRepository, new SimpleMeterRegistry(), 3, 60000, 1000, 600000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void append_ShouldInsertHitIntoOutbox() {
+        outboxService.append(new EndpointHitDto("ewm-main-service", "/events/1", "10.0.0.1", NOW, 7L));
+
+        ArgumentCaptor<List<StatsOutboxHit>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).insertAll(captor.capture());
+        StatsOutboxHit saved = captor.getValue().get(0);
+        assertEquals("/events/1", saved.getUri());
+        assertEquals("10.0.0.1", saved.getIp());
+        assertEquals(NOW, saved.getTimestamp());
+        assertEquals(7L, saved.getDuration());
+    }
+
+    @Test
+    void lease_ShouldPostponeNextAttemptOfLockedRows() {
+        List<StatsOutboxHit> batch = List.of(hit(1L, "/events/1"), hit(2L, "/events/2"));
+        when(outboxRepository.lockBatch(any(), eq(100))).thenReturn(batch);
+
+        assertEquals(batch, outboxService.lease(100));
+
+        verify(outboxRepository).lease(eq(batch), argThat(until ->
+                until.isAfter(LocalDateTime.now().plusSeconds(50))));
+    }
+
+    @Test
+    void complete_ShouldDeleteDeliveredAndMarkRejectedDead() {
+        StatsOutboxHit good = hit(1L, "/events/1");
+        StatsOutboxHit bad = hit(2L, "/events/2");
+
+        outboxService.complete(List.of(good), List.of(bad), List.of(), null);
+
+        verify(outboxRepository).deleteAll(List.of(good));
+        verify(outboxRepository).markDead(eq(List.of(bad)), any(LocalDateTime.class));
+        verify(outboxRepository, never()).scheduleRetry(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void complete_WithLostHits_ShouldScheduleRetryWithBackoff() {
+        StatsOutboxHit hit = hit(1L, "/events/1");
+        hit.setAttempts(1);
+
+        outboxService.complete(List.of(), List.of(), List.of(hit), "stats-server недоступен");
+
+        ArgumentCaptor<Function<StatsOutboxHit, LocalDateTime>> nextAttempt = ArgumentCaptor.forClass(Function.class);
+        verify(outboxRepository).scheduleRetry(eq(List.of(hit)), nextAttempt.capture());
+        LocalDateTime next = nextAttempt.getValue().apply(hit);
+        assertTrue(Duration.between(LocalDateTime.now(), next).toMillis() > 1000, "вторая попытка ждёт 2 секунды");
+        verify(outboxRepository, never()).markDead(eq(List.of(hit)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void complete_WhenAttemptsExhausted_ShouldMarkLostRowsDead() {
+        StatsOutboxHit hit = hit(1L, "/events/1");
+        hit.setAttempts(2);
+
+        outboxService.complete(List.of(), List.of(), List.of(hit), "stats-server недоступен");
+
+        verify(outboxRepository).scheduleRetry(eq(List.of()), any());
+        verify(outboxRepository).markDead(eq(List.of(hit)), any(LocalDateTime.class));
+    }
+
+    @Test
+    void purgeDead_ShouldDeleteRowsOlderThanRetention() {
+        when(outboxRepository.deleteDeadBefore(any())).thenReturn(4);
+
+        assertEquals(4, outboxService.purgeDead(Duration.ofHours(168)));
+
+        verify(outboxRepository).deleteDeadBefore(argThat(threshold ->
+                threshold.isBefore(LocalDateTime.now().minusHours(167))));
+    }
+
+    @Test
+    void constructor_ShouldRejectNonPositiveMaxAttempts() {
+        assertThrows(IllegalArgumentException.class, () -> new StatsOutboxService(outboxRepository,
+                new SimpleMeterRegistry(), 0, 60000, 1000, 600000));
+    }
+
+    private StatsOutboxHit hit(Long id, String uri) {
+        return StatsOutboxHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(NOW)
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
+
+// Выборка 1 из N под нагрузкой: пока очередь заполнена меньше чем на startFill, отправляются все хиты,
+// дальше N растёт экспоненциально до maxInterval при полной очереди. Оставленный хит получает вес N
+// в поле count, так что сумма весов остаётся несмещённой оценкой числа хитов
+public class AdaptiveSampler {
+
+    private final double startFill;
+    private final int maxInterval;
+    private final IntUnaryOperator random;
+
+    public AdaptiveSampler(double startFill, int maxInterval) {
+        this(startFill, maxInterval, bound -> ThreadLocalRandom.current().nextInt(bound));
+    }
+
+    AdaptiveSampler(double startFill, int maxInterval, IntUnaryOperator random) {
+        if (startFill < 0 || startFill >= 1) {
+            throw new IllegalArgumentException("порог заполнения очереди должен быть в диапазоне [0, 1)");
+        }
+        if (maxInterval < 1) {
+            throw new IllegalArgumentException("максимальный интервал выборки должен быть положительным");
+        }
+        this.startFill = startFill;
+        this.maxInterval = maxInterval;
+        this.random = random;
+    }
+
+    public int intervalFor(double fill) {
+        if (fill <= startFill) {
+            return 1;
+        }
+        double pressure = Math.min(1.0, (fill - startFill) / (1 - startFill));
+        return (int) Math.min(maxInterval, Math.round(Math.pow(maxInterval, pressure)));
+    }
+
+    // Возвращает вес оставленного хита или 0, если хит не попал в выборку
+    int sample(double fill) {
+        int interval = intervalFor(fill);
+        if (interval == 1) {
+            return 1;
+        }
+        return random.applyAsInt(interval) == 0 ? interval : 0;
+    }
+}
@@ -0,0 +1,457 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.client.HitAggregator.Collapsed;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Декоратор над StatsClient: hit() кладёт хит в ограниченную очередь и сразу возвращает управление,
+// фоновый поток отправляет накопленное пачками через POST /hits. Запросы статистики идут напрямую.
+// При ненулевом окне агрегации поток копит хиты в течение окна и сворачивает повторы перед отправкой.
+// Пачка, которую не удалось отправить, пишется в файл сброса и досылается позже с ограничением скорости.
+// С AdaptiveSampler при росте очереди отправляется только часть хитов с соответствующим весом.
+// Пачка, отклонённая сервером (4xx), переотправляется по одному хиту: отклонённые хиты отбрасываются
+// со счётчиком stats.client.hits.rejected и не попадают в файл сброса.
+// submit() работает так же, но возвращает подтверждение: по нему вызывающий узнаёт, какие хиты
+// доставлены, а какие отклонены или потеряны, и только тогда удаляет их у себя
+@Slf4j
+public class AsyncStatsClient implements StatsClient, AutoCloseable {
+
+    private final StatsClient delegate;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long aggregationWindowNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final HitSpillFile spillFile;
+    private final SpillReplaySettings replaySettings;
+    private final AdaptiveSampler sampler;
+    private final int capacity;
+    private long nextReplayAt;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter droppedCounter;
+    private final Counter spilledCounter;
+    private final Counter collapsedCounter;
+    private final Counter sampledOutCounter;
+    private final Counter rejectedCounter;
+
+    public AsyncStatsClient(StatsClient delegate, int capacity, int batchSize, Duration flushInterval,
+                            OverflowPolicy overflowPolicy, HitSpillFile spillFile, MeterRegistry meterRegistry) {
+        this(delegate, capacity, batchSize, flushInterval, Duration.ZERO, overflowPolicy, spillFile, meterRegistry);
+    }
+
+    public AsyncStatsClient(StatsClient delegate, int capacity, int batchSize, Duration flushInterval,
+                            Duration aggregationWindow, OverflowPolicy overflowPolicy, HitSpillFile spillFile,
+                            MeterRegistry meterRegistry) {
+        this(delegate, capacity, batchSize, flushInterval, aggregationWindow, overflowPolicy, spillFile,
+                SpillReplaySettings.builder().build(), meterRegistry);
+    }
+
+    public AsyncStatsClient(StatsClient delegate, int capacity, int batchSize, Duration flushInterval,
+                            Duration aggregationWindow, OverflowPolicy overflowPolicy, HitSpillFile spillFile,
+                            SpillReplaySettings replaySettings, MeterRegistry meterRegistry) {
+        this(delegate, capacity, batchSize, flushInterval, aggregationWindow, overflowPolicy, spillFile,
+                replaySettings, null, meterRegistry);
+    }
+
+    public AsyncStatsClient(StatsClient delegate, int capacity, int batchSize, Duration flushInterval,
+                            Duration aggregationWindow, OverflowPolicy overflowPolicy, HitSpillFile spillFile,
+                            SpillReplaySettings replaySettings, AdaptiveSampler sampler,
+                            MeterRegistry meterRegistry) {
+        if (overflowPolicy == OverflowPolicy.SPILL && spillFile == null) {
+            throw new IllegalArgumentException("для политики SPILL нужен файл сброса");
+        }
+        if (replaySettings.getMaxHitsPerSecond() < 0) {
+            throw new IllegalArgumentException("Скорость досылки не может быть отрицательной");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.sampler = sampler;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushInterval.toMillis();
+        this.aggregationWindowNanos = aggregationWindow.toNanos();
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = spillFile;
+        this.replaySettings = replaySettings;
+        this.nextReplayAt = System.nanoTime();
+
+        Gauge.builder("stats.client.queue.size", queue, BlockingQueue::size)
+                .description("Хиты в очереди асинхронного клиента")
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("stats.client.hits.sent");
+        this.failedCounter = meterRegistry.counter("stats.client.hits.failed");
+        this.droppedCounter = meterRegistry.counter("stats.client.hits.dropped");
+        this.spilledCounter = meterRegistry.counter("stats.client.hits.spilled");
+        this.collapsedCounter = meterRegistry.counter("stats.client.hits.collapsed");
+        this.sampledOutCounter = meterRegistry.counter("stats.client.hits.sampled-out");
+        this.rejectedCounter = meterRegistry.counter("stats.client.hits.rejected");
+        if (sampler != null) {
+            Gauge.builder("stats.client.sampling.rate", this,
+                            client -> 1.0 / client.sampler.intervalFor(client.queueFill()))
+                    .description("Доля отправляемых хитов при текущем заполнении очереди")
+                    .register(meterRegistry);
+        }
+        if (spillFile != null) {
+            Gauge.builder("stats.client.spill.bytes", spillFile, HitSpillFile::pendingBytes)
+                    .description("Объём хитов в файле сброса, ожидающих досылки")
+                    .register(meterRegistry);
+        }
+
+        this.flusher = new Thread(this::runFlusher, "stats-client-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    @Override
+    public void hit(EndpointHitDto endpointHitDto) {
+        offer(endpointHitDto, null);
+    }
+
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        endpointHitDtos.forEach(this::hit);
+    }
+
+    // Подтверждение завершается, когда про каждый хит известно, доставлен ли он: хит, записанный в файл
+    // сброса или исключённый выборкой, тоже считается доставленным
+    public CompletableFuture<Delivery> submit(List<EndpointHitDto> endpointHitDtos) {
+        Ack ack = new Ack(endpointHitDtos.size());
+        endpointHitDtos.forEach(hit -> offer(hit, ack));
+        return ack.future;
+    }
+
+    @Override
+    public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
+        return delegate.getStat(start, end, urls, unique);
+    }
+
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        return delegate.getStatBatch(queries);
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        return delegate.getViews(start, end, type, ids, unique);
+    }
+
+    // Останавливает поток отправки, дождавшись сброса очереди
+    @Override
+    public void close() {
+        running = false;
+        try {
+            flusher.join(flushIntervalMillis + 10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            List<Pending> unsent = new ArrayList<>();
+            queue.drainTo(unsent);
+            log.warn("при остановке клиента статистики не отправлено {} хитов", unsent.size());
+            unsent.forEach(pending -> pending.lost("клиент статистики остановлен"));
+        }
+    }
+
+    int queueSize() {
+        return queue.size();
+    }
+
+    private double queueFill() {
+        return (double) queue.size() / capacity;
+    }
+
+    private static EndpointHitDto weighted(EndpointHitDto hit, int weight) {
+        return new EndpointHitDto(hit.getApp(), hit.getUri(), hit.getIp(), hit.getTimestamp(), hit.getDuration(),
+                HitAggregator.countOf(hit) * weight);
+    }
+
+    private void offer(EndpointHitDto endpointHitDto, Ack ack) {
+        Pending pending = new Pending(endpointHitDto, endpointHitDto, ack);
+        if (!running) {
+            drop(pending, "клиент статистики остановлен");
+            return;
+        }
+        if (sampler != null) {
+            int weight = sampler.sample(queueFill());
+            if (weight == 0) {
+                sampledOutCounter.increment(HitAggregator.countOf(endpointHitDto));
+                pending.accepted();
+                return;
+            }
+            if (weight > 1) {
+                pending = new Pending(weighted(endpointHitDto, weight), endpointHitDto, ack);
+            }
+        }
+        if (queue.offer(pending)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP -> drop(pending, "очередь хитов переполнена");
+            case BLOCK -> {
+                try {
+                    queue.put(pending);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    drop(pending, "ожидание места в очереди хитов прервано");
+                }
+            }
+            case SPILL -> spill(List.of(pending.hit()), List.of(pending), "очередь хитов переполнена");
+        }
+    }
+
+    private void drop(Pending pending, String reason) {
+        droppedCounter.increment(HitAggregator.countOf(pending.hit()));
+        pending.lost(reason);
+    }
+
+    private void runFlusher() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    if (aggregationWindowNanos > 0) {
+                        collectWindow(batch);
+                    }
+                    send(batch);
+                }
+                replaySpill();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("ошибка в потоке отправки статистики", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Дожидается конца окна агрегации или заполнения пачки
+    private void collectWindow(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + aggregationWindowNanos;
+        while (batch.size() < batchSize && running) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+    }
+
+    private void send(List<Pending> batch) {
+        List<Collapsed<Pending>> payload = aggregationWindowNanos > 0
+                ? HitAggregator.collapse(batch, Pending::hit)
+                : batch.stream().map(pending -> new Collapsed<>(pending.hit(), List.of(pending))).toList();
+        try {
+            delegate.hits(hitsOf(payload));
+            sentCounter.increment(totalCount(hitsOf(payload)));
+            collapsedCounter.increment(batch.size() - payload.size());
+            batch.forEach(Pending::accepted);
+        } catch (RuntimeException e) {
+            List<Collapsed<Pending>> undelivered = StatsErrors.isRejected(e) ? deliverIndividually(payload) : payload;
+            if (undelivered.isEmpty()) {
+                return;
+            }
+            List<EndpointHitDto> undeliveredHits = hitsOf(undelivered);
+            List<Pending> sources = undelivered.stream().flatMap(group -> group.sources().stream()).toList();
+            failedCounter.increment(totalCount(undeliveredHits));
+            deferReplay();
+            if (spillFile != null && replaySettings.isSpillOnFailure()) {
+                log.warn("не удалось отправить {} хитов, они записаны в файл для досылки: {}",
+                        undelivered.size(), e.getMessage());
+                spill(undeliveredHits, sources, e.getMessage());
+                return;
+            }
+            log.warn("не удалось отправить {} хитов: {}", undelivered.size(), e.getMessage());
+            sources.forEach(pending -> pending.lost(e.getMessage()));
+        }
+    }
+
+    // Возвращает хиты, не отправленные из-за временной ошибки; отклонённые сервером отбрасываются
+    private List<Collapsed<Pending>> deliverIndividually(List<Collapsed<Pending>> hits) {
+        for (int i = 0; i < hits.size(); i++) {
+            Collapsed<Pending> hit = hits.get(i);
+            try {
+                delegate.hits(List.of(hit.hit()));
+                sentCounter.increment(HitAggregator.countOf(hit.hit()));
+                hit.sources().forEach(Pending::accepted);
+            } catch (RuntimeException e) {
+                if (!StatsErrors.isRejected(e)) {
+                    return hits.subList(i, hits.size());
+                }
+                rejectedCounter.increment(HitAggregator.countOf(hit.hit()));
+                log.warn("stats-server отклонил хит {} {}, хит отброшен: {}", hit.hit().getUri(),
+                        hit.hit().getTimestamp(), e.getMessage());
+                hit.sources().forEach(Pending::rejected);
+            }
+        }
+        return List.of();
+    }
+
+    // Досылка из файла идёт между отправками живых хитов. После пачки с суммарным count n следующая
+    // разрешается не раньше чем через n / maxHitsPerSecond секунд, после ошибки - через retryDelay.
+    // maxHitsPerSecond = 0 снимает ограничение
+    private void replaySpill() {
+        if (spillFile == null || System.nanoTime() - nextReplayAt < 0) {
+            return;
+        }
+        try {
+            if (spillFile.isEmpty()) {
+                return;
+            }
+            int maxHitsPerSecond = replaySettings.getMaxHitsPerSecond();
+            int maxRecords = maxHitsPerSecond == 0 ? batchSize : Math.min(batchSize, maxHitsPerSecond);
+            HitSpillFile.Batch batch = spillFile.read(maxRecords);
+            List<EndpointHitDto> undelivered = batch.hits().isEmpty() ? List.of() : replay(batch.hits());
+            spillFile.commit(batch.prefix(batch.hits().size() - undelivered.size()));
+            if (!undelivered.isEmpty()) {
+                deferReplay();
+                log.warn("досылка из файла прервана временной ошибкой, в файле осталось {} хитов пачки",
+                        undelivered.size());
+                return;
+            }
+            if (maxHitsPerSecond > 0) {
+                nextReplayAt = System.nanoTime()
+                        + TimeUnit.SECONDS.toNanos(totalCount(batch.hits())) / maxHitsPerSecond;
+            }
+        } catch (IOException | RuntimeException e) {
+            deferReplay();
+            log.warn("не удалось дослать хиты из файла: {}", e.getMessage());
+        }
+    }
+
+    // Возвращает хвост пачки, не досланный из-за временной ошибки. Отклонённая пачка разбирается
+    // по одному хиту, иначе она досылалась бы бесконечно; доставленное начало подтверждается в файле
+    // и при следующей досылке не повторяется
+    private List<EndpointHitDto> replay(List<EndpointHitDto> hits) {
+        try {
+            delegate.hits(hits);
+            sentCounter.increment(totalCount(hits));
+            return List.of();
+        } catch (RuntimeException e) {
+            if (!StatsErrors.isRejected(e)) {
+                throw e;
+            }
+            return hitsOf(deliverIndividually(hits.stream()
+                    .map(hit -> new Collapsed<Pending>(hit, List.of()))
+                    .toList()));
+        }
+    }
+
+    private void deferReplay() {
+        nextReplayAt = System.nanoTime() + replaySettings.getRetryDelay().toNanos();
+    }
+
+    // sources - хиты очереди, из которых собраны hits: после записи в файл их досылает уже этот клиент
+    private void spill(List<EndpointHitDto> hits, List<Pending> sources, String reason) {
+        long count = totalCount(hits);
+        try {
+            if (spillFile.append(hits)) {
+                spilledCounter.increment(count);
+                sources.forEach(Pending::accepted);
+                return;
+            }
+            log.warn("файл сброса хитов заполнен, хиты отброшены");
+        } catch (IOException e) {
+            log.warn("не удалось записать хиты в файл: {}", e.getMessage());
+        }
+        droppedCounter.increment(count);
+        sources.forEach(pending -> pending.lost(reason));
+    }
+
+    private static List<EndpointHitDto> hitsOf(List<Collapsed<Pending>> payload) {
+        return payload.stream().map(Collapsed::hit).toList();
+    }
+
+    private static long totalCount(List<EndpointHitDto> hits) {
+        long count = 0;
+        for (EndpointHitDto hit : hits) {
+            count += HitAggregator.countOf(hit);
+        }
+        return count;
+    }
+
+    // Итог submit: отклонённые сервером хиты и хиты, потерянные из-за сбоя или переполнения очереди,
+    // в виде тех же объектов, что были переданы; остальные доставлены. error - причина последней потери
+    public record Delivery(List<EndpointHitDto> rejected, List<EndpointHitDto> lost, String error) {
+    }
+
+    // hit - то, что уходит на сервер (с весом выборки), submitted - переданный вызывающим объект
+    private record Pending(EndpointHitDto hit, EndpointHitDto submitted, Ack ack) {
+
+        void accepted() {
+            if (ack != null) {
+                ack.settle(null, null, null);
+            }
+        }
+
+        void rejected() {
+            if (ack != null) {
+                ack.settle(submitted, null, null);
+            }
+        }
+
+        void lost(String reason) {
+            if (ack != null) {
+                ack.settle(null, submitted, reason);
+            }
+        }
+    }
+
+    private static final class Ack {
+
+        private final CompletableFuture<Delivery> future = new CompletableFuture<>();
+        private final List<EndpointHitDto> rejected = new ArrayList<>();
+        private final List<EndpointHitDto> lost = new ArrayList<>();
+        private String error;
+        private int remaining;
+
+        Ack(int size) {
+            this.remaining = size;
+            if (size == 0) {
+                future.complete(new Delivery(List.of(), List.of(), null));
+            }
+        }
+
+        synchronized void settle(EndpointHitDto rejectedHit, EndpointHitDto lostHit, String reason) {
+            if (rejectedHit != null) {
+                rejected.add(rejectedHit);
+            }
+            if (lostHit != null) {
+                lost.add(lostHit);
+                error = reason;
+            }
+            if (--remaining == 0) {
+                future.complete(new Delivery(List.copyOf(rejected), List.copyOf(lost), error));
+            }
+        }
+    }
+}
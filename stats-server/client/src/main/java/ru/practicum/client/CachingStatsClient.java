@@ -0,0 +1,284 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.EntityTemplates.EntityRef;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Кэш счётчиков просмотров поверх StatsClient. Ключ - начало диапазона, конец диапазона, округлённый вниз
+// до шага ttl, unique и uri (или тип и id сущности): запросы "на сейчас" в пределах шага делят запись,
+// а запрос с другим концом окна её не получит. Значение моложе ttl отдаётся как есть, до maxStale -
+// отдаётся сразу и обновляется в фоне, старше или отсутствующее - догружается одним пакетным запросом
+// вместе с остальными промахами. Записей не больше maxEntries, вытесняются давно не читанные.
+// Ответы, помеченные DegradedResults, возвращаются вызывающему, но не кэшируются. Хит, отправленный
+// через этот клиент, сбрасывает записи своего uri и сущности, распознанной по entityTemplates: записи,
+// загруженные до хита, считаются промахом, и следующий запрос уже видит этот просмотр
+@Slf4j
+public class CachingStatsClient implements StatsClient, AutoCloseable {
+
+    private final StatsClient delegate;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final LongSupplier nanoClock;
+    private final Executor refreshExecutor;
+    private final EntityTemplates entityTemplates;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long endStepSeconds;
+    private final Map<UriKey, Entry<List<ViewStats>>> statsCache;
+    private final Map<EntityKey, Entry<Long>> viewsCache;
+    // uri или EntityRef -> время последнего отправленного хита
+    private final Map<Object, Long> hitAt;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Counter hitCounter;
+    private final Counter staleCounter;
+    private final Counter missCounter;
+
+    public CachingStatsClient(StatsClient delegate, Duration ttl, Duration maxStale, int maxEntries,
+                              EntityTemplates entityTemplates, MeterRegistry meterRegistry) {
+        this(delegate, ttl, maxStale, maxEntries, entityTemplates, meterRegistry, System::nanoTime,
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    CachingStatsClient(StatsClient delegate, Duration ttl, Duration maxStale, int maxEntries,
+                       EntityTemplates entityTemplates, MeterRegistry meterRegistry, LongSupplier nanoClock,
+                       Executor refreshExecutor) {
+        this.delegate = delegate;
+        this.entityTemplates = entityTemplates;
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+        this.nanoClock = nanoClock;
+        this.refreshExecutor = refreshExecutor;
+        this.endStepSeconds = Math.max(1, ttl.toSeconds());
+        this.statsCache = lruCache(maxEntries);
+        this.viewsCache = lruCache(maxEntries);
+        this.hitAt = lruCache(maxEntries);
+        this.hitCounter = meterRegistry.counter("stats.client.cache.requests", "result", "hit");
+        this.staleCounter = meterRegistry.counter("stats.client.cache.requests", "result", "stale");
+        this.missCounter = meterRegistry.counter("stats.client.cache.requests", "result", "miss");
+    }
+
+    @Override
+    public void hit(EndpointHitDto endpointHitDto) {
+        delegate.hit(endpointHitDto);
+        invalidate(List.of(endpointHitDto));
+    }
+
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        delegate.hits(endpointHitDtos);
+        invalidate(endpointHitDtos);
+    }
+
+    // Запрос без списка uri возвращает произвольный набор строк и не кэшируется
+    @Override
+    public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
+        if (urls == null || urls.isEmpty()) {
+            return delegate.getStat(start, end, urls, unique);
+        }
+        boolean uniqueFlag = Boolean.TRUE.equals(unique);
+        String endStep = endStep(end);
+        Map<UriKey, List<ViewStats>> found = lookup(statsCache, urls.stream()
+                        .map(uri -> new UriKey(start, endStep, uniqueFlag, uri))
+                        .toList(),
+                UriKey::uri,
+                missing -> loadStats(start, end, endStep, uniqueFlag, missing));
+
+        List<ViewStats> result = new ArrayList<>();
+        found.values().forEach(result::addAll);
+        result.sort((a, b) -> Long.compare(b.getHits(), a.getHits()));
+        return result;
+    }
+
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        return delegate.getStatBatch(queries);
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        if (ids == null || ids.isEmpty()) {
+            return delegate.getViews(start, end, type, ids, unique);
+        }
+        boolean uniqueFlag = Boolean.TRUE.equals(unique);
+        String endStep = endStep(end);
+        Map<EntityKey, Long> found = lookup(viewsCache, ids.stream()
+                        .map(id -> new EntityKey(start, endStep, uniqueFlag, type, id))
+                        .toList(),
+                key -> new EntityRef(key.type(), key.id()),
+                missing -> loadViews(start, end, type, uniqueFlag, missing));
+
+        Map<Long, Long> result = new HashMap<>(found.size() * 2);
+        found.forEach((key, views) -> {
+            if (views > 0) {
+                result.put(key.id(), views);
+            }
+        });
+        return result;
+    }
+
+    // Закрывает и обёрнутый клиент, чтобы Spring, видя только внешний декоратор, остановил всю цепочку
+    @Override
+    public void close() throws Exception {
+        if (refreshExecutor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    // Время хита сравнивается с началом загрузки записи: хит, пришедший во время загрузки, тоже её сбрасывает
+    private void invalidate(List<EndpointHitDto> hits) {
+        long now = nanoClock.getAsLong();
+        for (EndpointHitDto hit : hits) {
+            if (hit.getUri() == null) {
+                continue;
+            }
+            hitAt.put(hit.getUri(), now);
+            entityTemplates.resolve(hit.getUri()).ifPresent(entity -> hitAt.put(entity, now));
+        }
+    }
+
+    private <K, V> Map<K, V> lookup(Map<K, Entry<V>> cache, List<K> keys, Function<K, Object> source,
+                                    Function<List<K>, Loaded<K, V>> loader) {
+        long now = nanoClock.getAsLong();
+        Map<K, V> found = new HashMap<>(keys.size() * 2);
+        Set<K> missing = new LinkedHashSet<>();
+        List<K> stale = new ArrayList<>();
+
+        for (K key : keys) {
+            Entry<V> entry = cache.get(key);
+            Long lastHit = entry == null ? null : hitAt.get(source.apply(key));
+            long age = entry == null || lastHit != null && entry.loadedAt() <= lastHit
+                    ? Long.MAX_VALUE
+                    : now - entry.loadedAt();
+            if (age < ttlNanos) {
+                hitCounter.increment();
+                found.put(key, entry.value());
+            } else if (age < maxStaleNanos) {
+                staleCounter.increment();
+                found.put(key, entry.value());
+                stale.add(key);
+            } else {
+                missCounter.increment();
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Loaded<K, V> loaded = loader.apply(new ArrayList<>(missing));
+            put(cache, loaded, now);
+            found.putAll(loaded.values());
+        }
+        if (!stale.isEmpty()) {
+            refreshInBackground(cache, stale, loader);
+        }
+        return found;
+    }
+
+    // Ключи, уже обновляемые другим запросом, повторно не отправляются
+    private <K, V> void refreshInBackground(Map<K, Entry<V>> cache, List<K> stale,
+                                            Function<List<K>, Loaded<K, V>> loader) {
+        List<K> toRefresh = stale.stream().filter(refreshing::add).toList();
+        if (toRefresh.isEmpty()) {
+            return;
+        }
+        refreshExecutor.execute(() -> {
+            try {
+                long startedAt = nanoClock.getAsLong();
+                put(cache, loader.apply(toRefresh), startedAt);
+            } catch (RuntimeException e) {
+                log.warn("не удалось обновить кэш просмотров: {}", e.getMessage());
+            } finally {
+                toRefresh.forEach(refreshing::remove);
+            }
+        });
+    }
+
+    private <K, V> void put(Map<K, Entry<V>> cache, Loaded<K, V> loaded, long loadedAt) {
+        if (loaded.degraded()) {
+            return;
+        }
+        loaded.values().forEach((key, value) -> cache.put(key, new Entry<>(value, loadedAt)));
+    }
+
+    private static <K, V> Map<K, V> lruCache(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    // Непарсируемый конец диапазона используется как есть
+    private String endStep(String end) {
+        try {
+            long epochSecond = LocalDateTime.parse(end, FORMATTER).toEpochSecond(ZoneOffset.UTC);
+            return Long.toString(Math.floorDiv(epochSecond, endStepSeconds));
+        } catch (RuntimeException e) {
+            return end;
+        }
+    }
+
+    // Uri без просмотров тоже кэшируются - пустым списком, иначе они промахивались бы каждый раз
+    private Loaded<UriKey, List<ViewStats>> loadStats(String start, String end, String endStep, boolean unique,
+                                                      List<UriKey> keys) {
+        Collection<ViewStats> stats = delegate.getStat(start, end, keys.stream().map(UriKey::uri).toList(), unique);
+        Map<UriKey, List<ViewStats>> loaded = new HashMap<>(keys.size() * 2);
+        keys.forEach(key -> loaded.put(key, new ArrayList<>()));
+        if (stats != null) {
+            stats.forEach(stat -> loaded
+                    .computeIfAbsent(new UriKey(start, endStep, unique, stat.getUri()), key -> new ArrayList<>())
+                    .add(stat));
+        }
+        return new Loaded<>(loaded, DegradedResults.isDegraded(stats));
+    }
+
+    private Loaded<EntityKey, Long> loadViews(String start, String end, String type, boolean unique,
+                                              List<EntityKey> keys) {
+        Map<Long, Long> views = delegate.getViews(start, end, type, keys.stream().map(EntityKey::id).toList(),
+                unique);
+        Map<EntityKey, Long> loaded = new HashMap<>(keys.size() * 2);
+        keys.forEach(key -> loaded.put(key, views == null ? 0L : views.getOrDefault(key.id(), 0L)));
+        return new Loaded<>(loaded, DegradedResults.isDegraded(views));
+    }
+
+    private record UriKey(String start, String endStep, boolean unique, String uri) {
+    }
+
+    private record EntityKey(String start, String endStep, boolean unique, String type, Long id) {
+    }
+
+    private record Loaded<K, V>(Map<K, V> values, boolean degraded) {
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+}
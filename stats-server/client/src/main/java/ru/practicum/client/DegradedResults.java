@@ -0,0 +1,44 @@
+package ru.practicum.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Пометка ответа, собранного без stats-server (последние известные значения или пустой результат).
+// Вызывающий код может отличить его от настоящих нулей: кэш такие ответы не сохраняет
+public final class DegradedResults {
+
+    private DegradedResults() {
+    }
+
+    public static <T> List<T> list(Collection<T> values) {
+        return new DegradedList<>(values);
+    }
+
+    public static <K, V> Map<K, V> map(Map<K, V> values) {
+        return new DegradedMap<>(values);
+    }
+
+    public static boolean isDegraded(Object result) {
+        return result instanceof Degraded;
+    }
+
+    private interface Degraded {
+    }
+
+    private static final class DegradedList<T> extends ArrayList<T> implements Degraded {
+
+        DegradedList(Collection<T> values) {
+            super(values);
+        }
+    }
+
+    private static final class DegradedMap<K, V> extends HashMap<K, V> implements Degraded {
+
+        DegradedMap(Map<K, V> values) {
+            super(values);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.HitQueries;
+import ru.practicum.query.HitValidation;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryGovernor;
+import ru.practicum.query.governor.QueryGovernor.QueryPlan;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Движок статистики внутри процесса ewm-service для установок на одном узле: хиты пишутся и считаются
+// прямо в своём источнике данных, без HTTP и сериализации. Таблицы те же, что у stats-server, а проверка хитов,
+// шаблоны сущностей, фильтр злоупотреблений, governor и запросы подсчёта - общие с ним из модуля query.
+// Архив и прочие фоновые подсистемы stats-server здесь не поднимаются
+@Slf4j
+public class EmbeddedStatsClient implements StatsClient, AutoCloseable {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final HitQueries hitQueries;
+    private final EntityTemplates entityTemplates;
+    private final AbuseFilter abuseFilter;
+    private final QueryGovernor queryGovernor;
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Governor должен работать поверх того же dataSource: его таймауты переносятся на запросы подсчёта
+    public EmbeddedStatsClient(DataSource dataSource, EntityTemplates entityTemplates, AbuseFilter abuseFilter,
+                               QueryGovernor queryGovernor, boolean initializeSchema) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.hitQueries = new HitQueries(new NamedParameterJdbcTemplate(jdbcTemplate));
+        this.entityTemplates = entityTemplates;
+        this.abuseFilter = abuseFilter;
+        this.queryGovernor = queryGovernor;
+        if (initializeSchema) {
+            initializeSchema();
+        }
+    }
+
+    @Override
+    public void hit(EndpointHitDto endpointHitDto) {
+        String violation = HitValidation.violation(endpointHitDto, LocalDateTime.now());
+        if (violation != null) {
+            throw new IllegalArgumentException(violation);
+        }
+        save(List.of(endpointHitDto));
+    }
+
+    // Как и POST /hits: некорректный хит отклоняет пакет, хиты из будущего молча пропускаются
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        if (endpointHitDtos == null || endpointHitDtos.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHitDto> accepted = new ArrayList<>(endpointHitDtos.size());
+        for (EndpointHitDto hit : endpointHitDtos) {
+            if (hit.getTimestamp() != null && hit.getTimestamp().isAfter(now)) {
+                log.warn("пропущен хит из будущего: {} {}", hit.getUri(), hit.getTimestamp());
+                continue;
+            }
+            String violation = HitValidation.violation(hit, now);
+            if (violation != null) {
+                throw new IllegalArgumentException(violation);
+            }
+            accepted.add(hit);
+        }
+        save(accepted);
+    }
+
+    @Override
+    public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("диапазон не может содержать null");
+        }
+        LocalDateTime startTime = LocalDateTime.parse(start, formatter);
+        LocalDateTime endTime = LocalDateTime.parse(end, formatter);
+        if (startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("задан не верный диапазон");
+        }
+        List<String> urisFilter = urls == null || urls.isEmpty() ? null : urls;
+        QueryPlan plan = queryGovernor.plan(startTime, endTime, urisFilter, Boolean.TRUE.equals(unique));
+        return queryGovernor.execute(plan,
+                () -> hitQueries.findStats(plan.start(), plan.end(), plan.uris(), plan.unique()));
+    }
+
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        if (queries == null || queries.isEmpty()) {
+            throw new IllegalArgumentException("пакет запросов статистики пуст");
+        }
+        for (StatsQueryDto query : queries) {
+            if (query.getStart() == null || query.getEnd() == null) {
+                throw new IllegalArgumentException("диапазон не может содержать null");
+            }
+            if (query.getStart().isAfter(query.getEnd())) {
+                throw new IllegalArgumentException("задан не верный диапазон");
+            }
+        }
+        QueryPlan heaviest = queries.stream()
+                .map(query -> queryGovernor.plan(query.getStart(), query.getEnd(),
+                        query.getUris() == null || query.getUris().isEmpty() ? null : query.getUris(),
+                        query.isUnique()))
+                .max(Comparator.comparingLong(QueryPlan::cost))
+                .orElseThrow();
+        return queryGovernor.execute(heaviest, () -> hitQueries.findStatsBatch(queries));
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        if (start == null || end == null) {
+            throw new IllegalArgumentException("диапазон не может содержать null");
+        }
+        LocalDateTime startTime = LocalDateTime.parse(start, formatter);
+        LocalDateTime endTime = LocalDateTime.parse(end, formatter);
+        if (startTime.isAfter(endTime)) {
+            throw new IllegalArgumentException("задан не верный диапазон");
+        }
+        return hitQueries.countEntityViews(type == null ? "events" : type, startTime, endTime, ids,
+                Boolean.TRUE.equals(unique));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (dataSource instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    // Хиты IP, превысивших порог частоты, уходят в quarantined_hits, как у stats-server
+    private void save(List<EndpointHitDto> hits) {
+        List<EndpointHitDto> accepted = new ArrayList<>(hits.size());
+        List<EndpointHitDto> quarantined = new ArrayList<>();
+        for (EndpointHitDto hit : hits) {
+            if (abuseFilter.isSuspicious(hit.getIp(), hit.getTimestamp(), HitAggregator.countOf(hit))) {
+                quarantined.add(hit);
+            } else {
+                accepted.add(hit);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO endpoint_hits " +
+                            "(app, uri, ip, hit_timestamp, duration_ms, entity_type, entity_id, hit_count) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    accepted, accepted.size(), (ps, hit) -> {
+                        ps.setString(1, hit.getApp());
+                        ps.setString(2, hit.getUri());
+                        ps.setString(3, hit.getIp());
+                        ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+                        ps.setObject(5, hit.getDuration(), Types.BIGINT);
+                        Optional<EntityTemplates.EntityRef> entity = entityTemplates.resolve(hit.getUri());
+                        ps.setString(6, entity.map(EntityTemplates.EntityRef::type).orElse(null));
+                        ps.setObject(7, entity.map(EntityTemplates.EntityRef::id).orElse(null), Types.BIGINT);
+                        ps.setInt(8, HitAggregator.countOf(hit));
+                    });
+        }
+        if (!quarantined.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO quarantined_hits " +
+                            "(app, uri, ip, hit_timestamp, duration_ms, hit_count) VALUES (?, ?, ?, ?, ?, ?)",
+                    quarantined, quarantined.size(), (ps, hit) -> {
+                        ps.setString(1, hit.getApp());
+                        ps.setString(2, hit.getUri());
+                        ps.setString(3, hit.getIp());
+                        ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+                        ps.setObject(5, hit.getDuration(), Types.BIGINT);
+                        ps.setInt(6, HitAggregator.countOf(hit));
+                    });
+        }
+        log.debug("сохранено {} хитов во встроенное хранилище статистики, {} в карантин",
+                accepted.size(), quarantined.size());
+    }
+
+    // Схема совпадает с endpoint_hits у stats-server, чтобы данные можно было перенести при выделении сервиса
+    private void initializeSchema() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS endpoint_hits (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app VARCHAR(255) NOT NULL, " +
+                "uri VARCHAR(512) NOT NULL, " +
+                "ip VARCHAR(45) NOT NULL, " +
+                "hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+                "duration_ms BIGINT, " +
+                "entity_type VARCHAR(64), " +
+                "entity_id BIGINT, " +
+                "hit_count INTEGER NOT NULL DEFAULT 1)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_endpoint_hits_timestamp " +
+                "ON endpoint_hits(hit_timestamp)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_endpoint_hits_app_uri ON endpoint_hits(app, uri)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_endpoint_hits_entity " +
+                "ON endpoint_hits(entity_type, entity_id, hit_timestamp)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS quarantined_hits (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app VARCHAR(255) NOT NULL, " +
+                "uri VARCHAR(512) NOT NULL, " +
+                "ip VARCHAR(45) NOT NULL, " +
+                "hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+                "duration_ms BIGINT, " +
+                "hit_count INTEGER NOT NULL DEFAULT 1)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_quarantined_hits_ip ON quarantined_hits(ip)");
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.client;
+
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Сворачивает хиты, совпадающие по (app, uri, ip, секунда), в одну запись с count.
+// Хиты с длительностью не сворачиваются: у каждого своё значение для гистограмм задержек
+final class HitAggregator {
+
+    private HitAggregator() {
+    }
+
+    private record Key(String app, String uri, String ip, long epochSecond) {
+    }
+
+    record Collapsed<T>(EndpointHitDto hit, List<T> sources) {
+    }
+
+    static List<EndpointHitDto> collapse(List<EndpointHitDto> hits) {
+        return collapse(hits, Function.identity()).stream()
+                .map(Collapsed::hit)
+                .toList();
+    }
+
+    // Как collapse, но для каждой записи запоминает элементы, из которых она собрана
+    static <T> List<Collapsed<T>> collapse(List<T> items, Function<T, EndpointHitDto> hitOf) {
+        Map<Key, Collapsed<T>> collapsed = new LinkedHashMap<>();
+        List<Collapsed<T>> result = new ArrayList<>();
+        for (T item : items) {
+            EndpointHitDto hit = hitOf.apply(item);
+            if (hit.getDuration() != null) {
+                result.add(new Collapsed<>(hit, List.of(item)));
+                continue;
+            }
+            long epochSecond = hit.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            Key key = new Key(hit.getApp(), hit.getUri(), hit.getIp(), epochSecond);
+            Collapsed<T> existing = collapsed.get(key);
+            if (existing == null) {
+                List<T> sources = new ArrayList<>();
+                sources.add(item);
+                collapsed.put(key, new Collapsed<>(new EndpointHitDto(hit.getApp(), hit.getUri(), hit.getIp(),
+                        LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC), null, countOf(hit)), sources));
+            } else {
+                existing.hit().setCount(existing.hit().getCount() + countOf(hit));
+                existing.sources().add(item);
+            }
+        }
+        result.addAll(collapsed.values());
+        return result;
+    }
+
+    static int countOf(EndpointHitDto hit) {
+        return hit.getCount() == null ? 1 : hit.getCount();
+    }
+}
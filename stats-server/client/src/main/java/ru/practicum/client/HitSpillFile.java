@@ -0,0 +1,161 @@
+package ru.practicum.client;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Файл для хитов, не поместившихся в очередь или не отправленных из-за недоступности stats-server:
+// записи [длина][хит] дописываются в конец и читаются пачками с сохранённого смещения. Смещение хранится
+// рядом в .offset, так что после рестарта уже отправленные хиты не повторяются
+@Slf4j
+public class HitSpillFile {
+
+    private final Path path;
+    private final Path offsetPath;
+    private final long maxBytes;
+    private long readOffset;
+
+    public HitSpillFile(Path path, long maxBytes) throws IOException {
+        this.path = path;
+        this.offsetPath = path.resolveSibling(path.getFileName() + ".offset");
+        this.maxBytes = maxBytes;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (Files.exists(offsetPath)) {
+            readOffset = Long.parseLong(Files.readString(offsetPath).trim());
+        }
+    }
+
+    // Возвращает false, если не досланные записи достигли предельного размера и хиты не записаны.
+    // Уже досланная часть до readOffset в предел не входит: место под неё освобождается, когда файл
+    // вычитан целиком и удалён
+    public synchronized boolean append(List<EndpointHitDto> hits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(hits.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (EndpointHitDto hit : hits) {
+            byte[] record = encode(hit);
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        if (size() - readOffset + bytes.size() > maxBytes) {
+            return false;
+        }
+        Files.write(path, bytes.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return true;
+    }
+
+    public synchronized boolean isEmpty() throws IOException {
+        return size() <= readOffset;
+    }
+
+    // Объём ещё не досланных записей
+    public synchronized long pendingBytes() {
+        try {
+            return Math.max(0, size() - readOffset);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    public synchronized Batch read(int maxHits) throws IOException {
+        List<EndpointHitDto> hits = new ArrayList<>(maxHits);
+        List<Long> recordEnds = new ArrayList<>(maxHits);
+        long fileSize = size();
+        long offset = readOffset;
+        if (fileSize <= offset) {
+            return new Batch(hits, offset, recordEnds, offset);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.position(offset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            while (hits.size() < maxHits && offset < fileSize) {
+                try {
+                    int length = in.readInt();
+                    byte[] record = in.readNBytes(length);
+                    if (record.length < length) {
+                        throw new EOFException();
+                    }
+                    hits.add(decode(record));
+                    offset += 4 + length;
+                    recordEnds.add(offset);
+                } catch (EOFException e) {
+                    // Недописанная запись в хвосте после сбоя: отбрасывается вместе с остатком файла
+                    log.warn("Оборванная запись в файле {}, хвост отброшен", path);
+                    return new Batch(hits, readOffset, recordEnds, fileSize);
+                }
+            }
+        }
+        return new Batch(hits, readOffset, recordEnds, offset);
+    }
+
+    // Подтверждает отправку пачки; полностью вычитанный файл обнуляется
+    public synchronized void commit(Batch batch) throws IOException {
+        readOffset = batch.nextOffset();
+        if (readOffset >= size()) {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(offsetPath);
+            readOffset = 0;
+            return;
+        }
+        Files.writeString(offsetPath, Long.toString(readOffset));
+    }
+
+    private long size() throws IOException {
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    private static byte[] encode(EndpointHitDto hit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(hit.getApp());
+        out.writeUTF(hit.getUri());
+        out.writeUTF(hit.getIp());
+        out.writeLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        out.writeLong(hit.getDuration() == null ? -1 : hit.getDuration());
+        out.writeInt(HitAggregator.countOf(hit));
+        return bytes.toByteArray();
+    }
+
+    private static EndpointHitDto decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        String app = in.readUTF();
+        String uri = in.readUTF();
+        String ip = in.readUTF();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), 0, ZoneOffset.UTC);
+        long duration = in.readLong();
+        // Записи, сделанные до появления счётчика, заканчиваются на длительности
+        Integer count = in.available() >= Integer.BYTES ? in.readInt() : null;
+        return new EndpointHitDto(app, uri, ip, timestamp, duration < 0 ? null : duration,
+                count == null || count == 1 ? null : count);
+    }
+
+    // recordEnds - смещение конца каждой записи пачки, чтобы подтвердить только её начало
+    public record Batch(List<EndpointHitDto> hits, long startOffset, List<Long> recordEnds, long nextOffset) {
+
+        // Пачка из первых count хитов: после прерванной досылки подтверждается только доставленное начало
+        public Batch prefix(int count) {
+            if (count >= hits.size()) {
+                return this;
+            }
+            return new Batch(hits.subList(0, count), startOffset, recordEnds.subList(0, count),
+                    count == 0 ? startOffset : recordEnds.get(count - 1));
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.client;
+
+// Что делать с хитом, если очередь асинхронного клиента заполнена
+public enum OverflowPolicy {
+    // Отбросить хит и увеличить счётчик потерь
+    DROP,
+    // Ждать места в очереди в вызывающем потоке
+    BLOCK,
+    // Дописать хит в локальный файл, он будет отправлен, когда очередь опустеет
+    SPILL
+}
@@ -0,0 +1,43 @@
+package ru.practicum.client;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+@Builder
+public class ResilienceSettings {
+
+    // Сколько одновременных запросов статистики пропускается к stats-server
+    @Builder.Default
+    private final int maxConcurrentCalls = 20;
+
+    @Builder.Default
+    private final Duration bulkheadWait = Duration.ofMillis(50);
+
+    @Builder.Default
+    private final int windowSize = 50;
+
+    @Builder.Default
+    private final int minimumCalls = 10;
+
+    @Builder.Default
+    private final double failureRateThreshold = 0.5;
+
+    @Builder.Default
+    private final Duration slowCallThreshold = Duration.ofSeconds(1);
+
+    @Builder.Default
+    private final double slowCallRateThreshold = 0.8;
+
+    @Builder.Default
+    private final Duration openDuration = Duration.ofSeconds(30);
+
+    @Builder.Default
+    private final int halfOpenCalls = 3;
+
+    // Предел числа последних известных счётчиков для отдачи при недоступности stats-server
+    @Builder.Default
+    private final int fallbackMaxEntries = 100_000;
+}
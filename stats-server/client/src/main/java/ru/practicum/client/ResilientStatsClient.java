@@ -0,0 +1,200 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Защита запросов статистики: ограничение одновременных вызовов (bulkhead) и автомат размыкания.
+// Когда вызов не пропущен или завершился ошибкой, отдаются последние успешно полученные счётчики,
+// а не исключение; такой ответ помечен DegradedResults. Пакетный запрос при сбое бросает исключение.
+// Хиты идут в обёрнутый клиент напрямую, и ошибка отправки доходит до вызывающего. В ewm-service хит запроса
+// отправляется синхронно через основную цепочку клиентов, а при ошибке пишется в outbox; outbox доставляет
+// statsRelayClient - AsyncStatsClient поверх той же цепочки
+@Slf4j
+public class ResilientStatsClient implements StatsClient, AutoCloseable {
+
+    private final StatsClient delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final long bulkheadWaitNanos;
+    private final int fallbackMaxEntries;
+    private final LongSupplier nanoClock;
+
+    private final ConcurrentHashMap<UriKey, List<ViewStats>> lastKnownStats = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<EntityKey, Long> lastKnownViews = new ConcurrentHashMap<>();
+
+    private final Counter openFallbackCounter;
+    private final Counter bulkheadFallbackCounter;
+    private final Counter errorFallbackCounter;
+
+    public ResilientStatsClient(StatsClient delegate, ResilienceSettings settings, MeterRegistry meterRegistry) {
+        this(delegate, settings, meterRegistry, System::nanoTime);
+    }
+
+    ResilientStatsClient(StatsClient delegate, ResilienceSettings settings, MeterRegistry meterRegistry,
+                         LongSupplier nanoClock) {
+        this.delegate = delegate;
+        this.circuitBreaker = new CircuitBreaker(settings, nanoClock);
+        this.bulkhead = new Semaphore(settings.getMaxConcurrentCalls());
+        this.bulkheadWaitNanos = settings.getBulkheadWait().toNanos();
+        this.fallbackMaxEntries = settings.getFallbackMaxEntries();
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("stats.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Состояние автомата: 0 - замкнут, 1 - разомкнут, 2 - пробные вызовы")
+                .register(meterRegistry);
+        Gauge.builder("stats.client.fallback.entries", this,
+                        client -> client.lastKnownStats.size() + client.lastKnownViews.size())
+                .register(meterRegistry);
+        this.openFallbackCounter = meterRegistry.counter("stats.client.fallback", "reason", "open");
+        this.bulkheadFallbackCounter = meterRegistry.counter("stats.client.fallback", "reason", "bulkhead");
+        this.errorFallbackCounter = meterRegistry.counter("stats.client.fallback", "reason", "error");
+    }
+
+    @Override
+    public void hit(EndpointHitDto endpointHitDto) {
+        delegate.hit(endpointHitDto);
+    }
+
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        delegate.hits(endpointHitDtos);
+    }
+
+    @Override
+    public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
+        boolean uniqueFlag = Boolean.TRUE.equals(unique);
+        return call(() -> delegate.getStat(start, end, urls, unique),
+                () -> {
+                    List<ViewStats> known = new ArrayList<>();
+                    if (urls != null) {
+                        urls.forEach(uri -> known.addAll(
+                                lastKnownStats.getOrDefault(new UriKey(start, uniqueFlag, uri), List.of())));
+                    }
+                    return DegradedResults.list(known);
+                },
+                stats -> {
+                    if (stats == null) {
+                        return;
+                    }
+                    Map<UriKey, List<ViewStats>> byUri = new HashMap<>();
+                    stats.forEach(stat -> byUri.computeIfAbsent(new UriKey(start, uniqueFlag, stat.getUri()),
+                            key -> new ArrayList<>()).add(stat));
+                    remember(lastKnownStats, byUri);
+                });
+    }
+
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        // Для пакета нет последних известных значений: пустые списки выглядели бы как «просмотров нет»
+        return call(() -> delegate.getStatBatch(queries),
+                () -> {
+                    throw new IllegalStateException("stats-server недоступен, пакетный запрос статистики не выполнен");
+                },
+                stats -> {
+                });
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        boolean uniqueFlag = Boolean.TRUE.equals(unique);
+        return call(() -> delegate.getViews(start, end, type, ids, unique),
+                () -> {
+                    Map<Long, Long> known = new HashMap<>();
+                    if (ids != null) {
+                        ids.forEach(id -> {
+                            Long views = lastKnownViews.get(new EntityKey(start, uniqueFlag, type, id));
+                            if (views != null) {
+                                known.put(id, views);
+                            }
+                        });
+                    }
+                    return DegradedResults.map(known);
+                },
+                views -> {
+                    if (views == null) {
+                        return;
+                    }
+                    Map<EntityKey, Long> byId = new HashMap<>();
+                    views.forEach((id, count) -> byId.put(new EntityKey(start, uniqueFlag, type, id), count));
+                    remember(lastKnownViews, byId);
+                });
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    CircuitBreaker.State circuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // Сначала занимается место в bulkhead, потом разрешение автомата, чтобы отказ bulkhead
+    // не расходовал пробные вызовы полуоткрытого состояния
+    private <T> T call(Supplier<T> call, Supplier<T> fallback, Consumer<T> onSuccess) {
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            bulkheadFallbackCounter.increment();
+            return fallback.get();
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                openFallbackCounter.increment();
+                return fallback.get();
+            }
+            long startedAt = nanoClock.getAsLong();
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException e) {
+                circuitBreaker.onFailure();
+                errorFallbackCounter.increment();
+                log.warn("запрос статистики не выполнен, отдаём последние известные значения: {}", e.getMessage());
+                return fallback.get();
+            }
+            circuitBreaker.onSuccess(nanoClock.getAsLong() - startedAt);
+            onSuccess.accept(result);
+            return result;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private <K, V> void remember(ConcurrentHashMap<K, V> cache, Map<K, V> values) {
+        if (cache.size() + values.size() > fallbackMaxEntries) {
+            cache.clear();
+        }
+        cache.putAll(values);
+    }
+
+    private record UriKey(String start, boolean unique, String uri) {
+    }
+
+    private record EntityKey(String start, boolean unique, String type, Long id) {
+    }
+}
@@ -0,0 +1,164 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// Склеивает одновременные одинаковые запросы статистики: первый вызов идёт в stats-server,
+// остальные с теми же нормализованными параметрами ждут его результата.
+// Срок timeout отсчитывается от старта вызова по ключу и общий для лидера и ожидающих: по его истечении
+// все получают ошибку, а ключ освобождается, чтобы новые запросы не присоединялись к зависшему вызову.
+// Каждый вызывающий получает свою копию результата. Ожидание построено на CompletableFuture
+// без synchronized, поэтому не пинит виртуальные потоки
+public class SingleFlightStatsClient implements StatsClient, AutoCloseable {
+
+    private final StatsClient delegate;
+    private final long timeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<Object, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+
+    public SingleFlightStatsClient(StatsClient delegate, Duration timeout, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutNanos = timeout.toNanos();
+        this.coalescedCounter = meterRegistry.counter("stats.client.single-flight.coalesced");
+    }
+
+    @Override
+    public void hit(EndpointHitDto endpointHitDto) {
+        delegate.hit(endpointHitDto);
+    }
+
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        delegate.hits(endpointHitDtos);
+    }
+
+    @Override
+    public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
+        List<String> normalizedUrls = urls == null ? null : urls.stream().distinct().sorted().toList();
+        boolean normalizedUnique = Boolean.TRUE.equals(unique);
+        return execute(new StatKey(start, end, normalizedUrls, normalizedUnique),
+                () -> delegate.getStat(start, end, normalizedUrls, normalizedUnique),
+                SingleFlightStatsClient::copyOf);
+    }
+
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        return execute(new BatchKey(List.copyOf(queries)), () -> delegate.getStatBatch(queries), batch -> {
+            if (batch == null) {
+                return null;
+            }
+            List<List<ViewStats>> copy = new ArrayList<>(batch.size());
+            batch.forEach(stats -> copy.add(copyOf(stats)));
+            return DegradedResults.isDegraded(batch) ? DegradedResults.list(copy) : copy;
+        });
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        List<Long> normalizedIds = ids == null ? null : ids.stream().distinct().sorted().toList();
+        boolean normalizedUnique = Boolean.TRUE.equals(unique);
+        return execute(new ViewsKey(start, end, type, normalizedIds, normalizedUnique),
+                () -> delegate.getViews(start, end, type, normalizedIds, normalizedUnique),
+                SingleFlightStatsClient::copyOf);
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.close();
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(Object key, Supplier<T> call, UnaryOperator<T> copy) {
+        Flight own = new Flight(new CompletableFuture<>(), System.nanoTime() + timeoutNanos);
+        Flight flight = inFlight.putIfAbsent(key, own);
+        if (flight != null) {
+            coalescedCounter.increment();
+        } else {
+            flight = own;
+            // Ключ освобождается до публикации результата: следующий после ответа запрос пойдёт в сервер
+            executor.execute(() -> {
+                T result;
+                try {
+                    result = call.get();
+                } catch (RuntimeException e) {
+                    inFlight.remove(key, own);
+                    own.result().completeExceptionally(e);
+                    return;
+                }
+                inFlight.remove(key, own);
+                own.result().complete(result);
+            });
+        }
+        return copy.apply((T) await(key, flight));
+    }
+
+    private Object await(Object key, Flight flight) {
+        try {
+            return flight.result().get(Math.max(0, flight.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            inFlight.remove(key, flight);
+            throw new IllegalStateException("превышено время ожидания ответа stats-server", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ожидание ответа stats-server прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static List<ViewStats> copyOf(Collection<ViewStats> stats) {
+        if (stats == null) {
+            return null;
+        }
+        return DegradedResults.isDegraded(stats) ? DegradedResults.list(stats) : new ArrayList<>(stats);
+    }
+
+    private static Map<Long, Long> copyOf(Map<Long, Long> views) {
+        if (views == null) {
+            return null;
+        }
+        return DegradedResults.isDegraded(views) ? DegradedResults.map(views) : new HashMap<>(views);
+    }
+
+    private record Flight(CompletableFuture<Object> result, long deadline) {
+    }
+
+    private record StatKey(String start, String end, List<String> urls, boolean unique) {
+    }
+
+    private record ViewsKey(String start, String end, String type, List<Long> ids, boolean unique) {
+    }
+
+    private record BatchKey(List<StatsQueryDto> queries) {
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.client;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+@Builder
+public class SpillReplaySettings {
+
+    // Записывать в файл пачки, которые не удалось отправить, вместо того чтобы терять их
+    @Builder.Default
+    private final boolean spillOnFailure = true;
+
+    // Потолок скорости досылки из файла (по сумме count), чтобы после восстановления не перегрузить stats-server;
+    // 0 - без ограничения
+    @Builder.Default
+    private final int maxHitsPerSecond = 500;
+
+    // Пауза перед следующей досылкой после неудачной отправки
+    @Builder.Default
+    private final Duration retryDelay = Duration.ofSeconds(5);
+}
@@ -1,14 +1,22 @@
 package ru.practicum.client;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface StatsClient {
 
     void hit(EndpointHitDto endpointHitDto);
 
+    void hits(List<EndpointHitDto> endpointHitDtos);
+
     Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique);
+
+    List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries);
+
+    Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique);
 }
@@ -2,31 +2,57 @@ package ru.practicum.client;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.util.UriBuilder;
+import ru.practicum.dto.EndpointHitBatch;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsBatchRequest;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Component
 @Slf4j
-public class StatsClientImpl implements StatsClient {
+public class StatsClientImpl implements StatsClient, AutoCloseable {
+    private final ClientHttpRequestFactory requestFactory;
     private final RestClient restClient;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
+    @Autowired
     public StatsClientImpl(@Value("${stats-server.url:http://localhost:9090}") String clientUrl) {
-        this.restClient = RestClient.builder()
+        this(clientUrl, StatsTransportSettings.builder().build());
+    }
+
+    // Без таймаутов зависший stats-server держал бы поток запроса пользователя неограниченно долго
+    public StatsClientImpl(String clientUrl, Duration connectTimeout, Duration readTimeout) {
+        this(clientUrl, StatsTransportSettings.builder()
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .build());
+    }
+
+    public StatsClientImpl(String clientUrl, StatsTransportSettings transportSettings) {
+        this.requestFactory = StatsHttpTransport.requestFactory(transportSettings);
+        RestClient.Builder builder = RestClient.builder()
                 .baseUrl(clientUrl)
-                .build();
+                .requestFactory(requestFactory);
+        if (transportSettings.isGzipRequests()) {
+            builder.requestInterceptor(StatsHttpTransport.gzipRequestInterceptor(transportSettings.getGzipMinBytes()));
+        }
+        this.restClient = builder.build();
     }
 
     @Override
@@ -40,6 +66,20 @@ public class StatsClientImpl implements StatsClient {
         log.info("сохранили информацию что был запрос");
     }
 
+    @Override
+    public void hits(List<EndpointHitDto> endpointHitDtos) {
+        if (endpointHitDtos == null || endpointHitDtos.isEmpty()) {
+            return;
+        }
+        restClient.post()
+                .uri("/hits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new EndpointHitBatch(endpointHitDtos))
+                .retrieve()
+                .toBodilessEntity();
+        log.info("сохранили пакет из {} запросов", endpointHitDtos.size());
+    }
+
     @Override
     public Collection<ViewStats> getStat(String start, String end, List<String> urls, Boolean unique) {
         if (start == null || end == null) {
@@ -52,6 +92,17 @@ public class StatsClientImpl implements StatsClient {
             log.warn("задан не верный диапазон");
             throw new IllegalArgumentException("задан не верный диапазон");
         }
+        if (urls != null && urls.size() > StatsQueryDto.MAX_INLINE_URIS) {
+            Collection<ViewStats> stats = restClient.post()
+                    .uri("/stats")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(new StatsQueryDto(startDataTime, endDataTime, urls, Boolean.TRUE.equals(unique)))
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<>() {
+                    });
+            log.info("запрос статистики телом для {} uri", urls.size());
+            return stats;
+        }
         Collection<ViewStats> stats = restClient.get()
                 .uri(uriBuilder -> uriGetStats(uriBuilder, start, end, urls, unique))
                 .retrieve()
@@ -61,6 +112,70 @@ public class StatsClientImpl implements StatsClient {
         return stats;
     }
 
+    @Override
+    public List<List<ViewStats>> getStatBatch(List<StatsQueryDto> queries) {
+        if (queries == null || queries.isEmpty()) {
+            log.warn("пакет запросов статистики пуст");
+            throw new IllegalArgumentException("пакет запросов статистики пуст");
+        }
+        for (StatsQueryDto query : queries) {
+            if (query.getStart() == null || query.getEnd() == null) {
+                log.warn("диапазон не может содержать null");
+                throw new IllegalArgumentException("диапазон не может содержать null");
+            }
+            if (query.getStart().isAfter(query.getEnd())) {
+                log.warn("задан не верный диапазон");
+                throw new IllegalArgumentException("задан не верный диапазон");
+            }
+        }
+        List<List<ViewStats>> stats = restClient.post()
+                .uri("/stats/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new StatsBatchRequest(queries))
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+        log.info("пакетный запрос статистики из {} окон", queries.size());
+        return stats;
+    }
+
+    @Override
+    public Map<Long, Long> getViews(String start, String end, String type, List<Long> ids, Boolean unique) {
+        if (start == null || end == null) {
+            log.warn("диапазон не может содержать null");
+            throw new IllegalArgumentException("диапазон не может содержать null");
+        }
+        if (LocalDateTime.parse(start, formatter).isAfter(LocalDateTime.parse(end, formatter))) {
+            log.warn("задан не верный диапазон");
+            throw new IllegalArgumentException("задан не верный диапазон");
+        }
+        Map<Long, Long> views = restClient.get()
+                .uri(uriBuilder -> {
+                    UriBuilder builder = uriBuilder.path("/stats/views")
+                            .queryParam("start", start)
+                            .queryParam("end", end)
+                            .queryParam("type", type);
+                    if (ids != null && !ids.isEmpty()) {
+                        builder.queryParam("ids", ids.toArray());
+                    }
+                    if (unique != null) {
+                        builder.queryParam("unique", unique);
+                    }
+                    return builder.build();
+                })
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {
+                });
+        log.info("запрос просмотров {} для {} идентификаторов", type, ids == null ? 0 : ids.size());
+        return views;
+    }
+
+    // Пул соединений и потоки HTTP-клиента живут до остановки контекста
+    @Override
+    public void close() throws Exception {
+        StatsHttpTransport.close(requestFactory);
+    }
+
     private URI uriGetStats(UriBuilder uriBuilder, String start, String end, List<String> uris, Boolean unique) {
         UriBuilder builder = uriBuilder.path("/stats")
                 .queryParam("start", start)
@@ -0,0 +1,21 @@
+package ru.practicum.client;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+// Классификация ошибок отправки хитов: отклонённый сервером запрос (4xx, кроме 408 и 429)
+// при повторе снова будет отклонён, поэтому его нельзя оставлять в очереди досылки
+public final class StatsErrors {
+
+    private StatsErrors() {
+    }
+
+    public static boolean isRejected(Throwable error) {
+        if (error instanceof HttpClientErrorException clientError) {
+            return !clientError.getStatusCode().isSameCodeAs(HttpStatus.REQUEST_TIMEOUT)
+                    && !clientError.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+        }
+        // Встроенный режим сообщает о невалидном хите исключением валидации
+        return error instanceof IllegalArgumentException;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.client;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.zip.GZIPOutputStream;
+
+// Транспорт StatsClientImpl: пул соединений Apache HttpClient 5 с keep-alive и вытеснением простаивающих
+// или JDK HttpClient, если нужен HTTP/2 (классический HttpClient 5 работает только по HTTP/1.1)
+public final class StatsHttpTransport {
+
+    private StatsHttpTransport() {
+    }
+
+    public static ClientHttpRequestFactory requestFactory(StatsTransportSettings settings) {
+        if (settings.isHttp2()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(settings.getConnectTimeout())
+                    .build();
+            JdkRequestFactory factory = new JdkRequestFactory(httpClient);
+            factory.setReadTimeout(settings.getReadTimeout());
+            return factory;
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.getMaxConnections())
+                .setMaxConnPerRoute(settings.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(settings.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(settings.getReadTimeout()))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(settings.getIdleEviction()))
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    // Закрывает HTTP-клиент фабрики: оба варианта реализуют DisposableBean
+    public static void close(ClientHttpRequestFactory factory) throws Exception {
+        if (factory instanceof DisposableBean disposable) {
+            disposable.destroy();
+        }
+    }
+
+    // Сжимает тело запроса; stats-server распаковывает его по заголовку Content-Encoding
+    public static ClientHttpRequestInterceptor gzipRequestInterceptor(int minBytes) {
+        return (request, body, execution) -> {
+            if (body.length < minBytes) {
+                return execution.execute(request, body);
+            }
+            request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return execution.execute(request, gzip(body));
+        };
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Фабрика Spring не закрывает переданный ей JDK HttpClient, а он держит поток селектора и соединения
+    private static final class JdkRequestFactory extends JdkClientHttpRequestFactory implements DisposableBean {
+        private final HttpClient httpClient;
+
+        private JdkRequestFactory(HttpClient httpClient) {
+            super(httpClient);
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public void destroy() {
+            httpClient.close();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.client;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+@Builder
+public class StatsTransportSettings {
+
+    @Builder.Default
+    private final Duration connectTimeout = Duration.ofSeconds(2);
+
+    @Builder.Default
+    private final Duration readTimeout = Duration.ofSeconds(5);
+
+    @Builder.Default
+    private final int maxConnections = 50;
+
+    @Builder.Default
+    private final int maxConnectionsPerRoute = 50;
+
+    // Простаивающее дольше соединение закрывается фоновым потоком пула
+    @Builder.Default
+    private final Duration idleEviction = Duration.ofSeconds(30);
+
+    // HTTP/2 поддерживает только JDK HttpClient: пул у него свой, maxConnections и idleEviction не применяются
+    @Builder.Default
+    private final boolean http2 = false;
+
+    @Builder.Default
+    private final boolean gzipRequests = false;
+
+    // Тела меньше порога отправляются как есть: на коротком JSON сжатие не окупается
+    @Builder.Default
+    private final int gzipMinBytes = 1024;
+}
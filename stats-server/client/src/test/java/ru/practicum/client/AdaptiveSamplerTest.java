@@ -0,0 +1,57 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AdaptiveSamplerTest {
+
+    @Test
+    void intervalFor_shouldGrowWithQueuePressure() {
+        AdaptiveSampler sampler = new AdaptiveSampler(0.5, 64);
+
+        assertEquals(1, sampler.intervalFor(0.0));
+        assertEquals(1, sampler.intervalFor(0.5));
+        assertEquals(8, sampler.intervalFor(0.75));
+        assertEquals(64, sampler.intervalFor(1.0));
+    }
+
+    @Test
+    void sample_shouldKeepEveryHitBelowThreshold() {
+        AdaptiveSampler sampler = new AdaptiveSampler(0.5, 64, bound -> 1);
+
+        assertEquals(1, sampler.sample(0.3));
+    }
+
+    @Test
+    void sample_shouldReturnIntervalAsWeightOfKeptHit() {
+        AdaptiveSampler keepAll = new AdaptiveSampler(0.5, 64, bound -> 0);
+        AdaptiveSampler dropAll = new AdaptiveSampler(0.5, 64, bound -> 1);
+
+        assertEquals(64, keepAll.sample(1.0));
+        assertEquals(0, dropAll.sample(1.0));
+    }
+
+    @Test
+    void sample_totalWeightShouldEstimateHitCount() {
+        Random random = new Random(42);
+        AdaptiveSampler sampler = new AdaptiveSampler(0.0, 16, random::nextInt);
+
+        long total = 0;
+        int hits = 200_000;
+        for (int i = 0; i < hits; i++) {
+            total += sampler.sample(1.0);
+        }
+
+        assertEquals(hits, total, hits * 0.03);
+    }
+
+    @Test
+    void constructor_withInvalidThreshold_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveSampler(1.0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveSampler(0.5, 0));
+    }
+}
@@ -0,0 +1,528 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class AsyncStatsClientTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    private Path directory;
+
+    private AsyncStatsClient client;
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void hit_shouldReturnImmediatelyAndSendInBatches() throws InterruptedException {
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            sent.addAll(invocation.getArgument(0));
+            if (sent.size() == 5) {
+                latch.countDown();
+            }
+            return null;
+        }).when(delegate).hits(anyList());
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), OverflowPolicy.DROP, null, registry);
+
+        for (int i = 0; i < 5; i++) {
+            client.hit(hit("/events/" + i));
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        verify(delegate, never()).hit(any());
+        // Счётчик увеличивается после возврата из delegate.hits
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.counter("stats.client.hits.sent").count() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(5.0, registry.counter("stats.client.hits.sent").count());
+    }
+
+    @Test
+    void hit_withAggregationWindow_shouldSendCollapsedHits() throws InterruptedException {
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            sent.addAll(invocation.getArgument(0));
+            latch.countDown();
+            return null;
+        }).when(delegate).hits(anyList());
+        client = new AsyncStatsClient(delegate, 100, 100, Duration.ofMillis(20), Duration.ofMillis(500),
+                OverflowPolicy.DROP, null, registry);
+
+        EndpointHitDto hit = hit("/events/1");
+        for (int i = 0; i < 10; i++) {
+            client.hit(hit);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sent.size());
+        assertEquals(10, sent.getFirst().getCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.counter("stats.client.hits.sent").count() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(10.0, registry.counter("stats.client.hits.sent").count());
+        assertEquals(9.0, registry.counter("stats.client.hits.collapsed").count());
+    }
+
+    @Test
+    void hit_withDropPolicy_shouldCountDroppedHitsWhenQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StatsClient delegate = blockingDelegate(release);
+        client = new AsyncStatsClient(delegate, 2, 1, Duration.ofMillis(20), OverflowPolicy.DROP, null, registry);
+
+        client.hit(hit("/events/1"));
+        waitForEmptyQueue();
+        client.hit(hit("/events/2"));
+        client.hit(hit("/events/3"));
+        client.hit(hit("/events/4"));
+
+        assertEquals(1.0, registry.counter("stats.client.hits.dropped").count());
+        assertEquals(2.0, registry.get("stats.client.queue.size").gauge().value());
+        release.countDown();
+    }
+
+    @Test
+    void hit_withSpillPolicy_shouldWriteOverflowToFileAndReplayIt() throws IOException, InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            release.await();
+            sent.addAll(invocation.getArgument(0));
+            return null;
+        }).when(delegate).hits(anyList());
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        client = new AsyncStatsClient(delegate, 1, 1, Duration.ofMillis(20), OverflowPolicy.SPILL, spillFile,
+                registry);
+
+        client.hit(hit("/events/1"));
+        waitForEmptyQueue();
+        client.hit(hit("/events/2"));
+        client.hit(hit("/events/3"));
+
+        assertEquals(1.0, registry.counter("stats.client.hits.spilled").count());
+        assertFalse(spillFile.isEmpty());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, sent.size());
+        assertTrue(spillFile.isEmpty());
+    }
+
+    @Test
+    void send_whenServerIsDown_shouldSpillBatchAndReplayAfterRecovery() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            if (down.get()) {
+                throw new IllegalStateException("stats-server недоступен");
+            }
+            sent.addAll(invocation.getArgument(0));
+            return null;
+        }).when(delegate).hits(anyList());
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().retryDelay(Duration.ofMillis(50)).build(), registry);
+
+        client.hit(hit("/events/1"));
+        client.hit(hit("/events/2"));
+        client.hit(hit("/events/3"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (registry.counter("stats.client.hits.spilled").count() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(3.0, registry.counter("stats.client.hits.spilled").count());
+        assertTrue(registry.get("stats.client.spill.bytes").gauge().value() > 0);
+
+        down.set(false);
+        deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(3, sent.size());
+        assertTrue(spillFile.isEmpty());
+        assertEquals(0.0, registry.counter("stats.client.hits.dropped").count());
+    }
+
+    @Test
+    void send_whenServerRejectsBatch_shouldDropOnlyRejectedHitsWithoutSpilling() throws Exception {
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = rejecting("/bad", sent);
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().build(), registry);
+
+        client.hits(List.of(hit("/events/1"), hit("/bad"), hit("/events/2")));
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((registry.counter("stats.client.hits.rejected").count() < 1 || sent.size() < 2)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(1.0, registry.counter("stats.client.hits.rejected").count());
+        assertEquals(List.of("/events/1", "/events/2"), sent.stream().map(EndpointHitDto::getUri).toList());
+        assertEquals(0.0, registry.counter("stats.client.hits.spilled").count());
+        assertTrue(spillFile.isEmpty());
+    }
+
+    @Test
+    void replay_whenServerRejectsSpilledHit_shouldDropItAndAdvance() throws Exception {
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        spillFile.append(List.of(hit("/bad"), hit("/events/1")));
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = rejecting("/bad", sent);
+
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().build(), registry);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!spillFile.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(spillFile.isEmpty());
+        assertEquals(List.of("/events/1"), sent.stream().map(EndpointHitDto::getUri).toList());
+        assertEquals(1.0, registry.counter("stats.client.hits.rejected").count());
+    }
+
+    @Test
+    void replay_whenTransientErrorInterruptsRejectedBatch_shouldNotResendDeliveredHits() throws Exception {
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        spillFile.append(List.of(hit("/bad"), hit("/events/1"), hit("/events/2")));
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        AtomicBoolean failedOnce = new AtomicBoolean();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            List<EndpointHitDto> hits = invocation.getArgument(0);
+            if (hits.stream().anyMatch(hit -> hit.getUri().equals("/bad"))) {
+                throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null);
+            }
+            if (hits.get(0).getUri().equals("/events/2") && failedOnce.compareAndSet(false, true)) {
+                throw new IllegalStateException("stats-server недоступен");
+            }
+            sent.addAll(hits);
+            return null;
+        }).when(delegate).hits(anyList());
+
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().retryDelay(Duration.ofMillis(20)).build(), registry);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!spillFile.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(spillFile.isEmpty());
+        assertEquals(List.of("/events/1", "/events/2"), sent.stream().map(EndpointHitDto::getUri).toList());
+    }
+
+    @Test
+    void replay_shouldBeRateLimited() throws Exception {
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        List<EndpointHitDto> backlog = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            backlog.add(hit("/events/" + i));
+        }
+        spillFile.append(backlog);
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> sent.addAll(invocation.getArgument(0))).when(delegate).hits(anyList());
+
+        // 10 хитов за пачку при 20 хитах в секунду: следующая пачка не раньше чем через 500 мс
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().maxHitsPerSecond(20).build(), registry);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+        assertEquals(10, sent.size());
+
+        deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 30 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(30, sent.size());
+    }
+
+    @Test
+    void replay_shouldLimitByWeightedCount() throws Exception {
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        EndpointHitDto first = hit("/events/1");
+        first.setCount(10);
+        EndpointHitDto second = hit("/events/2");
+        second.setCount(10);
+        spillFile.append(List.of(first));
+        spillFile.append(List.of(second));
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> sent.addAll(invocation.getArgument(0))).when(delegate).hits(anyList());
+
+        // Запись весом 10 хитов при 20 хитах в секунду: следующая запись не раньше чем через 500 мс
+        client = new AsyncStatsClient(delegate, 100, 1, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().maxHitsPerSecond(20).build(), registry);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(200);
+        assertEquals(1, sent.size());
+
+        deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void replay_withZeroRate_shouldNotLimit() throws Exception {
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        List<EndpointHitDto> backlog = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            backlog.add(hit("/events/" + i));
+        }
+        spillFile.append(backlog);
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> sent.addAll(invocation.getArgument(0))).when(delegate).hits(anyList());
+
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().maxHitsPerSecond(0).build(), registry);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!spillFile.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(spillFile.isEmpty());
+        assertEquals(30, sent.size());
+    }
+
+    @Test
+    void constructor_withNegativeReplayRate_shouldFail() {
+        StatsClient delegate = mock(StatsClient.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new AsyncStatsClient(delegate, 100, 10,
+                Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP, null,
+                SpillReplaySettings.builder().maxHitsPerSecond(-1).build(), registry));
+    }
+
+    @Test
+    void hit_withSampler_shouldSampleOutHitsAsQueueFills() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        StatsClient delegate = blockingDelegate(release);
+        // Случайный выбор всегда мимо: при интервале больше 1 хит отбрасывается
+        AdaptiveSampler sampler = new AdaptiveSampler(0.0, 4, bound -> 1);
+        client = new AsyncStatsClient(delegate, 10, 1, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                null, SpillReplaySettings.builder().build(), sampler, registry);
+
+        client.hit(hit("/events/0"));
+        waitForEmptyQueue();
+        for (int i = 1; i < 20; i++) {
+            client.hit(hit("/events/" + i));
+        }
+
+        // С трёх хитов в очереди (заполнение 0.3) интервал выборки становится 2
+        assertEquals(3, client.queueSize());
+        assertEquals(16.0, registry.counter("stats.client.hits.sampled-out").count());
+        assertEquals(0.5, registry.get("stats.client.sampling.rate").gauge().value());
+        assertEquals(0.0, registry.counter("stats.client.hits.dropped").count());
+        release.countDown();
+    }
+
+    @Test
+    void hit_withSampler_shouldAttachWeightToKeptHits() throws InterruptedException {
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            release.await();
+            sent.addAll(invocation.getArgument(0));
+            return null;
+        }).when(delegate).hits(anyList());
+        AdaptiveSampler sampler = new AdaptiveSampler(0.0, 4, bound -> 0);
+        client = new AsyncStatsClient(delegate, 10, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                null, SpillReplaySettings.builder().build(), sampler, registry);
+
+        client.hit(hit("/events/0"));
+        waitForEmptyQueue();
+        for (int i = 1; i <= 9; i++) {
+            client.hit(hit("/events/" + i));
+        }
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(10, sent.size());
+        assertNull(sent.getFirst().getCount());
+        // Последний хит пришёл при заполнении 0.8: интервал round(4^0.8) = 3
+        assertEquals(3, sent.getLast().getCount());
+    }
+
+    @Test
+    void submit_shouldReportRejectedHitsAndCompleteAfterDelivery() throws Exception {
+        List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+        StatsClient delegate = rejecting("/bad", sent);
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ofMillis(20),
+                OverflowPolicy.DROP, null, registry);
+        EndpointHitDto bad = hit("/bad");
+
+        AsyncStatsClient.Delivery delivery = client.submit(List.of(hit("/events/1"), bad, hit("/events/1")))
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, delivery.rejected().size());
+        assertSame(bad, delivery.rejected().getFirst());
+        assertTrue(delivery.lost().isEmpty());
+        assertEquals(1, sent.size());
+        assertEquals(2, sent.getFirst().getCount());
+    }
+
+    @Test
+    void submit_whenServerIsDownWithoutSpill_shouldReportHitsAsLost() throws Exception {
+        StatsClient delegate = mock(StatsClient.class);
+        doThrow(new IllegalStateException("stats-server недоступен")).when(delegate).hits(anyList());
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                null, registry);
+        List<EndpointHitDto> hits = List.of(hit("/events/1"), hit("/events/2"));
+
+        AsyncStatsClient.Delivery delivery = client.submit(hits).get(5, TimeUnit.SECONDS);
+
+        assertEquals(hits, delivery.lost());
+        assertEquals("stats-server недоступен", delivery.error());
+    }
+
+    @Test
+    void submit_whenBatchIsSpilled_shouldConfirmIt() throws Exception {
+        StatsClient delegate = mock(StatsClient.class);
+        doThrow(new IllegalStateException("stats-server недоступен")).when(delegate).hits(anyList());
+        HitSpillFile spillFile = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        client = new AsyncStatsClient(delegate, 100, 10, Duration.ofMillis(20), Duration.ZERO, OverflowPolicy.DROP,
+                spillFile, SpillReplaySettings.builder().retryDelay(Duration.ofMinutes(1)).build(), registry);
+
+        AsyncStatsClient.Delivery delivery = client.submit(List.of(hit("/events/1"))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(delivery.lost().isEmpty());
+        assertFalse(spillFile.isEmpty());
+    }
+
+    @Test
+    void submit_withDropPolicy_shouldReportOverflowAsLost() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        client = new AsyncStatsClient(blockingDelegate(release), 1, 1, Duration.ofMillis(20), OverflowPolicy.DROP,
+                null, registry);
+        client.hit(hit("/events/1"));
+        waitForEmptyQueue();
+        client.hit(hit("/events/2"));
+        EndpointHitDto overflow = hit("/events/3");
+
+        CompletableFuture<AsyncStatsClient.Delivery> ack = client.submit(List.of(overflow));
+        release.countDown();
+
+        assertEquals(List.of(overflow), ack.get(5, TimeUnit.SECONDS).lost());
+    }
+
+    @Test
+    void close_shouldFlushRemainingHits() {
+        StatsClient delegate = mock(StatsClient.class);
+        client = new AsyncStatsClient(delegate, 100, 50, Duration.ofMillis(20), OverflowPolicy.DROP, null, registry);
+
+        client.hit(hit("/events/1"));
+        client.hit(hit("/events/2"));
+        client.close();
+
+        assertEquals(0, client.queueSize());
+        assertEquals(2.0, registry.counter("stats.client.hits.sent").count());
+    }
+
+    @Test
+    void getStat_shouldDelegateDirectly() {
+        StatsClient delegate = mock(StatsClient.class);
+        client = new AsyncStatsClient(delegate, 10, 10, Duration.ofMillis(20), OverflowPolicy.DROP, null, registry);
+
+        client.getStat("2024-01-01 00:00:00", "2024-01-02 00:00:00", List.of("/events/1"), true);
+
+        verify(delegate).getStat("2024-01-01 00:00:00", "2024-01-02 00:00:00", List.of("/events/1"), true);
+    }
+
+    @Test
+    void constructor_withSpillPolicyWithoutFile_shouldThrowException() {
+        StatsClient delegate = mock(StatsClient.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new AsyncStatsClient(delegate, 10, 10,
+                Duration.ofMillis(20), OverflowPolicy.SPILL, null, registry));
+    }
+
+    // Отклоняет с 400 любую пачку, содержащую хит с заданным uri
+    private StatsClient rejecting(String badUri, List<EndpointHitDto> sent) {
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            List<EndpointHitDto> hits = invocation.getArgument(0);
+            if (hits.stream().anyMatch(hit -> hit.getUri().equals(badUri))) {
+                throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request", null, null, null);
+            }
+            sent.addAll(hits);
+            return null;
+        }).when(delegate).hits(anyList());
+        return delegate;
+    }
+
+    private StatsClient blockingDelegate(CountDownLatch release) {
+        StatsClient delegate = mock(StatsClient.class);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(delegate).hits(anyList());
+        return delegate;
+    }
+
+    // Первый хит забран потоком отправки и висит в delegate.hits
+    private void waitForEmptyQueue() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (client.queueSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private EndpointHitDto hit(String uri) {
+        return new EndpointHitDto("ewm-main-service", uri, "1.1.1.1", LocalDateTime.now().withNano(0));
+    }
+}
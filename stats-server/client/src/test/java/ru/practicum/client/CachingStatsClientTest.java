@@ -0,0 +1,216 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CachingStatsClientTest {
+
+    private static final String START = "1970-01-01 00:00:00";
+    private static final EntityTemplates TEMPLATES = new EntityTemplates(List.of("events:/events/{id}"));
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Runnable> refreshTasks = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private StatsClient delegate;
+    private CachingStatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(StatsClient.class);
+        client = new CachingStatsClient(delegate, Duration.ofSeconds(5), Duration.ofSeconds(60), 1000,
+                TEMPLATES, registry, clock::get, refreshTasks::add);
+    }
+
+    @Test
+    void getViews_shouldFetchOnlyMissingIdsInOneRequest() {
+        when(delegate.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L, 2L), true)).thenReturn(Map.of(1L, 10L));
+        when(delegate.getViews(START, "2024-01-01 12:00:02", "events", List.of(3L), true)).thenReturn(Map.of(3L, 7L));
+
+        Map<Long, Long> first = client.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L, 2L), true);
+        Map<Long, Long> second = client.getViews(START, "2024-01-01 12:00:02", "events", List.of(1L, 2L, 3L), true);
+
+        assertEquals(Map.of(1L, 10L), first);
+        assertEquals(Map.of(1L, 10L, 3L, 7L), second);
+        verify(delegate, times(2)).getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void getViews_withStaleEntry_shouldReturnItAndRefreshInBackground() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), eq(List.of(1L)), eq(true)))
+                .thenReturn(Map.of(1L, 10L))
+                .thenReturn(Map.of(1L, 15L));
+        client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), true);
+
+        clock.set(Duration.ofSeconds(10).toNanos());
+        Map<Long, Long> stale = client.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L), true);
+        Map<Long, Long> staleAgain = client.getViews(START, "2024-01-01 12:00:02", "events", List.of(1L), true);
+
+        assertEquals(Map.of(1L, 10L), stale);
+        assertEquals(Map.of(1L, 10L), staleAgain);
+        assertEquals(1, refreshTasks.size());
+
+        refreshTasks.getFirst().run();
+
+        assertEquals(Map.of(1L, 15L), client.getViews(START, "2024-01-01 12:00:03", "events", List.of(1L), true));
+        assertEquals(1.0, registry.counter("stats.client.cache.requests", "result", "miss").count());
+        assertEquals(2.0, registry.counter("stats.client.cache.requests", "result", "stale").count());
+    }
+
+    @Test
+    void getViews_withExpiredEntry_shouldFetchSynchronously() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), eq(List.of(1L)), eq(false)))
+                .thenReturn(Map.of(1L, 10L))
+                .thenReturn(Map.of(1L, 20L));
+        client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), false);
+
+        clock.set(Duration.ofMinutes(2).toNanos());
+
+        assertEquals(Map.of(1L, 20L), client.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L), false));
+        assertTrue(refreshTasks.isEmpty());
+    }
+
+    @Test
+    void getViews_withoutIds_shouldBypassCache() {
+        client.getViews(START, "2024-01-01 12:00:00", "events", null, true);
+        client.getViews(START, "2024-01-01 12:00:00", "events", null, true);
+
+        verify(delegate, times(2)).getViews(START, "2024-01-01 12:00:00", "events", null, true);
+    }
+
+    @Test
+    void getStat_shouldCachePerUriIncludingUrisWithoutViews() {
+        when(delegate.getStat(START, "2024-01-01 12:00:00", List.of("/events/1", "/events/2"), true))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 3L)));
+
+        client.getStat(START, "2024-01-01 12:00:00", List.of("/events/1", "/events/2"), true);
+        Collection<ViewStats> cached = client.getStat(START, "2024-01-01 12:00:01", List.of("/events/2", "/events/1"), true);
+
+        assertEquals(List.of(new ViewStats("ewm", "/events/1", 3L)), cached);
+        verify(delegate, times(1)).getStat(anyString(), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void getStat_withDifferentUniqueFlag_shouldNotShareEntries() {
+        when(delegate.getStat(eq(START), anyString(), eq(List.of("/events/1")), anyBoolean()))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 3L)));
+
+        client.getStat(START, "2024-01-01 12:00:00", List.of("/events/1"), true);
+        client.getStat(START, "2024-01-01 12:00:00", List.of("/events/1"), false);
+
+        verify(delegate).getStat(START, "2024-01-01 12:00:00", List.of("/events/1"), true);
+        verify(delegate).getStat(START, "2024-01-01 12:00:00", List.of("/events/1"), false);
+    }
+
+    @Test
+    void getViews_withEndInAnotherStep_shouldNotReuseEntry() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), eq(List.of(1L)), eq(true)))
+                .thenReturn(Map.of(1L, 10L))
+                .thenReturn(Map.of(1L, 4L));
+
+        client.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L), true);
+        Map<Long, Long> earlierWindow = client.getViews(START, "2023-06-01 00:00:00", "events", List.of(1L), true);
+
+        assertEquals(Map.of(1L, 4L), earlierWindow);
+        verify(delegate, times(2)).getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void getViews_withDegradedResponse_shouldNotCacheIt() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), eq(List.of(1L)), eq(true)))
+                .thenReturn(DegradedResults.map(Map.of()))
+                .thenReturn(Map.of(1L, 10L));
+
+        assertEquals(Map.of(), client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), true));
+        assertEquals(Map.of(1L, 10L), client.getViews(START, "2024-01-01 12:00:01", "events", List.of(1L), true));
+    }
+
+    @Test
+    void getViews_overMaxEntries_shouldEvictLeastRecentlyUsed() {
+        client = new CachingStatsClient(delegate, Duration.ofSeconds(5), Duration.ofSeconds(60), 2,
+                TEMPLATES, registry, clock::get, refreshTasks::add);
+        when(delegate.getViews(eq(START), anyString(), eq("events"), anyList(), eq(true)))
+                .thenAnswer(invocation -> Map.of(invocation.<List<Long>>getArgument(3).getFirst(), 1L));
+        String end = "2024-01-01 12:00:00";
+
+        client.getViews(START, end, "events", List.of(1L), true);
+        client.getViews(START, end, "events", List.of(2L), true);
+        client.getViews(START, end, "events", List.of(1L), true);
+        client.getViews(START, end, "events", List.of(3L), true);
+        client.getViews(START, end, "events", List.of(1L), true);
+        client.getViews(START, end, "events", List.of(2L), true);
+
+        verify(delegate, times(1)).getViews(START, end, "events", List.of(1L), true);
+        verify(delegate, times(2)).getViews(START, end, "events", List.of(2L), true);
+    }
+
+    @Test
+    void hit_shouldInvalidateViewsOfItsEntityOnly() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), anyList(), eq(true)))
+                .thenReturn(Map.of(1L, 10L, 2L, 20L))
+                .thenReturn(Map.of(1L, 11L));
+        String end = "2024-01-01 12:00:00";
+        client.getViews(START, end, "events", List.of(1L, 2L), true);
+
+        clock.set(1);
+        client.hit(new EndpointHitDto("ewm-main-service", "/events/1", "127.0.0.1", LocalDateTime.now(), 0L));
+        clock.set(2);
+
+        assertEquals(Map.of(1L, 11L, 2L, 20L), client.getViews(START, end, "events", List.of(1L, 2L), true));
+        verify(delegate).getViews(START, end, "events", List.of(1L), true);
+        assertEquals(Map.of(1L, 11L, 2L, 20L), client.getViews(START, end, "events", List.of(1L, 2L), true));
+        verify(delegate, times(2)).getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean());
+    }
+
+    @Test
+    void hits_shouldInvalidateStatsOfTheirUris() {
+        when(delegate.getStat(START, "2024-01-01 12:00:00", List.of("/events"), false))
+                .thenReturn(List.of(new ViewStats("ewm-main-service", "/events", 1L)))
+                .thenReturn(List.of(new ViewStats("ewm-main-service", "/events", 2L)));
+        client.getStat(START, "2024-01-01 12:00:00", List.of("/events"), false);
+
+        clock.set(1);
+        client.hits(List.of(new EndpointHitDto("ewm-main-service", "/events", "127.0.0.1", LocalDateTime.now(), 0L)));
+        clock.set(2);
+        Collection<ViewStats> stats = client.getStat(START, "2024-01-01 12:00:00", List.of("/events"), false);
+
+        assertEquals(2L, stats.iterator().next().getHits());
+    }
+
+    @Test
+    void hit_duringBackgroundRefresh_shouldKeepRefreshedEntryInvalid() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), eq(List.of(1L)), eq(true)))
+                .thenReturn(Map.of(1L, 10L))
+                .thenAnswer(invocation -> {
+                    clock.set(Duration.ofSeconds(11).toNanos());
+                    client.hit(new EndpointHitDto("ewm-main-service", "/events/1", "127.0.0.1",
+                            LocalDateTime.now(), 0L));
+                    return Map.of(1L, 10L);
+                })
+                .thenReturn(Map.of(1L, 11L));
+        client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), true);
+        clock.set(Duration.ofSeconds(10).toNanos());
+        client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), true);
+
+        refreshTasks.getFirst().run();
+        clock.set(Duration.ofSeconds(12).toNanos());
+
+        assertEquals(Map.of(1L, 11L), client.getViews(START, "2024-01-01 12:00:00", "events", List.of(1L), true));
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(ResilienceSettings.builder()
+                .windowSize(10)
+                .minimumCalls(4)
+                .failureRateThreshold(0.5)
+                .slowCallThreshold(Duration.ofMillis(100))
+                .slowCallRateThreshold(0.75)
+                .openDuration(Duration.ofSeconds(10))
+                .halfOpenCalls(2)
+                .build(), clock::get);
+    }
+
+    @Test
+    void onFailure_belowMinimumCalls_shouldStayClosed() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_reachingFailureRate_shouldOpen() {
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_slowCalls_shouldOpen() {
+        long slow = Duration.ofMillis(200).toNanos();
+        breaker.onSuccess(0);
+        breaker.onSuccess(slow);
+        breaker.onSuccess(slow);
+        breaker.onSuccess(slow);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void tryAcquire_afterOpenDuration_shouldAllowLimitedTrialsAndCloseOnSuccess() {
+        openBreaker();
+        clock.set(Duration.ofSeconds(11).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onFailure_inHalfOpen_shouldReopen() {
+        openBreaker();
+        clock.set(Duration.ofSeconds(11).toNanos());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void onSuccess_oldFailuresLeavingWindow_shouldKeepClosed() {
+        for (int i = 0; i < 8; i++) {
+            breaker.onSuccess(0);
+        }
+        breaker.onFailure();
+        breaker.onFailure();
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(0);
+        }
+        // В окне 6 успехов и 4 ошибки: если бы вытесненные ошибки учитывались, доля была бы 60%
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
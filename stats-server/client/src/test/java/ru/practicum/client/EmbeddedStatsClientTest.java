@@ -0,0 +1,157 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryBudgetExceededException;
+import ru.practicum.query.governor.QueryGovernor;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedStatsClientTest {
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    private DriverManagerDataSource dataSource;
+    private EmbeddedStatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        client = client(300, 50_000_000);
+
+        client.hits(List.of(
+                hit("/events/1", "1.1.1.1", now.minusHours(1), null),
+                hit("/events/1", "1.1.1.1", now.minusHours(1), 4),
+                hit("/events/1", "1.1.1.2", now.minusHours(2), null),
+                hit("/events/2", "1.1.1.1", now.minusHours(1), null),
+                hit("/events", "1.1.1.1", now.minusDays(3), null)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+    }
+
+    @Test
+    void getStat_shouldSumHitCountsAndSortByHits() {
+        Collection<ViewStats> stats = client.getStat(format(now.minusDays(1)), format(now), null, false);
+
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 6L),
+                new ViewStats("ewm-main-service", "/events/2", 1L)), stats);
+    }
+
+    @Test
+    void getStat_withUniqueAndUris_shouldCountDistinctIps() {
+        Collection<ViewStats> stats = client.getStat(format(now.minusDays(7)), format(now),
+                List.of("/events/1", "/events"), true);
+
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 2L),
+                new ViewStats("ewm-main-service", "/events", 1L)), stats);
+    }
+
+    @Test
+    void getStat_withInvertedRange_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.getStat(format(now), format(now.minusDays(1)), null, false));
+        assertThrows(IllegalArgumentException.class, () -> client.getStat(null, format(now), null, false));
+    }
+
+    @Test
+    void getStatBatch_shouldCountEachWindowSeparately() {
+        List<List<ViewStats>> result = client.getStatBatch(List.of(
+                new StatsQueryDto(now.minusMinutes(90), now, List.of("/events/1"), false),
+                new StatsQueryDto(now.minusDays(1), now, List.of("/events/1"), true)));
+
+        assertEquals(5L, result.get(0).getFirst().getHits());
+        assertEquals(2L, result.get(1).getFirst().getHits());
+    }
+
+    @Test
+    void getViews_shouldGroupByEntityId() {
+        Map<Long, Long> all = client.getViews(format(now.minusDays(7)), format(now), "events", null, false);
+        Map<Long, Long> unique = client.getViews(format(now.minusDays(7)), format(now), "events",
+                List.of(1L), true);
+
+        assertEquals(Map.of(1L, 6L, 2L, 1L), all);
+        assertEquals(Map.of(1L, 2L), unique);
+    }
+
+    @Test
+    void hit_fromFuture_shouldBeRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> client.hit(hit("/events/3", "1.1.1.1", now.plusDays(1), null)));
+
+        client.hits(List.of(hit("/events/3", "1.1.1.1", now.plusDays(1), null)));
+
+        assertTrue(client.getViews(format(now.minusDays(7)), format(now.plusDays(2)), "events",
+                List.of(3L), false).isEmpty());
+    }
+
+    @Test
+    void hits_withInvalidHit_shouldRejectBatch() {
+        EndpointHitDto blankIp = hit("/events/3", " ", now, null);
+
+        assertThrows(IllegalArgumentException.class, () -> client.hits(List.of(hit("/events/3", "1.1.1.1", now,
+                null), blankIp)));
+        assertThrows(IllegalArgumentException.class, () -> client.hit(hit("/events/3", "1.1.1.1", now, 0)));
+        assertTrue(client.getViews(format(now.minusDays(1)), format(now), "events", List.of(3L), false).isEmpty());
+    }
+
+    @Test
+    void hit_fromAbusiveIp_shouldGoToQuarantine() throws Exception {
+        client.close();
+        client = client(2, 50_000_000);
+
+        for (int i = 0; i < 4; i++) {
+            client.hit(hit("/events/5", "10.0.0.1", now, null));
+        }
+
+        assertEquals(Map.of(5L, 2L), client.getViews(format(now.minusDays(1)), format(now), "events",
+                List.of(5L), false));
+        assertEquals(2, new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM quarantined_hits",
+                Integer.class));
+    }
+
+    @Test
+    void getStat_overBudget_shouldBeRejectedByGovernor() throws Exception {
+        client.close();
+        client = client(300, 2);
+
+        assertThrows(QueryBudgetExceededException.class,
+                () -> client.getStat(format(now.minusDays(7)), format(now), null, false));
+    }
+
+    private EmbeddedStatsClient client(long maxHitsPerWindow, long maxCost) {
+        return new EmbeddedStatsClient(dataSource, new EntityTemplates(List.of("events:/events/{id}")),
+                new AbuseFilter(true, 60, 6, maxHitsPerWindow, 4, 1024),
+                new QueryGovernor(new DataSourceTransactionManager(dataSource), new JdbcTemplate(dataSource),
+                        1_000, 10_000, maxCost, 2, 10, 30, 1000),
+                true);
+    }
+
+    private String format(LocalDateTime time) {
+        return time.format(formatter);
+    }
+
+    private EndpointHitDto hit(String uri, String ip, LocalDateTime timestamp, Integer count) {
+        return new EndpointHitDto("ewm-main-service", uri, ip, timestamp, null, count);
+    }
+}
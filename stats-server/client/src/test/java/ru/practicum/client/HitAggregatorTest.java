@@ -0,0 +1,42 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HitAggregatorTest {
+
+    private final LocalDateTime second = LocalDateTime.of(2024, 5, 10, 12, 0, 1);
+
+    @Test
+    void collapse_shouldMergeHitsWithinSameSecond() {
+        List<EndpointHitDto> collapsed = HitAggregator.collapse(List.of(
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second.withNano(100_000_000)),
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second.withNano(900_000_000)),
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second, null, 3),
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.2", second),
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second.plusSeconds(1))));
+
+        assertEquals(3, collapsed.size());
+        assertEquals(new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second, null, 5), collapsed.get(0));
+        assertEquals(1, collapsed.get(1).getCount());
+        assertEquals("1.1.1.2", collapsed.get(1).getIp());
+        assertEquals(second.plusSeconds(1), collapsed.get(2).getTimestamp());
+    }
+
+    @Test
+    void collapse_shouldKeepHitsWithDurationSeparate() {
+        List<EndpointHitDto> collapsed = HitAggregator.collapse(List.of(
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second, 10L),
+                new EndpointHitDto("ewm", "/events/1", "1.1.1.1", second, 20L)));
+
+        assertEquals(2, collapsed.size());
+        assertNull(collapsed.get(0).getCount());
+        assertEquals(20L, collapsed.get(1).getDuration());
+    }
+}
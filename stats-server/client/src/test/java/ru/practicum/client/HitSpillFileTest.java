@@ -0,0 +1,117 @@
+package ru.practicum.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitSpillFileTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void read_shouldReturnAppendedHitsInBatches() throws IOException {
+        HitSpillFile file = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        file.append(List.of(hit("/events/1", 5L), hit("/events/2", null), hit("/events/3", 0L)));
+
+        HitSpillFile.Batch first = file.read(2);
+        file.commit(first);
+        HitSpillFile.Batch second = file.read(2);
+
+        assertEquals(List.of(hit("/events/1", 5L), hit("/events/2", null)), first.hits());
+        assertEquals(List.of(hit("/events/3", 0L)), second.hits());
+
+        file.commit(second);
+        assertTrue(file.isEmpty());
+        assertFalse(Files.exists(directory.resolve("hits.dat")));
+    }
+
+    @Test
+    void read_shouldPreserveCollapsedHitCount() throws IOException {
+        HitSpillFile file = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        EndpointHitDto collapsed = hit("/events/1", null);
+        collapsed.setCount(7);
+        file.append(List.of(collapsed, hit("/events/2", null)));
+
+        HitSpillFile.Batch batch = file.read(10);
+
+        assertEquals(7, batch.hits().get(0).getCount());
+        assertNull(batch.hits().get(1).getCount());
+    }
+
+    @Test
+    void constructor_shouldResumeFromCommittedOffset() throws IOException {
+        Path path = directory.resolve("hits.dat");
+        HitSpillFile file = new HitSpillFile(path, 1024 * 1024);
+        file.append(List.of(hit("/events/1", null), hit("/events/2", null)));
+        file.commit(file.read(1));
+
+        HitSpillFile reopened = new HitSpillFile(path, 1024 * 1024);
+
+        assertEquals(List.of(hit("/events/2", null)), reopened.read(10).hits());
+    }
+
+    @Test
+    void append_overMaxBytes_shouldRejectHits() throws IOException {
+        HitSpillFile file = new HitSpillFile(directory.resolve("hits.dat"), 100);
+
+        assertTrue(file.append(List.of(hit("/events/1", null))));
+        assertFalse(file.append(List.of(hit("/events/2", null), hit("/events/3", null))));
+        assertEquals(1, file.read(10).hits().size());
+    }
+
+    @Test
+    void commit_ofPrefix_shouldKeepUndeliveredTail() throws IOException {
+        HitSpillFile file = new HitSpillFile(directory.resolve("hits.dat"), 1024 * 1024);
+        file.append(List.of(hit("/events/1", null), hit("/events/2", null), hit("/events/3", null)));
+
+        HitSpillFile.Batch batch = file.read(10);
+        file.commit(batch.prefix(1));
+
+        assertEquals(List.of(hit("/events/2", null), hit("/events/3", null)), file.read(10).hits());
+    }
+
+    @Test
+    void append_afterPartialReplay_shouldNotCountReplayedRecordsAgainstLimit() throws IOException {
+        HitSpillFile probe = new HitSpillFile(directory.resolve("probe.dat"), 1024);
+        probe.append(List.of(hit("/events/1", null)));
+        long recordBytes = Files.size(directory.resolve("probe.dat"));
+        HitSpillFile file = new HitSpillFile(directory.resolve("hits.dat"), recordBytes * 2);
+
+        assertTrue(file.append(List.of(hit("/events/1", null), hit("/events/2", null))));
+        assertFalse(file.append(List.of(hit("/events/3", null))));
+
+        file.commit(file.read(1));
+
+        assertTrue(file.append(List.of(hit("/events/3", null))));
+        assertEquals(List.of(hit("/events/2", null), hit("/events/3", null)), file.read(10).hits());
+    }
+
+    @Test
+    void read_shouldDropTornRecordAtTail() throws IOException {
+        Path path = directory.resolve("hits.dat");
+        HitSpillFile file = new HitSpillFile(path, 1024 * 1024);
+        file.append(List.of(hit("/events/1", null)));
+        Files.write(path, new byte[]{0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+
+        HitSpillFile.Batch batch = file.read(10);
+        file.commit(batch);
+
+        assertEquals(1, batch.hits().size());
+        assertTrue(file.isEmpty());
+    }
+
+    private EndpointHitDto hit(String uri, Long duration) {
+        return new EndpointHitDto("ewm-main-service", uri, "1.1.1.1", LocalDateTime.of(2024, 5, 10, 12, 0, 1),
+                duration);
+    }
+}
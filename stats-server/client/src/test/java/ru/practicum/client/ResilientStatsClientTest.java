@@ -0,0 +1,115 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ResilientStatsClientTest {
+
+    private static final String START = "1970-01-01 00:00:00";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private StatsClient delegate;
+    private ResilientStatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(StatsClient.class);
+        client = new ResilientStatsClient(delegate, ResilienceSettings.builder()
+                .maxConcurrentCalls(1)
+                .bulkheadWait(Duration.ofMillis(10))
+                .windowSize(4)
+                .minimumCalls(2)
+                .failureRateThreshold(0.5)
+                .openDuration(Duration.ofSeconds(30))
+                .build(), registry, clock::get);
+    }
+
+    @Test
+    void getViews_onError_shouldReturnLastKnownCounts() {
+        when(delegate.getViews(eq(START), anyString(), eq("events"), anyList(), eq(true)))
+                .thenReturn(Map.of(1L, 10L, 2L, 3L))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        client.getViews(START, "t0", "events", List.of(1L, 2L), true);
+        Map<Long, Long> fallback = client.getViews(START, "t1", "events", List.of(1L, 3L), true);
+
+        assertEquals(Map.of(1L, 10L), fallback);
+        assertTrue(DegradedResults.isDegraded(fallback));
+        assertEquals(1.0, registry.counter("stats.client.fallback", "reason", "error").count());
+    }
+
+    @Test
+    void getStat_whenCircuitOpen_shouldNotCallServer() {
+        when(delegate.getStat(anyString(), anyString(), anyList(), anyBoolean()))
+                .thenReturn(List.of(new ViewStats("ewm", "/events/1", 4L)))
+                .thenThrow(new IllegalStateException("timeout"));
+
+        client.getStat(START, "t0", List.of("/events/1"), false);
+        client.getStat(START, "t1", List.of("/events/1"), false);
+        assertEquals(CircuitBreaker.State.OPEN, client.circuitState());
+
+        List<ViewStats> fallback = List.copyOf(client.getStat(START, "t2", List.of("/events/1"), false));
+
+        assertEquals(List.of(new ViewStats("ewm", "/events/1", 4L)), fallback);
+        verify(delegate, times(2)).getStat(anyString(), anyString(), anyList(), anyBoolean());
+        assertEquals(1.0, registry.counter("stats.client.fallback", "reason", "open").count());
+        assertEquals(1.0, registry.get("stats.client.circuit.state").gauge().value());
+    }
+
+    @Test
+    void getViews_whenBulkheadIsFull_shouldFallBackWithoutWaitingForServer() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean())).thenAnswer(inv -> {
+            entered.countDown();
+            release.await();
+            return Map.of(1L, 1L);
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> client.getViews(START, "t0", "events", List.of(1L), true));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            Map<Long, Long> rejected = client.getViews(START, "t0", "events", List.of(1L), true);
+
+            assertTrue(rejected.isEmpty());
+            assertEquals(1.0, registry.counter("stats.client.fallback", "reason", "bulkhead").count());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void getStatBatch_onError_shouldPropagateFailure() {
+        when(delegate.getStatBatch(anyList())).thenThrow(new IllegalStateException("timeout"));
+
+        assertThrows(IllegalStateException.class, () -> client.getStatBatch(List.of(new StatsQueryDto(),
+                new StatsQueryDto())));
+        assertEquals(1.0, registry.counter("stats.client.fallback", "reason", "error").count());
+    }
+
+    @Test
+    void hit_shouldBypassCircuitBreaker() {
+        client.hit(new EndpointHitDto());
+
+        verify(delegate).hit(any());
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.ViewStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SingleFlightStatsClientTest {
+
+    private static final String START = "1970-01-01 00:00:00";
+    private static final String END = "2024-01-01 00:00:00";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private StatsClient delegate;
+    private SingleFlightStatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(StatsClient.class);
+        client = new SingleFlightStatsClient(delegate, Duration.ofSeconds(5), registry);
+    }
+
+    @Test
+    void getViews_concurrentIdenticalCalls_shouldShareOneRequest() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getViews(START, END, "events", List.of(1L, 2L), true)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Map.of(1L, 5L);
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Map<Long, Long>> leader = executor.submit(() ->
+                    client.getViews(START, END, "events", List.of(1L, 2L), true));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            List<Future<Map<Long, Long>>> waiters = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                // Порядок и повторы id не влияют на ключ склейки
+                waiters.add(executor.submit(() -> client.getViews(START, END, "events", List.of(2L, 1L, 2L), true)));
+            }
+            while (registry.counter("stats.client.single-flight.coalesced").count() < 50) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertEquals(Map.of(1L, 5L), leader.get());
+            for (Future<Map<Long, Long>> waiter : waiters) {
+                assertEquals(Map.of(1L, 5L), waiter.get());
+            }
+        }
+        verify(delegate, times(1)).getViews(anyString(), anyString(), anyString(), anyList(), anyBoolean());
+        assertEquals(0, client.inFlightCount());
+    }
+
+    @Test
+    void getStat_sequentialCalls_shouldNotBeCoalesced() {
+        client.getStat(START, END, List.of("/events/1"), false);
+        client.getStat(START, END, List.of("/events/1"), null);
+
+        verify(delegate, times(2)).getStat(START, END, List.of("/events/1"), false);
+        assertEquals(0.0, registry.counter("stats.client.single-flight.coalesced").count());
+    }
+
+    @Test
+    void getStat_leaderFailure_shouldPropagateToWaiters() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getStat(START, END, List.of("/events/1"), false)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            throw new IllegalStateException("stats-server недоступен");
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> leader = executor.submit(() -> client.getStat(START, END, List.of("/events/1"), false));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<?> waiter = executor.submit(() -> client.getStat(START, END, List.of("/events/1"), false));
+            while (registry.counter("stats.client.single-flight.coalesced").count() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Exception leaderError = assertThrows(Exception.class, leader::get);
+            Exception waiterError = assertThrows(Exception.class, waiter::get);
+            assertInstanceOf(IllegalStateException.class, leaderError.getCause());
+            assertInstanceOf(IllegalStateException.class, waiterError.getCause());
+        }
+        assertEquals(0, client.inFlightCount());
+    }
+
+    @Test
+    void getViews_waiterTimeout_shouldThrowException() throws Exception {
+        SingleFlightStatsClient shortTimeout = new SingleFlightStatsClient(delegate, Duration.ofMillis(50), registry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getViews(START, END, "events", List.of(1L), true)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Map.of();
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            executor.submit(() -> shortTimeout.getViews(START, END, "events", List.of(1L), true));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            assertThrows(IllegalStateException.class,
+                    () -> shortTimeout.getViews(START, END, "events", List.of(1L), true));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void getViews_leaderTimeout_shouldThrowAndReleaseKey() throws Exception {
+        SingleFlightStatsClient shortTimeout = new SingleFlightStatsClient(delegate, Duration.ofMillis(50), registry);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getViews(START, END, "events", List.of(1L), true))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return Map.of();
+                })
+                .thenReturn(Map.of(1L, 3L));
+
+        assertThrows(IllegalStateException.class,
+                () -> shortTimeout.getViews(START, END, "events", List.of(1L), true));
+        assertEquals(0, shortTimeout.inFlightCount());
+
+        assertEquals(Map.of(1L, 3L), shortTimeout.getViews(START, END, "events", List.of(1L), true));
+        release.countDown();
+        shortTimeout.close();
+    }
+
+    @Test
+    void getStat_shouldGiveEachCallerItsOwnCopy() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getStat(START, END, List.of("/events/1"), false)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return new ArrayList<>(List.of(new ViewStats("ewm", "/events/1", 2L)));
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Collection<ViewStats>> leader = executor.submit(() ->
+                    client.getStat(START, END, List.of("/events/1"), false));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<Collection<ViewStats>> waiter = executor.submit(() ->
+                    client.getStat(START, END, List.of("/events/1"), false));
+            while (registry.counter("stats.client.single-flight.coalesced").count() < 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            Collection<ViewStats> leaderResult = leader.get();
+            leaderResult.clear();
+            assertEquals(List.of(new ViewStats("ewm", "/events/1", 2L)), waiter.get());
+        }
+    }
+}
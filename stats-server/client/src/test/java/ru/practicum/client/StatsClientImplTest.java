@@ -6,6 +6,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -188,4 +189,29 @@ class StatsClientImplTest {
         assertTrue(statsClient instanceof StatsClient);
         assertNotNull(statsClient);
     }
+
+    @Test
+    void testGetStatBatch_withEmptyQueries_shouldThrowException() {
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> statsClient.getStatBatch(List.of())
+        );
+        assertEquals("пакет запросов статистики пуст", exception.getMessage());
+    }
+
+    @Test
+    void testGetStatBatch_withStartAfterEnd_shouldThrowException() {
+        StatsQueryDto query = new StatsQueryDto(
+                LocalDateTime.of(2024, 1, 2, 0, 0),
+                LocalDateTime.of(2024, 1, 1, 0, 0),
+                List.of("/test"),
+                false
+        );
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> statsClient.getStatBatch(List.of(query))
+        );
+        assertEquals("задан не верный диапазон", exception.getMessage());
+    }
 }
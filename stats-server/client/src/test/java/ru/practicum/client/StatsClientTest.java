@@ -8,6 +8,7 @@ import ru.practicum.dto.EndpointHitDto;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,11 +22,14 @@ class StatsClientTest {
         assertTrue(interfaceClass.isInterface());
 
         Method[] methods = interfaceClass.getDeclaredMethods();
-        assertEquals(2, methods.length);
+        assertEquals(5, methods.length);
 
         // Проверяем наличие метода hit
         boolean hasHitMethod = false;
+        boolean hasHitsMethod = false;
         boolean hasGetStatMethod = false;
+        boolean hasGetStatBatchMethod = false;
+        boolean hasGetViewsMethod = false;
 
         for (Method method : methods) {
             if ("hit".equals(method.getName())) {
@@ -35,6 +39,13 @@ class StatsClientTest {
                 assertEquals(EndpointHitDto.class, method.getParameterTypes()[0]);
             }
 
+            if ("hits".equals(method.getName())) {
+                hasHitsMethod = true;
+                assertEquals(void.class, method.getReturnType());
+                assertEquals(1, method.getParameterCount());
+                assertEquals(List.class, method.getParameterTypes()[0]);
+            }
+
             if ("getStat".equals(method.getName())) {
                 hasGetStatMethod = true;
                 assertEquals(Collection.class, method.getReturnType());
@@ -44,10 +55,27 @@ class StatsClientTest {
                 assertEquals(List.class, method.getParameterTypes()[2]);
                 assertEquals(Boolean.class, method.getParameterTypes()[3]);
             }
+
+            if ("getStatBatch".equals(method.getName())) {
+                hasGetStatBatchMethod = true;
+                assertEquals(List.class, method.getReturnType());
+                assertEquals(1, method.getParameterCount());
+                assertEquals(List.class, method.getParameterTypes()[0]);
+            }
+
+            if ("getViews".equals(method.getName())) {
+                hasGetViewsMethod = true;
+                assertEquals(Map.class, method.getReturnType());
+                assertEquals(5, method.getParameterCount());
+                assertEquals(List.class, method.getParameterTypes()[3]);
+            }
         }
 
         assertTrue(hasHitMethod, "Interface should have hit method");
+        assertTrue(hasHitsMethod, "Interface should have hits method");
         assertTrue(hasGetStatMethod, "Interface should have getStat method");
+        assertTrue(hasGetStatBatchMethod, "Interface should have getStatBatch method");
+        assertTrue(hasGetViewsMethod, "Interface should have getViews method");
     }
 
     @Test
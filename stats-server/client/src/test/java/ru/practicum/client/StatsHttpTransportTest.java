@@ -0,0 +1,155 @@
+package ru.practicum.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsHttpTransportTest {
+
+    private HttpServer server;
+    private final List<Received> received = new CopyOnWriteArrayList<>();
+
+    private record Received(String method, String path, String encoding, String body) {
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            InputStream in = "gzip".equals(encoding)
+                    ? new GZIPInputStream(exchange.getRequestBody())
+                    : exchange.getRequestBody();
+            String path = exchange.getRequestURI().getPath();
+            received.add(new Received(exchange.getRequestMethod(), path, encoding, new String(in.readAllBytes())));
+            if (path.equals("/stats")) {
+                byte[] body = "[]".getBytes();
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } else {
+                exchange.sendResponseHeaders(201, -1);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static EndpointHitDto hit(String uri) {
+        EndpointHitDto dto = new EndpointHitDto();
+        dto.setApp("ewm-main-service");
+        dto.setUri(uri);
+        dto.setIp("10.0.0.1");
+        dto.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0));
+        return dto;
+    }
+
+    @Test
+    void pooledTransport_shouldSendRequestsOverReusedClient() {
+        StatsClientImpl client = new StatsClientImpl(url(), StatsTransportSettings.builder()
+                .maxConnections(2)
+                .maxConnectionsPerRoute(2)
+                .build());
+
+        for (int i = 0; i < 5; i++) {
+            client.hit(hit("/events/" + i));
+        }
+
+        assertEquals(5, received.size());
+        assertTrue(received.get(4).body().contains("/events/4"));
+        assertNull(received.get(0).encoding());
+    }
+
+    @Test
+    void http2Transport_shouldFallBackToHttp11WhenServerDoesNotUpgrade() {
+        StatsClientImpl client = new StatsClientImpl(url(), StatsTransportSettings.builder()
+                .http2(true)
+                .build());
+
+        client.hit(hit("/events/1"));
+
+        assertEquals(1, received.size());
+        assertTrue(received.getFirst().body().contains("/events/1"));
+    }
+
+    @Test
+    void getStat_withManyUris_shouldSendThemInPostBody() {
+        StatsClientImpl client = new StatsClientImpl(url(), StatsTransportSettings.builder().build());
+        List<String> inline = IntStream.rangeClosed(1, StatsQueryDto.MAX_INLINE_URIS)
+                .mapToObj(i -> "/events/" + i)
+                .toList();
+        List<String> many = IntStream.rangeClosed(1, StatsQueryDto.MAX_INLINE_URIS + 1)
+                .mapToObj(i -> "/events/" + i)
+                .toList();
+
+        client.getStat("2024-01-01 00:00:00", "2024-01-02 00:00:00", inline, false);
+        client.getStat("2024-01-01 00:00:00", "2024-01-02 00:00:00", many, true);
+
+        assertEquals(2, received.size());
+        assertEquals("GET", received.get(0).method());
+        assertEquals("POST", received.get(1).method());
+        assertEquals("/stats", received.get(1).path());
+        assertTrue(received.get(1).body().contains("\"/events/" + many.size() + "\""));
+        assertTrue(received.get(1).body().contains("\"unique\":true"));
+    }
+
+    @Test
+    void gzipRequests_shouldCompressOnlyBodiesAboveThreshold() {
+        StatsClientImpl client = new StatsClientImpl(url(), StatsTransportSettings.builder()
+                .gzipRequests(true)
+                .gzipMinBytes(1024)
+                .build());
+
+        client.hit(hit("/events/1"));
+        List<EndpointHitDto> batch = new ArrayList<>(Collections.nCopies(50, hit("/events/2")));
+        client.hits(batch);
+
+        assertEquals(2, received.size());
+        assertNull(received.get(0).encoding());
+        assertEquals("gzip", received.get(1).encoding());
+        assertTrue(received.get(1).body().contains("/events/2"));
+    }
+
+    @Test
+    void close_shouldShutDownBothTransports() throws Exception {
+        for (boolean http2 : List.of(false, true)) {
+            StatsClientImpl client = new StatsClientImpl(url(), StatsTransportSettings.builder()
+                    .http2(http2)
+                    .build());
+            client.hit(hit("/events/1"));
+
+            client.close();
+
+            assertThrows(RuntimeException.class, () -> client.hit(hit("/events/2")));
+        }
+        assertEquals(2, received.size());
+    }
+}
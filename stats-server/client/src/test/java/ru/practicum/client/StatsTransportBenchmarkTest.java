@@ -0,0 +1,101 @@
+package ru.practicum.client;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Сравнение транспорта прежнего клиента (новое соединение на запрос) с пулом соединений.
+// Запуск: mvn -pl stats-server/client test -Dtest=StatsTransportBenchmarkTest -Dstats.benchmark=true
+@EnabledIfSystemProperty(named = "stats.benchmark", matches = "true")
+@Slf4j
+class StatsTransportBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 2000;
+
+    @Test
+    void compareTransports() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(Executors.newFixedThreadPool(THREADS));
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            SimpleClientHttpRequestFactory simple = new SimpleClientHttpRequestFactory();
+            run("simple", simple, url);
+            run("pooled", StatsHttpTransport.requestFactory(StatsTransportSettings.builder()
+                    .maxConnections(THREADS)
+                    .maxConnectionsPerRoute(THREADS)
+                    .build()), url);
+            run("jdk-http2", StatsHttpTransport.requestFactory(StatsTransportSettings.builder()
+                    .http2(true)
+                    .build()), url);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void run(String name, ClientHttpRequestFactory factory, String url) throws Exception {
+        try {
+            measure(name, factory, url);
+        } finally {
+            StatsHttpTransport.close(factory);
+        }
+    }
+
+    private void measure(String name, ClientHttpRequestFactory factory, String url) throws Exception {
+        RestClient restClient = RestClient.builder().baseUrl(url).requestFactory(factory).build();
+        EndpointHitDto hit = new EndpointHitDto();
+        hit.setApp("ewm-main-service");
+        hit.setUri("/events/1");
+        hit.setIp("10.0.0.1");
+        hit.setTimestamp(LocalDateTime.now());
+
+        // Прогрев JIT и пула
+        send(restClient, hit, 1, 500);
+        long startNanos = System.nanoTime();
+        send(restClient, hit, THREADS, REQUESTS_PER_THREAD);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long total = (long) THREADS * REQUESTS_PER_THREAD;
+        log.info("{}: {} запросов, {} запросов/с, {} мкс на запрос", name, total,
+                String.format("%.0f", total * 1e9 / elapsedNanos),
+                String.format("%.1f", elapsedNanos / 1e3 / total * THREADS));
+    }
+
+    private void send(RestClient restClient, EndpointHitDto hit, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        restClient.post().uri("/hit").body(hit).retrieve().toBodilessEntity();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
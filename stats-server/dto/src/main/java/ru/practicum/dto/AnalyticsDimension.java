@@ -0,0 +1,10 @@
+package ru.practicum.dto;
+
+public enum AnalyticsDimension {
+    APP,
+    URI,
+    URI_PREFIX,
+    DAY,
+    HOUR,
+    ENTITY_TYPE
+}
@@ -0,0 +1,55 @@
+package ru.practicum.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalyticsQuery {
+
+    @NotNull(message = "Дата начала не может быть пустой")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime start;
+
+    @NotNull(message = "Дата окончания не может быть пустой")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime end;
+
+    // Измерения группировки в порядке колонок ответа; пустой список - один итоговый ряд
+    @Builder.Default
+    private List<@NotNull AnalyticsDimension> groupBy = new ArrayList<>();
+
+    // Сколько сегментов пути брать для URI_PREFIX: /events/1 при глубине 1 -> /events
+    @Min(value = 1, message = "Глубина префикса должна быть не меньше 1")
+    @Max(value = 10, message = "Глубина префикса должна быть не больше 10")
+    @Builder.Default
+    private int uriPrefixDepth = 1;
+
+    private List<String> apps;
+
+    private String uriPrefix;
+
+    private boolean unique;
+
+    // null - сортировка по числу просмотров, иначе по одному из измерений groupBy
+    private AnalyticsDimension orderBy;
+
+    @Builder.Default
+    private boolean descending = true;
+
+    @Positive(message = "Лимит должен быть положительным")
+    private Integer limit;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalyticsRow {
+
+    // Ключ - имя измерения в нижнем регистре (app, uri_prefix, day...)
+    private Map<String, String> dimensions;
+    private Long hits;
+}
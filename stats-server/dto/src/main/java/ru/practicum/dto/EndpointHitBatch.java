@@ -0,0 +1,21 @@
+package ru.practicum.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitBatch {
+
+    @NotEmpty(message = "Пакет хитов не может быть пустым")
+    @Size(max = 1000, message = "В одном пакете может быть не более 1000 хитов")
+    private List<@Valid @NotNull EndpointHitDto> hits;
+}
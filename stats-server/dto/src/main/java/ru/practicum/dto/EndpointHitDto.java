@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.time.LocalDateTime;
 
 @Data
@@ -26,4 +28,20 @@ public class EndpointHitDto {
     @NotNull(message = "Время запроса не может быть пустым")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
+
+    // Длительность обработки запроса в миллисекундах, необязательное поле
+    @PositiveOrZero(message = "Длительность запроса не может быть отрицательной")
+    private Long duration;
+
+    // Число одинаковых хитов (app, uri, ip, секунда), свёрнутых клиентом в одну запись; null означает 1
+    @Positive(message = "Число хитов должно быть положительным")
+    private Integer count;
+
+    public EndpointHitDto(String app, String uri, String ip, LocalDateTime timestamp) {
+        this(app, uri, ip, timestamp, null, null);
+    }
+
+    public EndpointHitDto(String app, String uri, String ip, LocalDateTime timestamp, Long duration) {
+        this(app, uri, ip, timestamp, duration, null);
+    }
 }
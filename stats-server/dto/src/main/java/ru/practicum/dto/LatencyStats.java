@@ -0,0 +1,18 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencyStats {
+
+    private String app;
+    private String uri;
+    private Long count;
+    private Long p50;
+    private Long p90;
+    private Long p99;
+}
@@ -0,0 +1,21 @@
+package ru.practicum.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsBatchRequest {
+
+    @NotEmpty(message = "Список запросов не может быть пустым")
+    @Size(max = 20, message = "В одном пакете может быть не более 20 запросов")
+    private List<@Valid @NotNull StatsQueryDto> queries;
+}
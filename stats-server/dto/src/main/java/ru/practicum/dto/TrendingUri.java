@@ -0,0 +1,18 @@
+package ru.practicum.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrendingUri {
+
+    private String app;
+    private String uri;
+    private Long shortHits;
+    private Long longHits;
+    // Во сколько раз частота в коротком окне выше базовой частоты длинного окна
+    private Double score;
+}
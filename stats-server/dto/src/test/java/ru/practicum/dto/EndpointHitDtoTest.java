@@ -49,6 +49,23 @@ class EndpointHitDtoTest {
         assertNotNull(hit.getTimestamp());
     }
 
+    @Test
+    void testInvalidEndpointHit_NonPositiveCount() {
+        EndpointHitDto hit = new EndpointHitDto(
+                "ewm-main-service",
+                "/events/1",
+                "192.163.0.1",
+                LocalDateTime.now(),
+                null,
+                0
+        );
+
+        Set<ConstraintViolation<EndpointHitDto>> violations = validator.validate(hit);
+
+        assertEquals(1, violations.size());
+        assertTrue(violations.iterator().next().getMessage().contains("Число хитов"));
+    }
+
     @Test
     void testInvalidEndpointHit_BlankApp() {
         EndpointHitDto hit = new EndpointHitDto(
@@ -0,0 +1,65 @@
+package ru.practicum.query;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Распознаёт URI вида /events/{id} по шаблонам "тип:шаблон" из stats.entities.templates
+@Slf4j
+public class EntityTemplates {
+
+    private static final String ID_PLACEHOLDER = "{id}";
+    private static final String REGEX_SPECIALS = ".[]{}()*+?^$|\\";
+
+    private final List<EntityTemplate> templates = new ArrayList<>();
+
+    public EntityTemplates(List<String> definitions) {
+        for (String definition : definitions) {
+            int separator = definition.indexOf(':');
+            if (separator <= 0 || !definition.contains(ID_PLACEHOLDER)) {
+                throw new IllegalArgumentException("Некорректный шаблон сущности: " + definition);
+            }
+            String type = definition.substring(0, separator).trim();
+            String template = definition.substring(separator + 1).trim();
+            String regex = "^" + escape(template).replace(escape(ID_PLACEHOLDER), "([0-9]{1,18})") + "$";
+            templates.add(new EntityTemplate(type, regex, Pattern.compile(regex)));
+            log.info("Шаблон сущности {}: {}", type, template);
+        }
+    }
+
+    public Optional<EntityRef> resolve(String uri) {
+        for (EntityTemplate template : templates) {
+            Matcher matcher = template.pattern().matcher(uri);
+            if (matcher.matches()) {
+                return Optional.of(new EntityRef(template.type(), Long.parseLong(matcher.group(1))));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<EntityTemplate> getTemplates() {
+        return List.copyOf(templates);
+    }
+
+    // Экранирование, совместимое и с java.util.regex, и с регулярными выражениями PostgreSQL
+    private static String escape(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length());
+        for (char c : literal.toCharArray()) {
+            if (REGEX_SPECIALS.indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public record EntityRef(String type, Long id) {
+    }
+
+    public record EntityTemplate(String type, String regex, Pattern pattern) {
+    }
+}
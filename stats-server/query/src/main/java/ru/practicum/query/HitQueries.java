@@ -0,0 +1,152 @@
+package ru.practicum.query;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Подсчёт просмотров по endpoint_hits: просмотры - SUM(hit_count), уникальные - COUNT(DISTINCT ip).
+// Одни и те же запросы выполняют stats-server и встроенный режим ewm-service
+@RequiredArgsConstructor
+public class HitQueries {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Фильтр uri передаётся одним параметром-массивом вместо IN с тысячами плейсхолдеров,
+    // текст запроса и план не зависят от числа uri
+    public List<ViewStats> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", start)
+                .addValue("end", end);
+        StringBuilder sql = new StringBuilder("SELECT app, uri, ")
+                .append(unique ? "COUNT(DISTINCT ip)" : "SUM(hit_count)")
+                .append(" AS hits FROM endpoint_hits WHERE hit_timestamp BETWEEN :start AND :end");
+        if (uris != null && !uris.isEmpty()) {
+            sql.append(" AND uri = ANY(:uris)");
+            params.addValue("uris", array("varchar", uris), Types.ARRAY);
+        }
+        sql.append(" GROUP BY app, uri ORDER BY hits DESC");
+        return jdbcTemplate.query(sql.toString(), params,
+                (rs, rowNum) -> new ViewStats(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    // Все подзапросы считаются одним проходом по таблице: для каждого заводится
+    // своя колонка с условной агрегацией, общий WHERE покрывает объединение окон
+    public List<List<ViewStats>> findStatsBatch(List<StatsQueryDto> queries) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("SELECT app, uri");
+
+        LocalDateTime minStart = queries.getFirst().getStart();
+        LocalDateTime maxEnd = queries.getFirst().getEnd();
+        Set<String> allUris = new LinkedHashSet<>();
+        boolean anyWithoutUris = false;
+
+        for (int i = 0; i < queries.size(); i++) {
+            StatsQueryDto query = queries.get(i);
+            params.addValue("s" + i, query.getStart());
+            params.addValue("e" + i, query.getEnd());
+
+            String condition = "hit_timestamp BETWEEN :s" + i + " AND :e" + i;
+            if (hasUris(query)) {
+                params.addValue("u" + i, query.getUris());
+                condition += " AND uri IN (:u" + i + ")";
+                allUris.addAll(query.getUris());
+            } else {
+                anyWithoutUris = true;
+            }
+
+            if (query.isUnique()) {
+                sql.append(", COUNT(DISTINCT CASE WHEN ").append(condition).append(" THEN ip END) AS q").append(i);
+            } else {
+                sql.append(", SUM(CASE WHEN ").append(condition).append(" THEN hit_count END) AS q").append(i);
+            }
+
+            if (query.getStart().isBefore(minStart)) {
+                minStart = query.getStart();
+            }
+            if (query.getEnd().isAfter(maxEnd)) {
+                maxEnd = query.getEnd();
+            }
+        }
+
+        sql.append(" FROM endpoint_hits WHERE hit_timestamp BETWEEN :minStart AND :maxEnd");
+        params.addValue("minStart", minStart);
+        params.addValue("maxEnd", maxEnd);
+        if (!anyWithoutUris) {
+            sql.append(" AND uri IN (:allUris)");
+            params.addValue("allUris", allUris);
+        }
+        sql.append(" GROUP BY app, uri");
+
+        List<List<ViewStats>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            String app = rs.getString("app");
+            String uri = rs.getString("uri");
+            for (int i = 0; i < queries.size(); i++) {
+                long hits = rs.getLong("q" + i);
+                if (hits > 0) {
+                    results.get(i).add(new ViewStats(app, uri, hits));
+                }
+            }
+        });
+
+        results.forEach(stats -> stats.sort(Comparator.comparing(ViewStats::getHits).reversed()));
+        return results;
+    }
+
+    // Просмотры сущностей по entity_id, проставленному при записи хита по шаблонам EntityTemplates
+    public Map<Long, Long> countEntityViews(String type, LocalDateTime start, LocalDateTime end, List<Long> ids,
+                                            boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("type", type)
+                .addValue("start", start)
+                .addValue("end", end);
+        StringBuilder sql = new StringBuilder("SELECT entity_id, ")
+                .append(unique ? "COUNT(DISTINCT ip)" : "SUM(hit_count)")
+                .append(" AS hits FROM endpoint_hits WHERE entity_type = :type")
+                .append(" AND hit_timestamp BETWEEN :start AND :end");
+        if (ids != null && !ids.isEmpty()) {
+            sql.append(" AND entity_id = ANY(:ids)");
+            params.addValue("ids", array("bigint", ids), Types.ARRAY);
+        }
+        sql.append(" GROUP BY entity_id");
+
+        Map<Long, Long> views = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            views.put(rs.getLong("entity_id"), rs.getLong("hits"));
+        });
+        return views;
+    }
+
+    private static boolean hasUris(StatsQueryDto query) {
+        return query.getUris() != null && !query.getUris().isEmpty();
+    }
+
+    private static AbstractSqlTypeValue array(String elementType, List<?> values) {
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection connection, int sqlType, String typeName)
+                    throws SQLException {
+                return connection.createArrayOf(elementType, values.toArray());
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.query;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+// Проверки хита по аннотациям EndpointHitDto и правилу «не из будущего» для путей записи
+// без @Valid контроллера stats-server
+public final class HitValidation {
+
+    private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private HitValidation() {
+    }
+
+    // Возвращает текст нарушения или null, если хит корректен
+    public static String violation(EndpointHitDto hit, LocalDateTime now) {
+        Set<ConstraintViolation<EndpointHitDto>> violations = VALIDATOR.validate(hit);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        if (hit.getTimestamp().isAfter(now)) {
+            return "Время запроса не может быть в будущем";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.query.abuse;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Отсекает IP, превысившие порог обращений за скользящее окно
+@Slf4j
+public class AbuseFilter {
+
+    private final boolean enabled;
+    private final long maxHitsPerWindow;
+    private final SlidingWindowRateEstimator estimator;
+
+    public AbuseFilter(boolean enabled, long windowSeconds, int slots, long maxHitsPerWindow, int depth, int width) {
+        this.enabled = enabled;
+        this.maxHitsPerWindow = maxHitsPerWindow;
+        this.estimator = new SlidingWindowRateEstimator(windowSeconds, slots, depth, width);
+    }
+
+    public boolean isSuspicious(String ip, LocalDateTime timestamp, int count) {
+        if (!enabled) {
+            return false;
+        }
+        long estimate = estimator.addAndEstimate(ip, timestamp.toEpochSecond(ZoneOffset.UTC), count);
+        if (estimate <= maxHitsPerWindow) {
+            return false;
+        }
+        // Свёрнутая запись может перешагнуть порог сразу на несколько хитов
+        if (estimate - count <= maxHitsPerWindow) {
+            log.warn("IP {} превысил порог в {} обращений за окно, хиты не попадают в статистику", ip, maxHitsPerWindow);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.query.abuse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Count-min sketch: оценка частоты ключа сверху с памятью depth * width независимо от числа ключей
+public class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final int[][] counters;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Размеры count-min sketch должны быть положительными");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.counters = new int[depth][width];
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, int amount) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            int[] line = counters[row];
+            int column = bucket(h1, h2, row);
+            line[column] = (int) Math.min(Integer.MAX_VALUE, (long) line[column] + amount);
+        }
+    }
+
+    public long estimate(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[row][bucket(h1, h2, row)]);
+        }
+        return min;
+    }
+
+    public void clear() {
+        for (int[] line : counters) {
+            Arrays.fill(line, 0);
+        }
+    }
+
+    // Двойное хеширование (Kirsch–Mitzenmacher): строки таблицы используют h1 + row * h2
+    private int bucket(int h1, int h2, int row) {
+        return Math.floorMod(h1 + row * h2, width);
+    }
+
+    // 64-битный FNV-1a с финальным перемешиванием из MurmurHash3
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.query.abuse;
+
+// Скользящее окно из кольца count-min sketch'ей: каждый слот покрывает windowSeconds / slots,
+// при переходе времени в новый слот самый старый очищается и переиспользуется
+public class SlidingWindowRateEstimator {
+
+    private final CountMinSketch[] slots;
+    private final long slotSeconds;
+    private long currentSlot;
+    private boolean started;
+
+    public SlidingWindowRateEstimator(long windowSeconds, int slotCount, int depth, int width) {
+        if (slotCount <= 0 || windowSeconds < slotCount) {
+            throw new IllegalArgumentException("Окно должно содержать хотя бы одну секунду на слот");
+        }
+        this.slotSeconds = windowSeconds / slotCount;
+        this.slots = new CountMinSketch[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new CountMinSketch(depth, width);
+        }
+    }
+
+    // Учитывает обращение и возвращает оценку числа обращений ключа за окно.
+    // Хиты старше окна (например, досланные с опозданием) не учитываются и не фильтруются
+    public long addAndEstimate(String key, long epochSecond) {
+        return addAndEstimate(key, epochSecond, 1);
+    }
+
+    public synchronized long addAndEstimate(String key, long epochSecond, int count) {
+        long slot = epochSecond / slotSeconds;
+        if (!started) {
+            currentSlot = slot;
+            started = true;
+        } else if (slot <= currentSlot - slots.length) {
+            return 0;
+        } else if (slot > currentSlot) {
+            advanceTo(slot);
+        }
+        slots[(int) Math.floorMod(slot, (long) slots.length)].add(key, count);
+
+        long estimate = 0;
+        for (CountMinSketch sketch : slots) {
+            estimate += sketch.estimate(key);
+        }
+        return estimate;
+    }
+
+    private void advanceTo(long slot) {
+        long steps = Math.min(slot - currentSlot, slots.length);
+        for (long i = 0; i < steps; i++) {
+            slots[(int) Math.floorMod(slot - i, (long) slots.length)].clear();
+        }
+        currentSlot = slot;
+    }
+}
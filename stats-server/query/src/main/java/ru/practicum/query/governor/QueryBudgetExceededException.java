@@ -0,0 +1,8 @@
+package ru.practicum.query.governor;
+
+public class QueryBudgetExceededException extends RuntimeException {
+
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.query.governor;
+
+public enum QueryClass {
+    CHEAP,
+    STANDARD,
+    HEAVY
+}
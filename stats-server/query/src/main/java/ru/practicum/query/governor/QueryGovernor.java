@@ -0,0 +1,182 @@
+package ru.practicum.query.governor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Оценивает стоимость запроса статистики, отклоняет непомерные и выполняет остальные с таймаутом по классу
+@Slf4j
+public class QueryGovernor {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\":\\s*(\\d+)");
+
+    // Стоимость запроса, который не удалось оценить
+    public static final long UNKNOWN_COST = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<QueryClass, TransactionTemplate> transactions = new EnumMap<>(QueryClass.class);
+    private final long standardCost;
+    private final long heavyCost;
+    private final long maxCost;
+    private final long slowQueryMillis;
+    // EXPLAIN (FORMAT JSON) есть только у PostgreSQL; определяется по метаданным при первой оценке
+    private volatile Boolean plannerEstimates;
+
+    public QueryGovernor(PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                         long standardCost, long heavyCost, long maxCost,
+                         int cheapTimeout, int standardTimeout, int heavyTimeout, long slowQueryMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.standardCost = standardCost;
+        this.heavyCost = heavyCost;
+        this.maxCost = maxCost;
+        this.slowQueryMillis = slowQueryMillis;
+        transactions.put(QueryClass.CHEAP, readOnlyTransaction(transactionManager, cheapTimeout));
+        transactions.put(QueryClass.STANDARD, readOnlyTransaction(transactionManager, standardTimeout));
+        transactions.put(QueryClass.HEAVY, readOnlyTransaction(transactionManager, heavyTimeout));
+    }
+
+    // Стоимость - оценка числа строк endpoint_hits в диапазоне с учётом фильтра uri,
+    // уникальные IP вдвое дороже из-за DISTINCT. Длинный диапазон по редким uri остаётся дешёвым,
+    // а запрос сверх лимита отклоняется явно, без усечения результата. Если оценить стоимость
+    // за таймаут дешёвого класса не удалось, запрос выполняется как тяжёлый
+    public QueryPlan plan(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        long rows;
+        try {
+            rows = estimateRows(start, end, uris);
+        } catch (QueryTimeoutException | TransactionTimedOutException e) {
+            log.warn("Не удалось оценить стоимость запроса за отведённое время, диапазон {} - {}, uris {}: {}",
+                    start, end, uris, e.getMessage());
+            return new QueryPlan(start, end, uris, unique, UNKNOWN_COST, QueryClass.HEAVY);
+        }
+        long cost = rows * (unique ? 2 : 1);
+        if (cost > maxCost) {
+            throw new QueryBudgetExceededException("Запрос затрагивает слишком много строк (оценка " + cost
+                    + ", лимит " + maxCost + "): сузьте диапазон дат или укажите uris");
+        }
+        QueryClass queryClass = cost > heavyCost
+                ? QueryClass.HEAVY
+                : cost > standardCost ? QueryClass.STANDARD : QueryClass.CHEAP;
+        return new QueryPlan(start, end, uris, unique, cost, queryClass);
+    }
+
+    // На PostgreSQL берётся оценка планировщика по индексу hit_timestamp без чтения строк,
+    // иначе - подсчёт, ограниченный maxCost + 1 строкой. Ошибка EXPLAIN на PostgreSQL переводит
+    // на подсчёт только этот запрос. Оба запроса идут в отдельных транзакциях с таймаутом дешёвого класса:
+    // после ошибки PostgreSQL не выполняет в транзакции следующих запросов
+    long estimateRows(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Object> args = new ArrayList<>();
+        String where = whereClause(start, end, uris, args);
+        TransactionTemplate transaction = transactions.get(QueryClass.CHEAP);
+        if (plannerEstimatesSupported()) {
+            try {
+                String plan = transaction.execute(status -> String.join("\n",
+                        jdbcTemplate.query("EXPLAIN (FORMAT JSON) SELECT 1" + where,
+                                (rs, rowNum) -> rs.getString(1), args.toArray())));
+                Matcher matcher = PLAN_ROWS.matcher(plan == null ? "" : plan);
+                if (matcher.find()) {
+                    return Long.parseLong(matcher.group(1));
+                }
+                log.warn("В плане запроса нет оценки строк, стоимость считается подсчётом строк");
+            } catch (QueryTimeoutException | TransactionTimedOutException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("Оценка планировщика не получена, стоимость считается подсчётом строк: {}",
+                        e.getMessage());
+            }
+        }
+        args.add(maxCost + 1);
+        Long rows = transaction.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1" + where + " LIMIT ?) t", Long.class, args.toArray()));
+        return rows == null ? 0 : rows;
+    }
+
+    // Таймаут транзакции Spring переносится на statement timeout и JPA-запросов, и JdbcTemplate
+    public <T> T execute(QueryPlan plan, Supplier<T> query) {
+        long startedAt = System.nanoTime();
+        T result = transactions.get(plan.queryClass()).execute(status -> query.get());
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        if (plan.queryClass() == QueryClass.HEAVY || elapsedMillis >= slowQueryMillis) {
+            log.warn("Тяжёлый запрос статистики: класс {}, оценка {}, {} мс, диапазон {} - {}, uris {}, unique {}\n{}",
+                    plan.queryClass(), plan.cost(), elapsedMillis, plan.start(), plan.end(), plan.uris(),
+                    plan.unique(), explain(plan));
+        }
+        return result;
+    }
+
+    private String explain(QueryPlan plan) {
+        List<Object> args = new ArrayList<>();
+        String sql = "EXPLAIN SELECT app, uri, " + (plan.unique() ? "COUNT(DISTINCT ip)" : "SUM(hit_count)")
+                + whereClause(plan.start(), plan.end(), plan.uris(), args) + " GROUP BY app, uri";
+        try {
+            return String.join("\n", jdbcTemplate.query(sql, (rs, rowNum) -> rs.getString(1),
+                    args.toArray()));
+        } catch (RuntimeException e) {
+            log.debug("Не удалось получить план запроса", e);
+            return "план недоступен: " + e.getMessage();
+        }
+    }
+
+    private boolean plannerEstimatesSupported() {
+        Boolean supported = plannerEstimates;
+        if (supported == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            supported = "PostgreSQL".equals(product);
+            plannerEstimates = supported;
+            if (!supported) {
+                log.info("База {} не даёт оценку планировщика, стоимость запросов считается "
+                        + "ограниченным подсчётом строк", product);
+            }
+        }
+        return supported;
+    }
+
+    // Фильтр uri - один параметр-массив, как в HitQueries: текст запроса не зависит от числа uri
+    private static String whereClause(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                      List<Object> args) {
+        StringBuilder sql = new StringBuilder(" FROM endpoint_hits WHERE hit_timestamp BETWEEN ? AND ?");
+        args.add(start);
+        args.add(end);
+        if (uris != null && !uris.isEmpty()) {
+            sql.append(" AND uri = ANY(?)");
+            args.add(new SqlParameterValue(Types.ARRAY, new AbstractSqlTypeValue() {
+                @Override
+                protected Object createTypeValue(Connection connection, int sqlType, String typeName)
+                        throws SQLException {
+                    return connection.createArrayOf("varchar", uris.toArray());
+                }
+            }));
+        }
+        return sql.toString();
+    }
+
+    private static TransactionTemplate readOnlyTransaction(PlatformTransactionManager transactionManager,
+                                                           int timeoutSeconds) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setTimeout(timeoutSeconds);
+        return template;
+    }
+
+    public record QueryPlan(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            long cost, QueryClass queryClass) {
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityTemplatesTest {
+
+    private final EntityTemplates resolver = new EntityTemplates(
+            List.of("events:/events/{id}", "compilations:/compilations/{id}"));
+
+    @Test
+    void resolve_shouldExtractTypeAndId() {
+        Optional<EntityTemplates.EntityRef> ref = resolver.resolve("/events/15");
+
+        assertTrue(ref.isPresent());
+        assertEquals("events", ref.get().type());
+        assertEquals(15L, ref.get().id());
+        assertEquals(3L, resolver.resolve("/compilations/3").orElseThrow().id());
+    }
+
+    @Test
+    void resolve_shouldIgnoreNonMatchingUris() {
+        assertTrue(resolver.resolve("/events").isEmpty());
+        assertTrue(resolver.resolve("/events/abc").isEmpty());
+        assertTrue(resolver.resolve("/events/1/comments").isEmpty());
+    }
+
+    @Test
+    void constructor_withoutPlaceholder_shouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> new EntityTemplates(List.of("events:/events")));
+    }
+}
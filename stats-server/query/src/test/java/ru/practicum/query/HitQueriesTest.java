@@ -0,0 +1,113 @@
+package ru.practicum.query;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.practicum.dto.StatsQueryDto;
+import ru.practicum.dto.ViewStats;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitQueriesTest {
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    private JdbcTemplate jdbcTemplate;
+    private HitQueries queries;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        queries = new HitQueries(new NamedParameterJdbcTemplate(jdbcTemplate));
+        jdbcTemplate.execute("CREATE TABLE endpoint_hits (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app VARCHAR(255) NOT NULL, uri VARCHAR(512) NOT NULL, ip VARCHAR(45) NOT NULL, " +
+                "hit_timestamp TIMESTAMP NOT NULL, duration_ms BIGINT, entity_type VARCHAR(64), " +
+                "entity_id BIGINT, hit_count INTEGER NOT NULL DEFAULT 1)");
+
+        insert("/uri1", "1.1.1.1", now.minusDays(3), null, null, 1);
+        insert("/uri1", "1.1.1.1", now.minusMinutes(30), null, null, 1);
+        insert("/uri1", "1.1.1.2", now.minusMinutes(10), null, null, 1);
+        insert("/uri2", "1.1.1.1", now.minusHours(5), null, null, 1);
+        insert("/events/7", "1.1.1.1", now.minusHours(1), "events", 7L, 1);
+        insert("/events/7", "1.1.1.1", now.minusHours(1), "events", 7L, 3);
+    }
+
+    @Test
+    void findStats_shouldFilterByArrayParameter() {
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            uris.add("/missing/" + i);
+        }
+        uris.add("/uri1");
+        uris.add("/uri2");
+
+        List<ViewStats> all = queries.findStats(now.minusDays(1), now, uris, false);
+
+        assertEquals(List.of(new ViewStats("app1", "/uri1", 2L), new ViewStats("app1", "/uri2", 1L)), all);
+    }
+
+    @Test
+    void findStats_withoutUris_shouldSumHitCounts() {
+        List<ViewStats> all = queries.findStats(now.minusDays(1), now, null, false);
+
+        assertEquals(new ViewStats("app1", "/events/7", 4L), all.getFirst());
+        assertEquals(3, all.size());
+    }
+
+    @Test
+    void findStatsBatch_shouldCountEachWindowSeparately() {
+        List<List<ViewStats>> result = queries.findStatsBatch(List.of(
+                new StatsQueryDto(now.minusYears(1), now, List.of("/uri1"), false),
+                new StatsQueryDto(now.minusDays(1), now, List.of("/uri1"), false),
+                new StatsQueryDto(now.minusHours(1), now, List.of("/uri1"), true)
+        ));
+
+        assertEquals(3, result.size());
+        assertEquals(3L, result.get(0).getFirst().getHits());
+        assertEquals(2L, result.get(1).getFirst().getHits());
+        assertEquals(2L, result.get(2).getFirst().getHits());
+    }
+
+    @Test
+    void findStatsBatch_withoutUris_shouldReturnAllUrisSortedByHits() {
+        List<List<ViewStats>> result = queries.findStatsBatch(List.of(
+                new StatsQueryDto(now.minusDays(1), now, null, false),
+                new StatsQueryDto(now.minusHours(1), now, List.of("/uri2"), false)
+        ));
+
+        List<ViewStats> allUris = result.get(0);
+        assertEquals(3, allUris.size());
+        assertEquals("/events/7", allUris.getFirst().getUri());
+        assertEquals(2L, allUris.get(1).getHits());
+
+        assertTrue(result.get(1).isEmpty());
+    }
+
+    @Test
+    void countEntityViews_shouldGroupByNumericId() {
+        Map<Long, Long> all = queries.countEntityViews("events", now.minusDays(1), now, List.of(7L), false);
+        Map<Long, Long> unique = queries.countEntityViews("events", now.minusDays(1), now, null, true);
+
+        assertEquals(Map.of(7L, 4L), all);
+        assertEquals(Map.of(7L, 1L), unique);
+    }
+
+    private void insert(String uri, String ip, LocalDateTime timestamp, String entityType, Long entityId,
+                        int count) {
+        jdbcTemplate.update("INSERT INTO endpoint_hits (app, uri, ip, hit_timestamp, entity_type, entity_id, "
+                        + "hit_count) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                "app1", uri, ip, Timestamp.valueOf(timestamp), entityType, entityId, count);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.query;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitValidationTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Test
+    void violation_shouldFollowDtoConstraints() {
+        EndpointHitDto valid = new EndpointHitDto("ewm-main-service", "/events/1", "1.1.1.1", now);
+        EndpointHitDto blankIp = new EndpointHitDto("ewm-main-service", "/events/1", " ", now);
+        EndpointHitDto zeroCount = new EndpointHitDto("ewm-main-service", "/events/1", "1.1.1.1", now, null, 0);
+
+        assertNull(HitValidation.violation(valid, now));
+        assertEquals("IP-адрес не может быть пустым", HitValidation.violation(blankIp, now));
+        assertEquals("Число хитов должно быть положительным", HitValidation.violation(zeroCount, now));
+    }
+
+    @Test
+    void violation_withFutureTimestamp_shouldBeReported() {
+        EndpointHitDto future = new EndpointHitDto("ewm-main-service", "/events/1", "1.1.1.1", now.plusSeconds(1));
+
+        assertEquals("Время запроса не может быть в будущем", HitValidation.violation(future, now));
+    }
+}
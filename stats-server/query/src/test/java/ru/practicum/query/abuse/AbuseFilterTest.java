@@ -0,0 +1,55 @@
+package ru.practicum.query.abuse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AbuseFilterTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 1, 1, 12, 0, 0);
+
+    @Test
+    void isSuspicious_shouldFlagIpOnlyAfterThreshold() {
+        AbuseFilter filter = new AbuseFilter(true, 60, 6, 5, 4, 1024);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(filter.isSuspicious("10.0.0.1", now.plusSeconds(i), 1));
+        }
+        assertTrue(filter.isSuspicious("10.0.0.1", now.plusSeconds(5), 1));
+        assertFalse(filter.isSuspicious("10.0.0.2", now.plusSeconds(5), 1));
+    }
+
+    @Test
+    void isSuspicious_shouldForgetHitsOutsideSlidingWindow() {
+        AbuseFilter filter = new AbuseFilter(true, 60, 6, 3, 4, 1024);
+
+        for (int i = 0; i < 3; i++) {
+            filter.isSuspicious("10.0.0.1", now, 1);
+        }
+        assertTrue(filter.isSuspicious("10.0.0.1", now.plusSeconds(1), 1));
+        assertFalse(filter.isSuspicious("10.0.0.1", now.plusMinutes(2), 1));
+    }
+
+    @Test
+    void isSuspicious_whenDisabled_shouldNeverFlag() {
+        AbuseFilter filter = new AbuseFilter(false, 60, 6, 1, 4, 1024);
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(filter.isSuspicious("10.0.0.1", now, 1));
+        }
+    }
+
+    @Test
+    void countMinSketch_shouldNeverUnderestimate() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("ip-" + (i % 100));
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sketch.estimate("ip-" + i) >= 10);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.query.governor;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import ru.practicum.query.governor.QueryGovernor.QueryPlan;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class QueryGovernorTest {
+
+    private final LocalDateTime end = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private PlatformTransactionManager transactionManager;
+    private JdbcTemplate jdbcTemplate;
+    private QueryGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        governor = new QueryGovernor(transactionManager, jdbcTemplate,
+                1_000, 10_000, 100_000, 2, 10, 30, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void plan_shouldUsePlannerRowEstimateAndDoubleItForUnique() {
+        plannerEstimates(500);
+
+        assertEquals(500, governor.plan(end.minusYears(1), end, List.of("/a"), false).cost());
+        assertEquals(1_000, governor.plan(end.minusYears(1), end, List.of("/a"), true).cost());
+        verify(jdbcTemplate, times(2)).query(startsWith("EXPLAIN (FORMAT JSON) SELECT 1 FROM endpoint_hits"),
+                any(RowMapper.class), eq(end.minusYears(1)), eq(end), any(SqlParameterValue.class));
+        verify(jdbcTemplate, times(2)).query(endsWith("AND uri = ANY(?)"), any(RowMapper.class),
+                any(Object[].class));
+    }
+
+    @Test
+    void plan_withoutPlannerEstimate_shouldFallBackToBoundedCount() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(Object[].class)))
+                .thenReturn(42L);
+
+        QueryPlan plan = governor.plan(end.minusDays(1), end, null, false);
+
+        assertEquals(42, plan.cost());
+        verify(jdbcTemplate).queryForObject(contains("LIMIT ?"), eq(Long.class),
+                eq(end.minusDays(1)), eq(end), eq(100_001L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void plan_whenExplainFailsOnPostgres_shouldCountOnlyThisQuery() {
+        postgres();
+        when(jdbcTemplate.query(startsWith("EXPLAIN (FORMAT JSON)"), any(RowMapper.class), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("соединение разорвано"))
+                .thenReturn(List.of("[{\"Plan\": {\"Plan Rows\": 7}}]"));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(Object[].class)))
+                .thenReturn(42L);
+
+        assertEquals(42, governor.plan(end.minusDays(1), end, null, false).cost());
+        assertEquals(7, governor.plan(end.minusDays(1), end, null, false).cost());
+        verify(jdbcTemplate, times(1)).queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class),
+                any(Object[].class));
+    }
+
+    @Test
+    void plan_whenBoundedCountTimesOut_shouldRunQueryAsHeavy() {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        QueryPlan plan = governor.plan(end.minusYears(1), end, null, true);
+
+        assertEquals(QueryClass.HEAVY, plan.queryClass());
+        assertEquals(QueryGovernor.UNKNOWN_COST, plan.cost());
+        verify(transactionManager).getTransaction(argThat((TransactionDefinition definition) ->
+                definition.getTimeout() == 2 && definition.isReadOnly()));
+    }
+
+    @Test
+    void plan_shouldClassifyByThresholds() {
+        plannerEstimates(500);
+        QueryPlan cheap = governor.plan(end.minusYears(1), end, null, false);
+        plannerEstimates(5_000);
+        QueryPlan standard = governor.plan(end.minusDays(1), end, null, false);
+        plannerEstimates(50_000);
+        QueryPlan heavy = governor.plan(end.minusDays(1), end, List.of("/a"), false);
+
+        assertEquals(QueryClass.CHEAP, cheap.queryClass());
+        assertEquals(QueryClass.STANDARD, standard.queryClass());
+        assertEquals(QueryClass.HEAVY, heavy.queryClass());
+    }
+
+    @Test
+    void plan_overMaxCost_shouldThrowException() {
+        plannerEstimates(60_000);
+
+        assertThrows(QueryBudgetExceededException.class,
+                () -> governor.plan(end.minusDays(1), end, null, true));
+    }
+
+    @Test
+    void execute_shouldApplyTimeoutOfQueryClass() {
+        plannerEstimates(5_000);
+        QueryPlan standard = governor.plan(end.minusDays(1), end, null, false);
+
+        String result = governor.execute(standard, () -> "ok");
+
+        assertEquals("ok", result);
+        verify(transactionManager).getTransaction(argThat((TransactionDefinition definition) ->
+                definition.getTimeout() == 10 && definition.isReadOnly()));
+        verify(jdbcTemplate, never()).query(startsWith("EXPLAIN SELECT"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void execute_heavyQuery_shouldLogPlan() {
+        plannerEstimates(50_000);
+        QueryPlan heavy = governor.plan(end.minusDays(30), end, List.of("/a", "/b"), false);
+
+        governor.execute(heavy, () -> "ok");
+
+        verify(jdbcTemplate).query(startsWith("EXPLAIN SELECT"), any(RowMapper.class), any(Object[].class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void postgres() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void plannerEstimates(long rows) {
+        postgres();
+        when(jdbcTemplate.query(startsWith("EXPLAIN (FORMAT JSON)"), any(RowMapper.class), any(Object[].class)))
+                .thenReturn(List.of("[{\"Plan\": {\"Node Type\": \"Index Scan\", \"Plan Rows\": " + rows + "}}]"));
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.service.archive;
+
+public record ArchivedHit(String app,
+                          String uri,
+                          String ip,
+                          long epochSecond,
+                          Long duration,
+                          String entityType,
+                          Long entityId,
+                          int count) {
+}
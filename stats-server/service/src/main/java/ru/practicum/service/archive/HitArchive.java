@@ -0,0 +1,367 @@
+package ru.practicum.service.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Холодный уровень хранения: закрытые сутки старше hot-retention-days выгружаются из endpoint_hits
+// в сжатые колоночные сегменты на диске. Строки в БД и в архиве не пересекаются, поэтому
+// результат запроса = БД + архив, а запросы с началом после границы архива идут только в БД.
+// Сегменты, целиком покрытые диапазоном запроса, читаются из кэша сводок по (app, uri, сущность),
+// сырые строки распаковываются только для крайних суток, попавших в диапазон частично
+@Component
+@Slf4j
+public class HitArchive {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PENDING_SUFFIX = ".seg.tmp";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int hotRetentionDays;
+    private final int retentionDays;
+    private final CopyOnWriteArrayList<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Map<Path, SegmentSummary> summaries;
+    // Все архивные хиты строго раньше этой отметки (эпоха в секундах)
+    private volatile long boundary = Long.MIN_VALUE;
+
+    public HitArchive(JdbcTemplate jdbcTemplate,
+                      TransactionTemplate transactionTemplate,
+                      @Value("${stats.archive.enabled:false}") boolean enabled,
+                      @Value("${stats.archive.dir:archive}") String directory,
+                      @Value("${stats.archive.hot-retention-days:30}") int hotRetentionDays,
+                      @Value("${stats.archive.retention-days:365}") int retentionDays,
+                      @Value("${stats.archive.summary-cache-segments:400}") int summaryCacheSegments)
+            throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.hotRetentionDays = hotRetentionDays;
+        this.retentionDays = retentionDays;
+        this.summaries = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, SegmentSummary> eldest) {
+                return size() > summaryCacheSegments;
+            }
+        });
+        if (enabled) {
+            Files.createDirectories(this.directory);
+            recoverPendingSegments();
+            loadCatalog();
+        }
+    }
+
+    public boolean reaches(LocalDateTime start) {
+        return !segments.isEmpty() && toEpoch(start) < boundary;
+    }
+
+    // filter и key для целиком покрытых сегментов получают представителя группы без ip и времени,
+    // поэтому должны зависеть только от app, uri и сущности
+    public <K> Map<K, Long> countHits(LocalDateTime start, LocalDateTime end,
+                                      Predicate<ArchivedHit> filter, Function<ArchivedHit, K> key) {
+        Map<K, Long> counts = new HashMap<>();
+        scan(start, end, filter,
+                (group, totals) -> counts.merge(key.apply(group), totals.hits(), Long::sum),
+                hit -> counts.merge(key.apply(hit), (long) hit.count(), Long::sum));
+        return counts;
+    }
+
+    // Уникальные ip возвращаются отсортированными 64-битными хешами без повторов (см. ipHash)
+    public <K> Map<K, long[]> collectIpHashes(LocalDateTime start, LocalDateTime end,
+                                              Predicate<ArchivedHit> filter, Function<ArchivedHit, K> key) {
+        Map<K, LongBuffer> hashes = new HashMap<>();
+        scan(start, end, filter,
+                (group, totals) -> hashes.computeIfAbsent(key.apply(group), k -> new LongBuffer())
+                        .addAll(totals.ipHashes()),
+                hit -> hashes.computeIfAbsent(key.apply(hit), k -> new LongBuffer()).add(ipHash(hit.ip())));
+        Map<K, long[]> result = new HashMap<>(hashes.size() * 2);
+        hashes.forEach((k, buffer) -> result.put(k, buffer.toSortedDistinct()));
+        return result;
+    }
+
+    // Число уникальных ip в объединении архивных хешей и ip из БД
+    public static long countDistinct(long[] archivedHashes, Collection<String> ips) {
+        LongBuffer buffer = new LongBuffer();
+        if (archivedHashes != null) {
+            buffer.addAll(archivedHashes);
+        }
+        ips.forEach(ip -> buffer.add(ipHash(ip)));
+        return buffer.toSortedDistinct().length;
+    }
+
+    // FNV-1a 64: на объёмах статистики вероятность коллизии пренебрежимо мала
+    public static long ipHash(String ip) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < ip.length(); i++) {
+            hash ^= ip.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void scan(LocalDateTime start, LocalDateTime end, Predicate<ArchivedHit> filter,
+                      BiConsumer<ArchivedHit, GroupTotals> summaryConsumer, Consumer<ArchivedHit> rawConsumer) {
+        long from = toEpoch(start);
+        long to = toEpoch(end);
+        for (Segment segment : segments) {
+            HitSegment.Header header = segment.header();
+            if (!header.overlaps(from, to)) {
+                continue;
+            }
+            if (from <= header.rangeStart() && to >= header.rangeEnd() - 1) {
+                summaryOf(segment).groups().forEach((group, totals) -> {
+                    if (filter.test(group)) {
+                        summaryConsumer.accept(group, totals);
+                    }
+                });
+                continue;
+            }
+            read(segment, hit -> {
+                if (hit.epochSecond() >= from && hit.epochSecond() <= to && filter.test(hit)) {
+                    rawConsumer.accept(hit);
+                }
+            });
+        }
+    }
+
+    private SegmentSummary summaryOf(Segment segment) {
+        SegmentSummary summary = summaries.get(segment.path());
+        if (summary == null) {
+            List<ArchivedHit> hits = new ArrayList<>(segment.header().rows());
+            read(segment, hits::add);
+            summary = SegmentSummary.of(segment.header(), hits);
+            summaries.put(segment.path(), summary);
+        }
+        return summary;
+    }
+
+    private void read(Segment segment, Consumer<ArchivedHit> consumer) {
+        try {
+            HitSegment.read(segment.path(), consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать сегмент архива " + segment.path(), e);
+        }
+    }
+
+    @Scheduled(cron = "${stats.archive.cron:0 30 3 * * *}")
+    public void exportClosedDays() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(hotRetentionDays).atStartOfDay();
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(hit_timestamp) FROM endpoint_hits WHERE hit_timestamp < ?", Timestamp.class,
+                Timestamp.valueOf(cutoff));
+        if (oldest != null) {
+            for (LocalDate day = oldest.toLocalDateTime().toLocalDate(); day.atStartOfDay().isBefore(cutoff);
+                 day = day.plusDays(1)) {
+                exportDay(day);
+            }
+        }
+        dropExpiredSegments();
+    }
+
+    void exportDay(LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        List<ArchivedHit> hits = new ArrayList<>();
+        long[] maxId = {0};
+        jdbcTemplate.query("SELECT id, app, uri, ip, hit_timestamp, duration_ms, entity_type, entity_id, " +
+                        "hit_count FROM endpoint_hits WHERE hit_timestamp >= ? AND hit_timestamp < ? ORDER BY hit_timestamp",
+                rs -> {
+                    maxId[0] = Math.max(maxId[0], rs.getLong("id"));
+                    hits.add(new ArchivedHit(rs.getString("app"), rs.getString("uri"), rs.getString("ip"),
+                            toEpoch(rs.getTimestamp("hit_timestamp").toLocalDateTime()),
+                            rs.getObject("duration_ms", Long.class),
+                            rs.getString("entity_type"),
+                            rs.getObject("entity_id", Long.class),
+                            rs.getInt("hit_count")));
+                }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        // Сначала пишется .tmp и вместе с каталогом сбрасывается на диск, затем удаляются строки из БД,
+        // и только после коммита файл переименовывается: при сбое между шагами recoverPendingSegments
+        // решит его судьбу
+        String name = "hits-" + day + "-" + maxId[0];
+        Path pending = directory.resolve(name + PENDING_SUFFIX);
+        Path target = directory.resolve(name + SEGMENT_SUFFIX);
+        try {
+            HitSegment.Header header = HitSegment.write(pending, toEpoch(from), toEpoch(to), maxId[0], hits);
+            HitSegment.syncDirectory(directory);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    "DELETE FROM endpoint_hits WHERE hit_timestamp >= ? AND hit_timestamp < ? AND id <= ?",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to), maxId[0]));
+            Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectoryAfterRename();
+            addSegment(new Segment(target, header));
+            summaries.put(target, SegmentSummary.of(header, hits));
+            log.info("В архив выгружено {} хитов за {}", hits.size(), day);
+        } catch (IOException e) {
+            log.error("Не удалось выгрузить хиты за {} в архив", day, e);
+        }
+    }
+
+    private void dropExpiredSegments() {
+        long threshold = toEpoch(LocalDate.now().minusDays(retentionDays).atStartOfDay());
+        for (Segment segment : segments) {
+            if (segment.header().rangeEnd() <= threshold) {
+                try {
+                    Files.deleteIfExists(segment.path());
+                    segments.remove(segment);
+                    summaries.remove(segment.path());
+                    log.info("Удалён сегмент архива за пределами срока хранения: {}", segment.path());
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить сегмент архива {}", segment.path(), e);
+                }
+            }
+        }
+    }
+
+    // Если строки сегмента ещё есть в БД, удаление не закоммитилось и .tmp выбрасывается,
+    // иначе выгрузка фактически завершилась и файл достаточно переименовать
+    private void recoverPendingSegments() throws IOException {
+        boolean renamed = false;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path pending : files.filter(p -> p.toString().endsWith(PENDING_SUFFIX)).toList()) {
+                HitSegment.Header header = HitSegment.readHeader(pending);
+                Long remaining = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM endpoint_hits " +
+                                "WHERE hit_timestamp >= ? AND hit_timestamp < ? AND id <= ?", Long.class,
+                        Timestamp.valueOf(toLocal(header.rangeStart())), Timestamp.valueOf(toLocal(header.rangeEnd())),
+                        header.maxId());
+                if (remaining != null && remaining == 0) {
+                    String name = pending.getFileName().toString();
+                    Files.move(pending, pending.resolveSibling(name.substring(0, name.length() - 4)),
+                            StandardCopyOption.ATOMIC_MOVE);
+                    renamed = true;
+                } else {
+                    Files.delete(pending);
+                }
+            }
+        }
+        if (renamed) {
+            syncDirectoryAfterRename();
+        }
+    }
+
+    // Строки уже удалены из БД, а сегмент на месте, поэтому ошибка только логируется: без сброса каталога
+    // при сбое питания файл может вернуться к имени .tmp, и его переименует recoverPendingSegments
+    private void syncDirectoryAfterRename() {
+        try {
+            HitSegment.syncDirectory(directory);
+        } catch (IOException e) {
+            log.warn("Не удалось сбросить на диск каталог архива {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void loadCatalog() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(p -> p.toString().endsWith(SEGMENT_SUFFIX)).toList()) {
+                addSegment(new Segment(path, HitSegment.readHeader(path)));
+            }
+        }
+        log.info("Загружено {} сегментов архива хитов", segments.size());
+    }
+
+    private void addSegment(Segment segment) {
+        segments.add(segment);
+        boundary = Math.max(boundary, segment.header().rangeEnd());
+    }
+
+    private static long toEpoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toLocal(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private record Segment(Path path, HitSegment.Header header) {
+    }
+
+    private record GroupTotals(long hits, long[] ipHashes) {
+    }
+
+    // Ключ группы - представитель ArchivedHit без ip, длительности и счётчика
+    private record SegmentSummary(Map<ArchivedHit, GroupTotals> groups) {
+
+        static SegmentSummary of(HitSegment.Header header, List<ArchivedHit> hits) {
+            Map<ArchivedHit, long[]> counts = new HashMap<>();
+            Map<ArchivedHit, LongBuffer> ips = new HashMap<>();
+            for (ArchivedHit hit : hits) {
+                ArchivedHit group = new ArchivedHit(hit.app(), hit.uri(), null, header.rangeStart(), null,
+                        hit.entityType(), hit.entityId(), 0);
+                counts.computeIfAbsent(group, k -> new long[1])[0] += hit.count();
+                ips.computeIfAbsent(group, k -> new LongBuffer()).add(ipHash(hit.ip()));
+            }
+            Map<ArchivedHit, GroupTotals> groups = new HashMap<>(counts.size() * 2);
+            counts.forEach((group, count) -> groups.put(group,
+                    new GroupTotals(count[0], ips.get(group).toSortedDistinct())));
+            return new SegmentSummary(groups);
+        }
+    }
+
+    private static final class LongBuffer {
+
+        private long[] values = new long[8];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(long[] other) {
+            if (size + other.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(size * 2, size + other.length));
+            }
+            System.arraycopy(other, 0, values, size, other.length);
+            size += other.length;
+        }
+
+        long[] toSortedDistinct() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package ru.practicum.service.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Формат сегмента архива: несжатый заголовок с границами диапазона и min/max времени хитов,
+// за ним gzip-поток с колонками. Строковые колонки кодируются словарём и индексами,
+// время хранится дельтами от предыдущей строки, всё целочисленное — в varint
+public final class HitSegment {
+
+    private static final int MAGIC = 0x45574d48;
+    // Версия 2 добавила колонку числа свёрнутых хитов; сегменты версии 1 читаются с count = 1
+    private static final byte VERSION = 2;
+
+    private HitSegment() {
+    }
+
+    public record Header(long rangeStart, long rangeEnd, long minTime, long maxTime, long maxId, int rows) {
+
+        public boolean overlaps(long start, long end) {
+            return rows > 0 && minTime <= end && maxTime >= start;
+        }
+    }
+
+    // Хиты должны быть отсортированы по времени. Файл сбрасывается на диск до возврата:
+    // после него вызывающий удаляет строки из БД, и сегмент должен пережить сбой питания
+    public static Header write(Path path, long rangeStart, long rangeEnd, long maxId, List<ArchivedHit> hits)
+            throws IOException {
+        long minTime = hits.isEmpty() ? rangeStart : hits.getFirst().epochSecond();
+        long maxTime = hits.isEmpty() ? rangeStart : hits.getLast().epochSecond();
+        Header header = new Header(rangeStart, rangeEnd, minTime, maxTime, maxId, hits.size());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+            DataOutputStream headerOut = new DataOutputStream(file);
+            headerOut.writeInt(MAGIC);
+            headerOut.writeByte(VERSION);
+            headerOut.writeLong(header.rangeStart());
+            headerOut.writeLong(header.rangeEnd());
+            headerOut.writeLong(header.minTime());
+            headerOut.writeLong(header.maxTime());
+            headerOut.writeLong(header.maxId());
+            headerOut.writeInt(header.rows());
+            headerOut.flush();
+
+            GZIPOutputStream gzip = new GZIPOutputStream(file, 64 * 1024);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip, 64 * 1024));
+            writeDictionaryColumn(out, hits, ArchivedHit::app);
+            writeDictionaryColumn(out, hits, ArchivedHit::uri);
+            writeDictionaryColumn(out, hits, ArchivedHit::ip);
+            long previous = minTime;
+            for (ArchivedHit hit : hits) {
+                writeVarLong(out, hit.epochSecond() - previous);
+                previous = hit.epochSecond();
+            }
+            for (ArchivedHit hit : hits) {
+                writeVarLong(out, hit.duration() == null ? 0 : hit.duration() + 1);
+            }
+            writeDictionaryColumn(out, hits, ArchivedHit::entityType);
+            for (ArchivedHit hit : hits) {
+                writeVarLong(out, hit.entityId() == null ? 0 : hit.entityId() + 1);
+            }
+            for (ArchivedHit hit : hits) {
+                writeVarLong(out, hit.count());
+            }
+            out.flush();
+            gzip.finish();
+            file.flush();
+            channel.force(true);
+        }
+        return header;
+    }
+
+    // Сбрасывает на диск сам каталог: создание и переименование файла в нём иначе могут потеряться
+    // при сбое, даже если содержимое файла уже записано
+    public static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    public static Header readHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64))) {
+            return readHeader(in, path);
+        }
+    }
+
+    public static void read(Path path, Consumer<ArchivedHit> consumer) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            DataInputStream headerIn = new DataInputStream(file);
+            int version = readVersion(headerIn, path);
+            Header header = readHeaderFields(headerIn);
+            int rows = header.rows();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file), 64 * 1024));
+            String[] apps = readDictionaryColumn(in, rows);
+            String[] uris = readDictionaryColumn(in, rows);
+            String[] ips = readDictionaryColumn(in, rows);
+            long[] times = new long[rows];
+            long previous = header.minTime();
+            for (int i = 0; i < rows; i++) {
+                previous += readVarLong(in);
+                times[i] = previous;
+            }
+            long[] durations = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                durations[i] = readVarLong(in);
+            }
+            String[] entityTypes = readDictionaryColumn(in, rows);
+            long[] entityIds = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                entityIds[i] = readVarLong(in);
+            }
+            for (int i = 0; i < rows; i++) {
+                int count = version >= 2 ? (int) readVarLong(in) : 1;
+                consumer.accept(new ArchivedHit(apps[i], uris[i], ips[i], times[i],
+                        durations[i] == 0 ? null : durations[i] - 1,
+                        entityTypes[i],
+                        entityIds[i] == 0 ? null : entityIds[i] - 1,
+                        count));
+            }
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, Path path) throws IOException {
+        readVersion(in, path);
+        return readHeaderFields(in);
+    }
+
+    private static int readVersion(DataInputStream in, Path path) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Файл не является сегментом архива хитов: " + path);
+        }
+        byte version = in.readByte();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Неподдерживаемая версия сегмента архива " + version + ": " + path);
+        }
+        return version;
+    }
+
+    private static Header readHeaderFields(DataInputStream in) throws IOException {
+        return new Header(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readInt());
+    }
+
+    // Индекс 0 зарезервирован под null, значения словаря нумеруются с 1
+    private static void writeDictionaryColumn(DataOutputStream out, List<ArchivedHit> hits,
+                                              Function<ArchivedHit, String> column)
+            throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        int[] indexes = new int[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            String value = column.apply(hits.get(i));
+            if (value == null) {
+                continue;
+            }
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                values.add(value);
+                index = values.size();
+                dictionary.put(value, index);
+            }
+            indexes[i] = index;
+        }
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+        for (int index : indexes) {
+            writeVarLong(out, index);
+        }
+    }
+
+    private static String[] readDictionaryColumn(DataInputStream in, int rows) throws IOException {
+        int size = (int) readVarLong(in);
+        String[] dictionary = new String[size + 1];
+        for (int i = 1; i <= size; i++) {
+            dictionary[i] = in.readUTF();
+        }
+        String[] column = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = dictionary[(int) readVarLong(in)];
+        }
+        return column;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+}
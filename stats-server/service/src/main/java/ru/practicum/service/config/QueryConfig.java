@@ -0,0 +1,55 @@
+package ru.practicum.service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.HitQueries;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryGovernor;
+
+import java.util.List;
+
+// Подсчёт, шаблоны сущностей, фильтр злоупотреблений и governor из модуля query:
+// те же классы поднимает встроенный режим ewm-service
+@Configuration
+public class QueryConfig {
+
+    @Bean
+    public EntityTemplates entityTemplates(
+            @Value("${stats.entities.templates:events:/events/{id}}") List<String> definitions) {
+        return new EntityTemplates(definitions);
+    }
+
+    @Bean
+    public HitQueries hitQueries(NamedParameterJdbcTemplate jdbcTemplate) {
+        return new HitQueries(jdbcTemplate);
+    }
+
+    @Bean
+    public AbuseFilter abuseFilter(@Value("${stats.abuse.enabled:true}") boolean enabled,
+                                   @Value("${stats.abuse.window-seconds:60}") long windowSeconds,
+                                   @Value("${stats.abuse.slots:6}") int slots,
+                                   @Value("${stats.abuse.max-hits-per-window:300}") long maxHitsPerWindow,
+                                   @Value("${stats.abuse.sketch-depth:4}") int depth,
+                                   @Value("${stats.abuse.sketch-width:4096}") int width) {
+        return new AbuseFilter(enabled, windowSeconds, slots, maxHitsPerWindow, depth, width);
+    }
+
+    @Bean
+    public QueryGovernor queryGovernor(PlatformTransactionManager transactionManager,
+                                       JdbcTemplate jdbcTemplate,
+                                       @Value("${stats.governor.standard-cost:100000}") long standardCost,
+                                       @Value("${stats.governor.heavy-cost:2000000}") long heavyCost,
+                                       @Value("${stats.governor.max-cost:50000000}") long maxCost,
+                                       @Value("${stats.governor.timeout.cheap-seconds:2}") int cheapTimeout,
+                                       @Value("${stats.governor.timeout.standard-seconds:10}") int standardTimeout,
+                                       @Value("${stats.governor.timeout.heavy-seconds:30}") int heavyTimeout,
+                                       @Value("${stats.governor.slow-query-ms:1000}") long slowQueryMillis) {
+        return new QueryGovernor(transactionManager, jdbcTemplate, standardCost, heavyCost, maxCost,
+                cheapTimeout, standardTimeout, heavyTimeout, slowQueryMillis);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.service.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.dto.AnalyticsQuery;
+import ru.practicum.dto.AnalyticsRow;
+import ru.practicum.service.query.AnalyticsQueryExecutor;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class AnalyticsController {
+
+    private final AnalyticsQueryExecutor queryExecutor;
+
+    @PostMapping("/stats/query")
+    public List<AnalyticsRow> query(@Valid @RequestBody AnalyticsQuery query) {
+        return queryExecutor.execute(query);
+    }
+}
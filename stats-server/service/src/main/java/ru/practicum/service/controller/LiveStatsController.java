@@ -0,0 +1,27 @@
+package ru.practicum.service.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.service.live.LiveViewsBroadcaster;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class LiveStatsController {
+
+    private final LiveViewsBroadcaster broadcaster;
+
+    @GetMapping(path = "/stats/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestParam List<String> uris) {
+        if (uris.isEmpty()) {
+            throw new IllegalArgumentException("Нужно указать хотя бы один URI для подписки");
+        }
+        return broadcaster.subscribe(new LinkedHashSet<>(uris));
+    }
+}
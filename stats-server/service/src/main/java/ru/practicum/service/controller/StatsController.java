@@ -5,12 +5,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.EndpointHitBatch;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsBatchRequest;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
 import ru.practicum.service.service.StatsService;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequiredArgsConstructor
@@ -24,6 +28,12 @@ public class StatsController {
         statsService.saveHit(hitDto);
     }
 
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void saveHits(@Valid @RequestBody EndpointHitBatch batch) {
+        statsService.saveHits(batch.getHits());
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
@@ -36,4 +46,37 @@ public class StatsController {
         }
         return statsService.getStats(start, end, uris, unique);
     }
+
+    // Тот же запрос с телом: список uri любой длины не упирается в ограничение длины URL
+    @PostMapping("/stats")
+    public List<ViewStats> getStats(@Valid @RequestBody StatsQueryDto query) {
+        if (query.getStart().isAfter(query.getEnd())) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        return statsService.getStats(query.getStart(), query.getEnd(), query.getUris(), query.isUnique());
+    }
+
+    @PostMapping("/stats/batch")
+    public List<List<ViewStats>> getStatsBatch(@Valid @RequestBody StatsBatchRequest request) {
+        request.getQueries().forEach(query -> {
+            if (query.getStart().isAfter(query.getEnd())) {
+                throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+            }
+        });
+        return statsService.getStatsBatch(request.getQueries());
+    }
+
+    @GetMapping("/stats/views")
+    public Map<Long, Long> getEntityViews(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(defaultValue = "events") String type,
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(defaultValue = "false") boolean unique
+    ) {
+        if (start.isAfter(end)) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        return statsService.getEntityViews(type, start, end, ids, unique);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package ru.practicum.service.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.practicum.dto.TrendingUri;
+import ru.practicum.service.trending.TrendingTracker;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class TrendingController {
+
+    private final TrendingTracker trendingTracker;
+
+    @GetMapping("/stats/trending")
+    public List<TrendingUri> getTrending(@RequestParam(defaultValue = "10") int limit) {
+        if (limit <= 0 || limit > 100) {
+            throw new IllegalArgumentException("Лимит должен быть от 1 до 100");
+        }
+        return trendingTracker.getTrending(limit);
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.service.entity;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.query.EntityTemplates;
+
+// Проставляет entity_type/entity_id хитам, записанным до появления колонок, порциями по batch-size
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EntityIdBackfill {
+
+    private static final String BACKFILL_SQL = """
+            UPDATE endpoint_hits
+            SET entity_type = ?,
+                entity_id = CAST(REGEXP_SUBSTR(uri, ?, 1, 1, '', 1) AS BIGINT)
+            WHERE id IN (SELECT id FROM endpoint_hits
+                         WHERE entity_type IS NULL AND REGEXP_LIKE(uri, ?)
+                         LIMIT ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityTemplates resolver;
+
+    @Value("${stats.entities.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Value("${stats.entities.backfill-batch-size:10000}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        for (EntityTemplates.EntityTemplate template : resolver.getTemplates()) {
+            long total = 0;
+            int updated;
+            do {
+                updated = jdbcTemplate.update(BACKFILL_SQL, template.type(), template.regex(), template.regex(),
+                        batchSize);
+                total += updated;
+            } while (updated == batchSize);
+            if (total > 0) {
+                log.info("Проставлены идентификаторы сущности {} для {} старых хитов", template.type(), total);
+            }
+        }
+    }
+}
@@ -2,11 +2,14 @@ package ru.practicum.service.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.practicum.query.governor.QueryBudgetExceededException;
+import ru.practicum.service.ingest.HitBufferOverflowException;
 
 @RestControllerAdvice
 @Slf4j
@@ -50,6 +53,27 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(userMsg);
     }
 
+    @ExceptionHandler(QueryBudgetExceededException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorResponse handleQueryBudgetExceeded(QueryBudgetExceededException ex) {
+        log.warn("Запрос отклонён: {}", ex.getMessage());
+        return new ErrorResponse(ex.getMessage());
+    }
+
+    @ExceptionHandler(QueryTimeoutException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleQueryTimeout(QueryTimeoutException ex) {
+        log.warn("Запрос прерван по таймауту: {}", ex.getMessage());
+        return new ErrorResponse("Запрос выполняется слишком долго, сузьте диапазон или фильтры");
+    }
+
+    @ExceptionHandler(HitBufferOverflowException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleHitBufferOverflow(HitBufferOverflowException ex) {
+        log.warn("Хиты отклонены: {}", ex.getMessage());
+        return new ErrorResponse(ex.getMessage());
+    }
+
     public record ErrorResponse(String error) {
     }
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+package ru.practicum.service.ingest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitJdbcRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Асинхронная запись хитов: хит подтверждается после записи в локальный журнал,
+// в БД уходит пачкой по таймеру. Журнал каждой пачки удаляется только после коммита в БД,
+// поэтому при сбое неотправленные хиты дочитываются из файлов при следующем старте.
+// fsync групповой: один force покрывает все записи, дописанные к моменту его начала,
+// поэтому параллельные /hit делят один сброс на диск вместо fsync на каждый хит
+@Component
+@Slf4j
+public class BufferedHitWriter {
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    private final EndpointHitJdbcRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<HitListener> hitListeners;
+    private final boolean enabled;
+    private final Path directory;
+    private final boolean fsyncPerWrite;
+    private final int maxPending;
+
+    private final Object lock = new Object();
+    private final Object flushLock = new Object();
+    private final Object syncLock = new Object();
+    private final Deque<SealedJournal> sealed = new ArrayDeque<>();
+    private HitJournal active;
+    private List<EndpointHit> activeHits = new ArrayList<>();
+    private long sequence;
+    private int pending;
+    // Номер последней дописанной записи (под lock) и последней сброшенной на диск (под syncLock)
+    private long appended;
+    private long synced;
+
+    public BufferedHitWriter(EndpointHitJdbcRepository repository,
+                             TransactionTemplate transactionTemplate,
+                             List<HitListener> hitListeners,
+                             @Value("${stats.ingest.async:false}") boolean enabled,
+                             @Value("${stats.ingest.journal-dir:journal}") String directory,
+                             @Value("${stats.ingest.fsync-per-write:true}") boolean fsyncPerWrite,
+                             @Value("${stats.ingest.max-pending:50000}") int maxPending) throws IOException {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.hitListeners = hitListeners;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.fsyncPerWrite = fsyncPerWrite;
+        this.maxPending = maxPending;
+        if (enabled) {
+            Files.createDirectories(this.directory);
+            recover();
+            active = new HitJournal(nextJournalPath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Если БД не успевает, пишущий поток сам сбрасывает буфер, ограничивая рост памяти. Когда сбросить
+    // не удалось, хиты отклоняются ещё до записи в журнал: клиент получит 503 и может безопасно повторить
+    // запрос. Записанные в журнал хиты уже подтверждены и ошибкой переполнения не отвечают
+    public void write(List<EndpointHit> hits) {
+        if (isFull() && !flush()) {
+            throw new HitBufferOverflowException("Буфер хитов переполнен, база статистики недоступна");
+        }
+        boolean overflow;
+        long position;
+        synchronized (lock) {
+            try {
+                active.append(hits);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать хиты в журнал", e);
+            }
+            activeHits.addAll(hits);
+            pending += hits.size();
+            overflow = pending >= maxPending;
+            position = ++appended;
+        }
+        if (fsyncPerWrite) {
+            sync(position);
+        }
+        if (overflow) {
+            flush();
+        }
+    }
+
+    private boolean isFull() {
+        synchronized (lock) {
+            return pending >= maxPending;
+        }
+    }
+
+    // Пока один поток выполняет force, остальные ждут на syncLock и затем выходят без своего fsync
+    private void sync(long position) {
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            HitJournal journal;
+            long target;
+            synchronized (lock) {
+                journal = active;
+                target = appended;
+            }
+            try {
+                journal.force();
+            } catch (ClosedChannelException e) {
+                // Журнал закрыт ротацией, а close() уже выполнил force
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось сбросить журнал хитов на диск", e);
+            }
+            synced = target;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.ingest.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    // Возвращает true, если все накопленные хиты сохранены в БД
+    public boolean flush() {
+        if (!enabled) {
+            return true;
+        }
+        synchronized (flushLock) {
+            rotate();
+            while (true) {
+                SealedJournal journal;
+                synchronized (lock) {
+                    journal = sealed.peekFirst();
+                }
+                if (journal == null) {
+                    return true;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> repository.insertAll(journal.hits()));
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось сохранить {} хитов из журнала {}, повтор при следующем сбросе",
+                            journal.hits().size(), journal.path(), e);
+                    return false;
+                }
+                try {
+                    Files.deleteIfExists(journal.path());
+                } catch (IOException e) {
+                    log.error("Не удалось удалить журнал {} после сохранения: при рестарте хиты задвоятся",
+                            journal.path(), e);
+                }
+                synchronized (lock) {
+                    sealed.pollFirst();
+                    pending -= journal.hits().size();
+                }
+                // Подписчики уведомляются после снятия пачки с очереди: их ошибка не приведёт
+                // к повторному сохранению уже закоммиченных хитов
+                HitListenerDispatcher.notifyListeners(hitListeners, journal.hits());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void drain() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (!flush()) {
+            log.warn("При остановке в журнале остались несохранённые хиты: {}", pending);
+        }
+        synchronized (lock) {
+            active.close();
+            if (activeHits.isEmpty()) {
+                Files.deleteIfExists(active.path());
+            }
+        }
+    }
+
+    private void rotate() {
+        synchronized (lock) {
+            if (activeHits.isEmpty()) {
+                return;
+            }
+            try {
+                active.close();
+                sealed.addLast(new SealedJournal(active.path(), activeHits));
+                active = new HitJournal(nextJournalPath());
+                activeHits = new ArrayList<>();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось переключить журнал хитов", e);
+            }
+        }
+    }
+
+    // Журналы прошлого запуска ставятся в очередь на сохранение в порядке номеров
+    private void recover() throws IOException {
+        List<Path> journals;
+        try (Stream<Path> files = Files.list(directory)) {
+            journals = files.filter(path -> path.getFileName().toString().endsWith(JOURNAL_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        for (Path path : journals) {
+            sequence = Math.max(sequence, sequenceOf(path));
+            List<EndpointHit> hits = HitJournal.read(path);
+            if (hits.isEmpty()) {
+                Files.delete(path);
+                continue;
+            }
+            sealed.addLast(new SealedJournal(path, hits));
+            pending += hits.size();
+        }
+        if (pending > 0) {
+            log.info("Из журнала восстановлено {} несохранённых хитов", pending);
+        }
+    }
+
+    private Path nextJournalPath() {
+        return directory.resolve(String.format("hits-%012d%s", ++sequence, JOURNAL_SUFFIX));
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring("hits-".length(), name.length() - JOURNAL_SUFFIX.length()));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private record SealedJournal(Path path, List<EndpointHit> hits) {
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.service.ingest;
+
+public class HitBufferOverflowException extends RuntimeException {
+
+    public HitBufferOverflowException(String message) {
+        super(message);
+    }
+}
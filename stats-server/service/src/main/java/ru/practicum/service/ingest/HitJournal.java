@@ -0,0 +1,144 @@
+package ru.practicum.service.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.service.model.EndpointHit;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Файл журнала: последовательность записей [длина][crc32][данные хита].
+// Запись, оборванная сбоем посреди append, отбрасывается при чтении по длине или crc
+@Slf4j
+class HitJournal implements AutoCloseable {
+
+    private final Path path;
+    private final FileChannel channel;
+
+    HitJournal(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    void append(List<EndpointHit> hits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(hits.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (EndpointHit hit : hits) {
+            byte[] payload = encode(hit);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    static List<EndpointHit> read(Path path) throws IOException {
+        List<EndpointHit> hits = new ArrayList<>();
+        try (InputStream stream = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            while (true) {
+                int length;
+                int expectedCrc;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length <= 0 || length > 1 << 20) {
+                        log.warn("Повреждённая запись в журнале {}, хвост отброшен", path);
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (payload.length != length || (int) crc.getValue() != expectedCrc) {
+                    log.warn("Оборванная запись в журнале {}, хвост отброшен", path);
+                    break;
+                }
+                hits.add(decode(payload));
+            }
+        }
+        return hits;
+    }
+
+    private static byte[] encode(EndpointHit hit) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(hit.getApp());
+        out.writeUTF(hit.getUri());
+        out.writeUTF(hit.getIp());
+        out.writeLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(hit.getTimestamp().getNano());
+        writeNullableLong(out, hit.getDuration());
+        out.writeBoolean(hit.getEntityType() != null);
+        if (hit.getEntityType() != null) {
+            out.writeUTF(hit.getEntityType());
+        }
+        writeNullableLong(out, hit.getEntityId());
+        out.writeInt(hit.getHitCount());
+        return bytes.toByteArray();
+    }
+
+    private static EndpointHit decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        return EndpointHit.builder()
+                .app(in.readUTF())
+                .uri(in.readUTF())
+                .ip(in.readUTF())
+                .timestamp(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC))
+                .duration(readNullableLong(in))
+                .entityType(in.readBoolean() ? in.readUTF() : null)
+                .entityId(readNullableLong(in))
+                // Записи, сделанные до появления счётчика, заканчиваются на entityId
+                .hitCount(in.available() >= Integer.BYTES ? in.readInt() : 1)
+                .build();
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
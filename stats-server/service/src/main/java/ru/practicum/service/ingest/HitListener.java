@@ -0,0 +1,9 @@
+package ru.practicum.service.ingest;
+
+import ru.practicum.service.model.EndpointHit;
+
+// Подписчик на поток принятых хитов: вызывается из пути записи после сохранения
+public interface HitListener {
+
+    void onHit(EndpointHit hit);
+}
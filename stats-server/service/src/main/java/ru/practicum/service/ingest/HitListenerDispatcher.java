@@ -0,0 +1,34 @@
+package ru.practicum.service.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.service.model.EndpointHit;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HitListenerDispatcher {
+
+    private final List<HitListener> hitListeners;
+
+    // AFTER_COMMIT: откатившиеся хиты не попадают в живые счётчики; вне транзакции событие доставляется сразу
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHitsSaved(HitsSavedEvent event) {
+        notifyListeners(hitListeners, event.hits());
+    }
+
+    // Ошибка одного подписчика не должна мешать остальным и пути записи
+    public static void notifyListeners(List<HitListener> listeners, List<EndpointHit> hits) {
+        for (HitListener listener : listeners) {
+            try {
+                hits.forEach(listener::onHit);
+            } catch (RuntimeException e) {
+                log.warn("Подписчик {} не обработал хиты: {}", listener.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.service.ingest;
+
+import ru.practicum.service.model.EndpointHit;
+
+import java.util.List;
+
+// Хиты, записанные в endpoint_hits; подписчики получают их только после фиксации транзакции
+public record HitsSavedEvent(List<EndpointHit> hits) {
+}
@@ -0,0 +1,82 @@
+package ru.practicum.service.latency;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Лог-линейная гистограмма в духе HdrHistogram: точные значения до 32 мс, дальше по 16
+// поддиапазонов на каждую степень двойки (погрешность не больше 1/16). Размер фиксирован,
+// гистограммы складываются поэлементно, поэтому окна любой ширины собираются слиянием бакетов
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int MIN_EXPONENT = 5;
+    private static final int MAX_EXPONENT = 31;
+    static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    public void record(long valueMs) {
+        record(valueMs, 1);
+    }
+
+    public void record(long valueMs, long times) {
+        counts.addAndGet(indexOf(Math.max(0, valueMs)), times);
+    }
+
+    public void mergeInto(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] += counts.get(i);
+        }
+    }
+
+    public static long[] emptyCounts() {
+        return new long[BUCKET_COUNT];
+    }
+
+    public static long totalCount(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public static long percentile(long[] counts, long total, double percentile) {
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return valueOf(i);
+            }
+        }
+        return valueOf(counts.length - 1);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - (MIN_EXPONENT - 1);
+        int subBucket = (int) (value >> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    // Середина диапазона значений бакета
+    static long valueOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int offset = index - LINEAR_BUCKETS;
+        int exponent = offset / SUB_BUCKETS + MIN_EXPONENT;
+        long mantissa = offset % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - (MIN_EXPONENT - 1);
+        long low = mantissa << shift;
+        long high = ((mantissa + 1) << shift) - 1;
+        return (low + high) / 2;
+    }
+}
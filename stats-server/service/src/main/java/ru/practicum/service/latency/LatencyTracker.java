@@ -0,0 +1,128 @@
+package ru.practicum.service.latency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.LatencyStats;
+import ru.practicum.service.ingest.HitListener;
+import ru.practicum.service.model.EndpointHit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class LatencyTracker implements HitListener {
+
+    // Сюда сводятся задержки uri сверх лимита, чтобы общий перцентиль приложения не терялся
+    public static final String OVERFLOW_URI = "*";
+
+    private final long bucketSeconds;
+    private final Duration retention;
+    private final int maxUris;
+    private final ConcurrentHashMap<LatencyKey, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Set<AppUri> trackedUris = ConcurrentHashMap.newKeySet();
+
+    public LatencyTracker(@Value("${stats.latency.bucket-minutes:60}") long bucketMinutes,
+                          @Value("${stats.latency.retention-hours:168}") long retentionHours,
+                          @Value("${stats.latency.max-uris:10000}") int maxUris) {
+        if (bucketMinutes <= 0 || maxUris <= 0) {
+            throw new IllegalArgumentException("Размер бакета и лимит uri для задержек должны быть положительными");
+        }
+        this.bucketSeconds = bucketMinutes * 60;
+        this.retention = Duration.ofHours(retentionHours);
+        this.maxUris = maxUris;
+    }
+
+    @Override
+    public void onHit(EndpointHit hit) {
+        if (hit.getDuration() == null) {
+            return;
+        }
+        long bucket = bucketOf(hit.getTimestamp());
+        // Запоздавшие хиты старше срока хранения не создают бакеты, которые сразу уйдут под очистку
+        if (bucket < retentionThreshold()) {
+            return;
+        }
+        LatencyKey key = new LatencyKey(hit.getApp(), trackedUri(hit.getApp(), hit.getUri()), bucket);
+        histograms.computeIfAbsent(key, k -> new LatencyHistogram()).record(hit.getDuration(), hit.getHitCount());
+    }
+
+    // Окно округляется до границ бакетов: в выборку попадают все бакеты, пересекающие [start, end]
+    public List<LatencyStats> getLatency(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        long from = bucketOf(start);
+        long to = bucketOf(end);
+        boolean allUris = uris == null || uris.isEmpty();
+
+        Map<AppUri, long[]> merged = new HashMap<>();
+        histograms.forEach((key, histogram) -> {
+            if (key.bucket() < from || key.bucket() > to) {
+                return;
+            }
+            if (!allUris && !uris.contains(key.uri())) {
+                return;
+            }
+            histogram.mergeInto(merged.computeIfAbsent(new AppUri(key.app(), key.uri()),
+                    k -> LatencyHistogram.emptyCounts()));
+        });
+
+        List<LatencyStats> result = new ArrayList<>(merged.size());
+        merged.forEach((appUri, counts) -> {
+            long total = LatencyHistogram.totalCount(counts);
+            result.add(new LatencyStats(appUri.app(), appUri.uri(), total,
+                    LatencyHistogram.percentile(counts, total, 50),
+                    LatencyHistogram.percentile(counts, total, 90),
+                    LatencyHistogram.percentile(counts, total, 99)));
+        });
+        result.sort(Comparator.comparing(LatencyStats::getCount).reversed());
+        return result;
+    }
+
+    @Scheduled(fixedRateString = "${stats.latency.eviction-interval-ms:600000}")
+    public void evictExpired() {
+        long threshold = retentionThreshold();
+        int before = histograms.size();
+        histograms.keySet().removeIf(key -> key.bucket() < threshold);
+        Set<AppUri> alive = new HashSet<>();
+        histograms.keySet().forEach(key -> alive.add(new AppUri(key.app(), key.uri())));
+        trackedUris.retainAll(alive);
+        log.debug("Удалено {} устаревших гистограмм задержек", before - histograms.size());
+    }
+
+    // При заполнении лимита новые uri учитываются в общем бакете OVERFLOW_URI до очистки затихших
+    private String trackedUri(String app, String uri) {
+        AppUri appUri = new AppUri(app, uri);
+        if (trackedUris.contains(appUri)) {
+            return uri;
+        }
+        if (trackedUris.size() >= maxUris) {
+            return OVERFLOW_URI;
+        }
+        trackedUris.add(appUri);
+        return uri;
+    }
+
+    private long retentionThreshold() {
+        return bucketOf(LocalDateTime.now().minus(retention));
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / bucketSeconds;
+    }
+
+    private record LatencyKey(String app, String uri, long bucket) {
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+}
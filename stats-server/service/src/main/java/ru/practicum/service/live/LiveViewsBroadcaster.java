@@ -0,0 +1,108 @@
+package ru.practicum.service.live;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.service.ingest.HitListener;
+import ru.practicum.service.model.EndpointHit;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Slf4j
+public class LiveViewsBroadcaster implements HitListener {
+
+    private final long timeoutMs;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Сколько подписчиков следит за каждым URI: хиты остальных URI отбрасываются сразу
+    private final ConcurrentHashMap<String, AtomicInteger> watchedUris = new ConcurrentHashMap<>();
+    // Приращения по URI: merge в onHit и remove во flush атомарны по ключу, поэтому параллельный хит
+    // либо попадает в текущую рассылку, либо остаётся до следующей
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+
+    public LiveViewsBroadcaster(@Value("${stats.live.timeout-ms:1800000}") long timeoutMs,
+                                @Value("${stats.live.max-updates-per-second:2}") int maxUpdatesPerSecond) {
+        if (maxUpdatesPerSecond < 1 || maxUpdatesPerSecond > 1000) {
+            throw new IllegalArgumentException("stats.live.max-updates-per-second должен быть от 1 до 1000");
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    public SseEmitter subscribe(Set<String> uris) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        register(uris, emitter);
+        return emitter;
+    }
+
+    void register(Set<String> uris, SseEmitter emitter) {
+        Subscription subscription = new Subscription(Set.copyOf(uris), emitter);
+        uris.forEach(uri -> watchedUris.computeIfAbsent(uri, key -> new AtomicInteger()).incrementAndGet());
+        subscriptions.add(subscription);
+
+        emitter.onCompletion(() -> unregister(subscription));
+        emitter.onTimeout(() -> unregister(subscription));
+        emitter.onError(ex -> unregister(subscription));
+        log.debug("Новая подписка на просмотры {}, всего подписок {}", uris, subscriptions.size());
+    }
+
+    @Override
+    public void onHit(EndpointHit hit) {
+        if (!watchedUris.containsKey(hit.getUri())) {
+            return;
+        }
+        pending.merge(hit.getUri(), (long) hit.getHitCount(), Long::sum);
+    }
+
+    // Накопленные приращения рассылаются пачкой не чаще max-updates-per-second раз в секунду
+    @Scheduled(fixedRateString = "#{1000 / ${stats.live.max-updates-per-second:2}}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        for (String uri : pending.keySet()) {
+            Long delta = pending.remove(uri);
+            if (delta != null) {
+                deltas.put(uri, delta);
+            }
+        }
+
+        for (Subscription subscription : subscriptions) {
+            Map<String, Long> update = new HashMap<>();
+            subscription.uris().forEach(uri -> {
+                Long delta = deltas.get(uri);
+                if (delta != null) {
+                    update.put(uri, delta);
+                }
+            });
+            if (update.isEmpty()) {
+                continue;
+            }
+            try {
+                subscription.emitter().send(SseEmitter.event().name("views").data(update));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписчик отключился: {}", e.getMessage());
+                unregister(subscription);
+            }
+        }
+    }
+
+    private void unregister(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        subscription.uris().forEach(uri -> watchedUris.computeIfPresent(uri,
+                (key, count) -> count.decrementAndGet() == 0 ? null : count));
+    }
+
+    private record Subscription(Set<String> uris, SseEmitter emitter) {
+    }
+}
@@ -34,4 +34,18 @@ public class EndpointHit {
     @NotNull(message = "Время запроса не может быть пустым")
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
+
+    @Column(name = "duration_ms")
+    private Long duration;
+
+    @Column(name = "entity_type")
+    private String entityType;
+
+    @Column(name = "entity_id")
+    private Long entityId;
+
+    // Сколько одинаковых хитов представляет запись: клиент может свернуть повторы в одну строку
+    @Column(name = "hit_count", nullable = false)
+    @Builder.Default
+    private int hitCount = 1;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package ru.practicum.service.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "quarantined_hits")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuarantinedHit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String app;
+
+    private String uri;
+
+    private String ip;
+
+    @Column(name = "hit_timestamp")
+    private LocalDateTime timestamp;
+
+    @Column(name = "duration_ms")
+    private Long duration;
+
+    @Column(name = "hit_count", nullable = false)
+    @Builder.Default
+    private int hitCount = 1;
+}
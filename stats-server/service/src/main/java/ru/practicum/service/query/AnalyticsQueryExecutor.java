@@ -0,0 +1,127 @@
+package ru.practicum.service.query;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.AnalyticsDimension;
+import ru.practicum.dto.AnalyticsQuery;
+import ru.practicum.dto.AnalyticsRow;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@Slf4j
+public class AnalyticsQueryExecutor {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int maxRows;
+    private final Duration maxRange;
+
+    // Отдельный JdbcTemplate, чтобы лимиты строк и времени не распространялись на остальные запросы
+    public AnalyticsQueryExecutor(DataSource dataSource,
+                                  @Value("${stats.query.max-rows:1000}") int maxRows,
+                                  @Value("${stats.query.timeout-seconds:10}") int timeoutSeconds,
+                                  @Value("${stats.query.max-range-days:366}") int maxRangeDays) {
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.setMaxRows(maxRows);
+        template.setQueryTimeout(timeoutSeconds);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(template);
+        this.maxRows = maxRows;
+        this.maxRange = Duration.ofDays(maxRangeDays);
+    }
+
+    public List<AnalyticsRow> execute(AnalyticsQuery query) {
+        if (query.getStart().isAfter(query.getEnd())) {
+            throw new IllegalArgumentException("Дата начала должна быть раньше даты окончания");
+        }
+        if (Duration.between(query.getStart(), query.getEnd()).compareTo(maxRange) > 0) {
+            throw new IllegalArgumentException("Диапазон запроса не может превышать " + maxRange.toDays() + " дней");
+        }
+        List<AnalyticsDimension> groupBy = query.getGroupBy() == null ? List.of() : query.getGroupBy().stream()
+                .distinct()
+                .toList();
+        if (query.getOrderBy() != null && !groupBy.contains(query.getOrderBy())) {
+            throw new IllegalArgumentException("Сортировать можно только по измерению из groupBy");
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", query.getStart())
+                .addValue("end", query.getEnd());
+        StringBuilder select = new StringBuilder("SELECT ");
+        StringBuilder group = new StringBuilder();
+        for (int i = 0; i < groupBy.size(); i++) {
+            String expression = expression(groupBy.get(i), query.getUriPrefixDepth());
+            select.append(expression).append(" AS d").append(i).append(", ");
+            group.append(i == 0 ? " GROUP BY " : ", ").append(expression);
+        }
+        select.append(query.isUnique() ? "COUNT(DISTINCT ip)" : "SUM(hit_count)").append(" AS hits");
+
+        StringBuilder sql = new StringBuilder(select)
+                .append(" FROM endpoint_hits WHERE hit_timestamp BETWEEN :start AND :end");
+        if (query.getApps() != null && !query.getApps().isEmpty()) {
+            sql.append(" AND app IN (:apps)");
+            params.addValue("apps", query.getApps());
+        }
+        if (query.getUriPrefix() != null && !query.getUriPrefix().isEmpty()) {
+            // LEFT вместо LIKE, чтобы не экранировать % и _ в префиксе
+            sql.append(" AND LEFT(uri, :prefixLength) = :prefix");
+            params.addValue("prefixLength", query.getUriPrefix().length());
+            params.addValue("prefix", query.getUriPrefix());
+        }
+        sql.append(group);
+
+        String direction = query.isDescending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ");
+        if (query.getOrderBy() == null) {
+            sql.append("hits").append(direction);
+        } else {
+            sql.append("d").append(groupBy.indexOf(query.getOrderBy())).append(direction).append(", hits DESC");
+        }
+        int limit = query.getLimit() == null ? maxRows : Math.min(query.getLimit(), maxRows);
+        sql.append(" LIMIT ").append(limit);
+
+        log.debug("Аналитический запрос: {}", sql);
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapRow(rs, groupBy));
+    }
+
+    // Выражения подставляются в SQL только из перечисления, пользовательские строки идут параметрами
+    private String expression(AnalyticsDimension dimension, int uriPrefixDepth) {
+        return switch (dimension) {
+            case APP -> "app";
+            case URI -> "uri";
+            case URI_PREFIX -> "REGEXP_SUBSTR(uri, '^(/[^/?]*){1," + uriPrefixDepth + "}')";
+            case DAY -> "DATE_TRUNC('day', hit_timestamp)";
+            case HOUR -> "DATE_TRUNC('hour', hit_timestamp)";
+            case ENTITY_TYPE -> "entity_type";
+        };
+    }
+
+    private AnalyticsRow mapRow(ResultSet rs, List<AnalyticsDimension> groupBy) throws SQLException {
+        Map<String, String> dimensions = new LinkedHashMap<>();
+        for (int i = 0; i < groupBy.size(); i++) {
+            AnalyticsDimension dimension = groupBy.get(i);
+            String value;
+            if (dimension == AnalyticsDimension.DAY || dimension == AnalyticsDimension.HOUR) {
+                Timestamp timestamp = rs.getTimestamp("d" + i);
+                value = timestamp == null ? null : timestamp.toLocalDateTime().format(FORMATTER);
+            } else {
+                value = rs.getString("d" + i);
+            }
+            dimensions.put(dimension.name().toLowerCase(), value);
+        }
+        return new AnalyticsRow(dimensions, rs.getLong("hits"));
+    }
+}
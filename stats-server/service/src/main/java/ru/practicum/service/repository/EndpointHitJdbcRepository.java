@@ -0,0 +1,36 @@
+package ru.practicum.service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.service.model.EndpointHit;
+
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class EndpointHitJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // IDENTITY-ключ не даёт Hibernate объединять вставки saveAll в пакет, поэтому пачка хитов
+    // вставляется одним JDBC batch; с reWriteBatchedInserts драйвер PostgreSQL шлёт многострочный INSERT
+    public void insertAll(List<EndpointHit> hits) {
+        SqlParameterSource[] batch = hits.stream()
+                .map(hit -> new MapSqlParameterSource()
+                        .addValue("app", hit.getApp())
+                        .addValue("uri", hit.getUri())
+                        .addValue("ip", hit.getIp())
+                        .addValue("timestamp", hit.getTimestamp())
+                        .addValue("duration", hit.getDuration())
+                        .addValue("entityType", hit.getEntityType())
+                        .addValue("entityId", hit.getEntityId())
+                        .addValue("hitCount", hit.getHitCount()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("INSERT INTO endpoint_hits (app, uri, ip, hit_timestamp, duration_ms, entity_type, "
+                + "entity_id, hit_count) VALUES (:app, :uri, :ip, :timestamp, :duration, :entityType, :entityId, "
+                + ":hitCount)", batch);
+    }
+}
@@ -11,12 +11,12 @@ import java.util.List;
 
 public interface EndpointHitRepository extends JpaRepository<EndpointHit, Long> {
 
-    @Query("SELECT new ru.practicum.dto.ViewStats(e.app, e.uri, COUNT(e)) " +
+    @Query("SELECT new ru.practicum.dto.ViewStats(e.app, e.uri, SUM(e.hitCount)) " +
             "FROM EndpointHit e " +
             "WHERE e.timestamp BETWEEN :start AND :end " +
             "AND (:uris IS NULL OR e.uri IN :uris) " +
             "GROUP BY e.app, e.uri " +
-            "ORDER BY COUNT(e) DESC")
+            "ORDER BY SUM(e.hitCount) DESC")
     List<ViewStats> findStats(@Param("start") LocalDateTime start,
                               @Param("end") LocalDateTime end,
                               @Param("uris") List<String> uris);
@@ -30,4 +30,22 @@ public interface EndpointHitRepository extends JpaRepository<EndpointHit, Long>
     List<ViewStats> findStatsUnique(@Param("start") LocalDateTime start,
                                     @Param("end") LocalDateTime end,
                                     @Param("uris") List<String> uris);
+
+    @Query("SELECT DISTINCT e.app, e.uri, e.ip " +
+            "FROM EndpointHit e " +
+            "WHERE e.timestamp BETWEEN :start AND :end " +
+            "AND (:uris IS NULL OR e.uri IN :uris)")
+    List<Object[]> findDistinctIps(@Param("start") LocalDateTime start,
+                                   @Param("end") LocalDateTime end,
+                                   @Param("uris") List<String> uris);
+
+    @Query("SELECT DISTINCT e.entityId, e.ip " +
+            "FROM EndpointHit e " +
+            "WHERE e.entityType = :type " +
+            "AND e.timestamp BETWEEN :start AND :end " +
+            "AND (:ids IS NULL OR e.entityId IN :ids)")
+    List<Object[]> findDistinctEntityIps(@Param("type") String type,
+                                         @Param("start") LocalDateTime start,
+                                         @Param("end") LocalDateTime end,
+                                         @Param("ids") List<Long> ids);
 }
\ No newline at end of file
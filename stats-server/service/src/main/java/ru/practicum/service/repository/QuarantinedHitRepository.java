@@ -0,0 +1,7 @@
+package ru.practicum.service.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.service.model.QuarantinedHit;
+
+public interface QuarantinedHitRepository extends JpaRepository<QuarantinedHit, Long> {
+}
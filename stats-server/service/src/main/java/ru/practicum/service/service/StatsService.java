@@ -1,22 +1,54 @@
 package ru.practicum.service.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.HitQueries;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryGovernor;
+import ru.practicum.query.governor.QueryGovernor.QueryPlan;
+import ru.practicum.service.archive.ArchivedHit;
+import ru.practicum.service.archive.HitArchive;
+import ru.practicum.service.ingest.BufferedHitWriter;
+import ru.practicum.service.ingest.HitsSavedEvent;
 import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.model.QuarantinedHit;
+import ru.practicum.service.repository.EndpointHitJdbcRepository;
 import ru.practicum.service.repository.EndpointHitRepository;
+import ru.practicum.service.repository.QuarantinedHitRepository;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 @Transactional(readOnly = true)
 public class StatsService {
 
     private final EndpointHitRepository repository;
+    private final EndpointHitJdbcRepository jdbcRepository;
+    private final HitQueries hitQueries;
+    private final QuarantinedHitRepository quarantinedHitRepository;
+    private final AbuseFilter abuseFilter;
+    private final EntityTemplates entityTemplates;
+    private final HitArchive archive;
+    private final QueryGovernor queryGovernor;
+    private final BufferedHitWriter bufferedHitWriter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void saveHit(EndpointHitDto dto) {
@@ -25,19 +57,203 @@ public class StatsService {
             throw new IllegalArgumentException("Время запроса не может быть в будущем");
         }
 
+        EndpointHit hit = accept(dto);
+        if (hit == null) {
+            return;
+        }
+
+        // В асинхронном режиме хит подтверждается после записи в журнал, подписчики уведомляются после сброса в БД
+        if (bufferedHitWriter.isEnabled()) {
+            bufferedHitWriter.write(List.of(hit));
+            return;
+        }
+
+        repository.save(hit);
+        eventPublisher.publishEvent(new HitsSavedEvent(List.of(hit)));
+    }
+
+    // Пакет от асинхронного клиента: хиты из будущего пропускаются, а не отклоняют весь пакет
+    @Transactional
+    public void saveHits(List<EndpointHitDto> dtos) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EndpointHit> hits = new ArrayList<>(dtos.size());
+        for (EndpointHitDto dto : dtos) {
+            if (dto.getTimestamp().isAfter(now)) {
+                log.warn("Пропущен хит из будущего: {} {}", dto.getUri(), dto.getTimestamp());
+                continue;
+            }
+            EndpointHit hit = accept(dto);
+            if (hit != null) {
+                hits.add(hit);
+            }
+        }
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        if (bufferedHitWriter.isEnabled()) {
+            bufferedHitWriter.write(hits);
+            return;
+        }
+
+        jdbcRepository.insertAll(hits);
+        eventPublisher.publishEvent(new HitsSavedEvent(hits));
+    }
+
+    // Возвращает null, если хит ушёл в карантин
+    private EndpointHit accept(EndpointHitDto dto) {
         EndpointHit hit = EndpointHit.builder()
                 .app(dto.getApp())
                 .uri(dto.getUri())
                 .ip(dto.getIp())
                 .timestamp(dto.getTimestamp())
+                .duration(dto.getDuration())
+                .hitCount(dto.getCount() == null ? 1 : dto.getCount())
                 .build();
-        repository.save(hit);
+
+        entityTemplates.resolve(hit.getUri()).ifPresent(entity -> {
+            hit.setEntityType(entity.type());
+            hit.setEntityId(entity.id());
+        });
+
+        // Хиты IP, превысивших порог частоты, не попадают в endpoint_hits и в статистику
+        if (abuseFilter.isSuspicious(hit.getIp(), hit.getTimestamp(), hit.getHitCount())) {
+            quarantinedHitRepository.save(QuarantinedHit.builder()
+                    .app(hit.getApp())
+                    .uri(hit.getUri())
+                    .ip(hit.getIp())
+                    .timestamp(hit.getTimestamp())
+                    .duration(hit.getDuration())
+                    .hitCount(hit.getHitCount())
+                    .build());
+            return null;
+        }
+        return hit;
     }
 
+    // Транзакцию с таймаутом по классу запроса открывает QueryGovernor
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        List<String> urisFilter = uris == null || uris.isEmpty() ? null : uris;
+        QueryPlan plan = queryGovernor.plan(start, end, urisFilter, unique);
+        return queryGovernor.execute(plan, () -> findStats(plan));
+    }
+
+    // Пакет считается одним проходом по БД; окна, уходящие в архив, досчитываются по отдельности
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<List<ViewStats>> getStatsBatch(List<StatsQueryDto> queries) {
+        List<QueryPlan> plans = queries.stream()
+                .map(query -> queryGovernor.plan(query.getStart(), query.getEnd(),
+                        query.getUris() == null || query.getUris().isEmpty() ? null : query.getUris(),
+                        query.isUnique()))
+                .toList();
+        QueryPlan heaviest = plans.stream()
+                .max(Comparator.comparingLong(QueryPlan::cost))
+                .orElseThrow();
+        return queryGovernor.execute(heaviest, () -> findStatsBatch(queries, plans));
+    }
+
+    public Map<Long, Long> getEntityViews(String type, LocalDateTime start, LocalDateTime end,
+                                          List<Long> ids, boolean unique) {
+        List<Long> idsFilter = ids == null || ids.isEmpty() ? null : ids;
+        if (archive.reaches(start)) {
+            return getEntityViewsWithArchive(type, start, end, idsFilter, unique);
+        }
+        return hitQueries.countEntityViews(type, start, end, idsFilter, unique);
+    }
+
+    private List<ViewStats> findStats(QueryPlan plan) {
+        if (archive.reaches(plan.start())) {
+            return getStatsWithArchive(plan.start(), plan.end(), plan.uris(), plan.unique());
+        }
+        if (plan.uris() != null && plan.uris().size() > StatsQueryDto.MAX_INLINE_URIS) {
+            return hitQueries.findStats(plan.start(), plan.end(), plan.uris(), plan.unique());
+        }
+        if (plan.unique()) {
+            return repository.findStatsUnique(plan.start(), plan.end(), plan.uris());
+        }
+        return repository.findStats(plan.start(), plan.end(), plan.uris());
+    }
+
+    private List<List<ViewStats>> findStatsBatch(List<StatsQueryDto> queries, List<QueryPlan> plans) {
+        List<StatsQueryDto> hotQueries = queries.stream()
+                .filter(query -> !archive.reaches(query.getStart()))
+                .toList();
+        if (hotQueries.size() == queries.size()) {
+            return hitQueries.findStatsBatch(queries);
+        }
+
+        List<List<ViewStats>> hotResults = hotQueries.isEmpty()
+                ? List.of()
+                : hitQueries.findStatsBatch(hotQueries);
+        List<List<ViewStats>> results = new ArrayList<>(queries.size());
+        int hotIndex = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            if (archive.reaches(queries.get(i).getStart())) {
+                results.add(findStats(plans.get(i)));
+            } else {
+                results.add(hotResults.get(hotIndex++));
+            }
+        }
+        return results;
+    }
+
+    // Строки БД и архива не пересекаются: счётчики складываются, уникальные IP объединяются
+    // по хешам из сводок архива и списку различных IP из БД
+    private List<ViewStats> getStatsWithArchive(LocalDateTime start, LocalDateTime end,
+                                                List<String> uris, boolean unique) {
+        Set<String> uriSet = uris == null ? null : new HashSet<>(uris);
+        Map<AppUri, Long> counts = new HashMap<>();
+
         if (unique) {
-            return repository.findStatsUnique(start, end, uris == null || uris.isEmpty() ? null : uris);
+            Map<AppUri, long[]> archived = archive.collectIpHashes(start, end,
+                    hit -> uriSet == null || uriSet.contains(hit.uri()),
+                    hit -> new AppUri(hit.app(), hit.uri()));
+            Map<AppUri, List<String>> ips = new HashMap<>();
+            repository.findDistinctIps(start, end, uris).forEach(row -> ips
+                    .computeIfAbsent(new AppUri((String) row[0], (String) row[1]), key -> new ArrayList<>())
+                    .add((String) row[2]));
+            archived.keySet().forEach(key -> ips.computeIfAbsent(key, k -> List.of()));
+            ips.forEach((key, values) -> counts.put(key, HitArchive.countDistinct(archived.get(key), values)));
+        } else {
+            counts.putAll(archive.countHits(start, end,
+                    hit -> uriSet == null || uriSet.contains(hit.uri()),
+                    hit -> new AppUri(hit.app(), hit.uri())));
+            repository.findStats(start, end, uris).forEach(stats ->
+                    counts.merge(new AppUri(stats.getApp(), stats.getUri()), stats.getHits(), Long::sum));
         }
-        return repository.findStats(start, end, uris == null || uris.isEmpty() ? null : uris);
+
+        List<ViewStats> result = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> result.add(new ViewStats(key.app(), key.uri(), hits)));
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    private Map<Long, Long> getEntityViewsWithArchive(String type, LocalDateTime start, LocalDateTime end,
+                                                      List<Long> ids, boolean unique) {
+        Set<Long> idSet = ids == null ? null : new HashSet<>(ids);
+        Map<Long, Long> views = new HashMap<>();
+
+        if (unique) {
+            Map<Long, long[]> archived = archive.collectIpHashes(start, end,
+                    hit -> type.equals(hit.entityType()) && (idSet == null || idSet.contains(hit.entityId())),
+                    ArchivedHit::entityId);
+            Map<Long, List<String>> ips = new HashMap<>();
+            repository.findDistinctEntityIps(type, start, end, ids).forEach(row -> ips
+                    .computeIfAbsent((Long) row[0], key -> new ArrayList<>())
+                    .add((String) row[1]));
+            archived.keySet().forEach(id -> ips.computeIfAbsent(id, k -> List.of()));
+            ips.forEach((id, values) -> views.put(id, HitArchive.countDistinct(archived.get(id), values)));
+        } else {
+            views.putAll(archive.countHits(start, end,
+                    hit -> type.equals(hit.entityType()) && (idSet == null || idSet.contains(hit.entityId())),
+                    hit -> hit.entityId()));
+            hitQueries.countEntityViews(type, start, end, ids, false).forEach((id, hits) ->
+                    views.merge(id, hits, Long::sum));
+        }
+        return views;
+    }
+
+    private record AppUri(String app, String uri) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,51 @@
+package ru.practicum.service.trending;
+
+// Кольцо счётчиков по бакетам времени: память фиксирована, старые бакеты обнуляются при сдвиге
+class RingCounter {
+
+    private final long[] counts;
+    private long lastBucket = Long.MIN_VALUE;
+
+    RingCounter(int buckets) {
+        this.counts = new long[buckets];
+    }
+
+    synchronized void add(long bucket, long value) {
+        advance(bucket);
+        if (bucket <= lastBucket - counts.length) {
+            return;
+        }
+        counts[slot(bucket)] += value;
+    }
+
+    // Сумма за buckets последних бакетов, заканчивая nowBucket включительно
+    synchronized long sum(long nowBucket, int buckets) {
+        advance(nowBucket);
+        long total = 0;
+        for (long bucket = nowBucket - buckets + 1; bucket <= nowBucket; bucket++) {
+            if (bucket > lastBucket - counts.length && bucket <= lastBucket) {
+                total += counts[slot(bucket)];
+            }
+        }
+        return total;
+    }
+
+    private void advance(long bucket) {
+        if (lastBucket == Long.MIN_VALUE) {
+            lastBucket = bucket;
+            return;
+        }
+        if (bucket <= lastBucket) {
+            return;
+        }
+        long steps = Math.min(bucket - lastBucket, counts.length);
+        for (long i = 1; i <= steps; i++) {
+            counts[slot(lastBucket + i)] = 0;
+        }
+        lastBucket = bucket;
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) counts.length);
+    }
+}
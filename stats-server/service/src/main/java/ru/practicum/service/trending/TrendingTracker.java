@@ -0,0 +1,97 @@
+package ru.practicum.service.trending;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.dto.TrendingUri;
+import ru.practicum.service.ingest.HitListener;
+import ru.practicum.service.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+public class TrendingTracker implements HitListener {
+
+    private final long bucketSeconds;
+    private final int shortBuckets;
+    private final int longBuckets;
+    private final int maxUris;
+    private final long minHits;
+    private final ConcurrentHashMap<AppUri, RingCounter> counters = new ConcurrentHashMap<>();
+
+    public TrendingTracker(@Value("${stats.trending.bucket-seconds:60}") long bucketSeconds,
+                           @Value("${stats.trending.short-buckets:5}") int shortBuckets,
+                           @Value("${stats.trending.long-buckets:60}") int longBuckets,
+                           @Value("${stats.trending.max-uris:10000}") int maxUris,
+                           @Value("${stats.trending.min-hits:5}") long minHits) {
+        if (shortBuckets <= 0 || longBuckets <= shortBuckets) {
+            throw new IllegalArgumentException("Длинное окно должно быть больше короткого");
+        }
+        this.bucketSeconds = bucketSeconds;
+        this.shortBuckets = shortBuckets;
+        this.longBuckets = longBuckets;
+        this.maxUris = maxUris;
+        this.minHits = minHits;
+    }
+
+    @Override
+    public void onHit(EndpointHit hit) {
+        AppUri key = new AppUri(hit.getApp(), hit.getUri());
+        RingCounter counter = counters.get(key);
+        if (counter == null) {
+            // При заполнении лимита новые uri не отслеживаются до очистки затихших
+            if (counters.size() >= maxUris) {
+                return;
+            }
+            counter = counters.computeIfAbsent(key, k -> new RingCounter(longBuckets));
+        }
+        counter.add(bucketOf(hit.getTimestamp()), hit.getHitCount());
+    }
+
+    public List<TrendingUri> getTrending(int limit) {
+        return getTrending(LocalDateTime.now(), limit);
+    }
+
+    // Базовая частота считается по части длинного окна без короткого, со сглаживанием +1,
+    // чтобы новые uri без истории не получали бесконечный рейтинг
+    List<TrendingUri> getTrending(LocalDateTime now, int limit) {
+        long nowBucket = bucketOf(now);
+        int baselineBuckets = longBuckets - shortBuckets;
+
+        List<TrendingUri> result = new ArrayList<>();
+        counters.forEach((key, counter) -> {
+            long shortHits = counter.sum(nowBucket, shortBuckets);
+            if (shortHits < minHits) {
+                return;
+            }
+            long longHits = counter.sum(nowBucket, longBuckets);
+            double shortRate = (double) shortHits / shortBuckets;
+            double baselineRate = (double) (longHits - shortHits + 1) / baselineBuckets;
+            result.add(new TrendingUri(key.app(), key.uri(), shortHits, longHits, shortRate / baselineRate));
+        });
+        result.sort(Comparator.comparing(TrendingUri::getScore).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    @Scheduled(fixedRateString = "${stats.trending.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long nowBucket = bucketOf(LocalDateTime.now());
+        int before = counters.size();
+        counters.values().removeIf(counter -> counter.sum(nowBucket, longBuckets) == 0);
+        log.debug("Удалено {} затихших счётчиков трендов", before - counters.size());
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / bucketSeconds;
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+}
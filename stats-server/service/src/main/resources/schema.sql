@@ -3,8 +3,32 @@ CREATE TABLE IF NOT EXISTS endpoint_hits (
     app VARCHAR(255) NOT NULL,
     uri VARCHAR(512) NOT NULL,
     ip VARCHAR(45) NOT NULL,
-    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    duration_ms BIGINT,
+    entity_type VARCHAR(64),
+    entity_id BIGINT,
+    hit_count INTEGER NOT NULL DEFAULT 1
 );
 
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS duration_ms BIGINT;
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS entity_type VARCHAR(64);
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS entity_id BIGINT;
+ALTER TABLE endpoint_hits ADD COLUMN IF NOT EXISTS hit_count INTEGER NOT NULL DEFAULT 1;
+
 CREATE INDEX IF NOT EXISTS idx_endpoint_hits_timestamp ON endpoint_hits(hit_timestamp);
 CREATE INDEX IF NOT EXISTS idx_endpoint_hits_app_uri ON endpoint_hits(app, uri);
+CREATE INDEX IF NOT EXISTS idx_endpoint_hits_entity ON endpoint_hits(entity_type, entity_id, hit_timestamp);
+
+CREATE TABLE IF NOT EXISTS quarantined_hits (
+    id BIGSERIAL PRIMARY KEY,
+    app VARCHAR(255) NOT NULL,
+    uri VARCHAR(512) NOT NULL,
+    ip VARCHAR(45) NOT NULL,
+    hit_timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    duration_ms BIGINT,
+    hit_count INTEGER NOT NULL DEFAULT 1
+);
+
+ALTER TABLE quarantined_hits ADD COLUMN IF NOT EXISTS hit_count INTEGER NOT NULL DEFAULT 1;
+
+CREATE INDEX IF NOT EXISTS idx_quarantined_hits_ip ON quarantined_hits(ip);
@@ -0,0 +1,156 @@
+package ru.practicum.service.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HitArchiveTest {
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private final LocalDate day = LocalDate.now().minusDays(60);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        repository.save(hit("/events/1", "1.1.1.1", day.atTime(10, 0), 1L));
+        repository.save(hit("/events/1", "1.1.1.2", day.atTime(11, 0), 1L));
+        repository.save(hit("/events/2", "1.1.1.1", day.atTime(12, 0), 2L));
+        repository.save(hit("/events/1", "1.1.1.1", LocalDateTime.now().minusHours(1), 1L));
+    }
+
+    @Test
+    void exportDay_shouldMoveRowsToSegmentAndKeepThemQueryable() throws IOException {
+        HitArchive archive = newArchive();
+
+        archive.exportDay(day);
+
+        assertEquals(1, repository.count());
+        assertTrue(archive.reaches(day.atStartOfDay()));
+        assertFalse(archive.reaches(LocalDateTime.now().minusDays(1)));
+
+        Map<String, Long> counts = archive.countHits(day.atStartOfDay(), LocalDateTime.now(),
+                hit -> true, ArchivedHit::uri);
+        assertEquals(Map.of("/events/1", 2L, "/events/2", 1L), counts);
+
+        Map<Long, long[]> ips = archive.collectIpHashes(day.atStartOfDay(), LocalDateTime.now(),
+                hit -> "events".equals(hit.entityType()), ArchivedHit::entityId);
+        assertEquals(3L, HitArchive.countDistinct(ips.get(1L), List.of("1.1.1.1", "1.1.1.3")));
+    }
+
+    @Test
+    void exportDay_shouldKeepCollapsedHitCounts() throws IOException {
+        EndpointHit collapsed = hit("/events/2", "1.1.1.3", day.atTime(13, 0), 2L);
+        collapsed.setHitCount(4);
+        repository.save(collapsed);
+        HitArchive archive = newArchive();
+
+        archive.exportDay(day);
+
+        Map<String, Long> counts = archive.countHits(day.atStartOfDay(), LocalDateTime.now(),
+                hit -> true, ArchivedHit::uri);
+        assertEquals(Map.of("/events/1", 2L, "/events/2", 5L), counts);
+    }
+
+    @Test
+    void countHits_withPartiallyCoveredSegment_shouldScanOnlyRequestedHours() throws IOException {
+        HitArchive archive = newArchive();
+        archive.exportDay(day);
+
+        Map<String, Long> partial = archive.countHits(day.atTime(10, 30), LocalDateTime.now(),
+                hit -> true, ArchivedHit::uri);
+        Map<Long, long[]> ips = archive.collectIpHashes(day.atTime(10, 30), LocalDateTime.now(),
+                hit -> "events".equals(hit.entityType()), ArchivedHit::entityId);
+
+        assertEquals(Map.of("/events/1", 1L, "/events/2", 1L), partial);
+        assertEquals(1, ips.get(1L).length);
+    }
+
+    @Test
+    void countHits_afterReload_shouldBuildSummaryFromSegment() throws IOException {
+        newArchive().exportDay(day);
+        HitArchive reloaded = newArchive();
+
+        Map<Long, long[]> ips = reloaded.collectIpHashes(day.minusDays(1).atStartOfDay(), LocalDateTime.now(),
+                hit -> "events".equals(hit.entityType()), ArchivedHit::entityId);
+
+        assertEquals(2, ips.get(1L).length);
+        assertEquals(1, ips.get(2L).length);
+        assertEquals(Map.of(1L, 2L, 2L, 1L), reloaded.countHits(day.atStartOfDay(), LocalDateTime.now(),
+                hit -> "events".equals(hit.entityType()), ArchivedHit::entityId));
+    }
+
+    @Test
+    void constructor_shouldReloadCatalogFromDisk() throws IOException {
+        newArchive().exportDay(day);
+
+        HitArchive reloaded = newArchive();
+
+        assertTrue(reloaded.reaches(day.atStartOfDay()));
+        assertEquals(3L, reloaded.countHits(day.atStartOfDay(), day.atTime(23, 59), hit -> true, hit -> "all")
+                .get("all"));
+    }
+
+    @Test
+    void constructor_shouldDropPendingSegmentWhenRowsAreStillInDatabase() throws IOException {
+        Path pending = directory.resolve("hits-" + day + "-1.seg.tmp");
+        long from = day.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        HitSegment.write(pending, from, from + 86_400, Long.MAX_VALUE, List.of());
+
+        HitArchive archive = newArchive();
+
+        assertFalse(Files.exists(pending));
+        assertFalse(archive.reaches(day.atStartOfDay()));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private HitArchive newArchive() throws IOException {
+        return new HitArchive(jdbcTemplate, transactionTemplate, true, directory.toString(), 30, 365, 400);
+    }
+
+    private EndpointHit hit(String uri, String ip, LocalDateTime timestamp, Long entityId) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(timestamp)
+                .duration(5L)
+                .entityType("events")
+                .entityId(entityId)
+                .build();
+    }
+}
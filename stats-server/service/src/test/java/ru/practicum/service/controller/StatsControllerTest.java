@@ -6,6 +6,8 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsBatchRequest;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
 import ru.practicum.service.service.StatsService;
 
@@ -56,6 +58,28 @@ class StatsControllerTest {
         assertEquals(viewStats, result.getFirst());
     }
 
+    @Test
+    void getStats_withBody_shouldPassUrisToService() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+        List<String> uris = List.of("/events/1", "/events/2");
+        when(statsService.getStats(start, end, uris, true)).thenReturn(List.of(new ViewStats("app", "/events/1", 3L)));
+
+        List<ViewStats> result = statsController.getStats(new StatsQueryDto(start, end, uris, true));
+
+        assertEquals(1, result.size());
+        verify(statsService).getStats(start, end, uris, true);
+    }
+
+    @Test
+    void getStats_withBodyAndInvertedRange_shouldThrow() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> statsController.getStats(new StatsQueryDto(now, now.minusDays(1), List.of("/events/1"), false)));
+        verifyNoInteractions(statsService);
+    }
+
     @Test
     void getStats_withEmptyUris_shouldPassEmptyListToService() {
         LocalDateTime start = LocalDateTime.now().minusDays(1);
@@ -103,4 +127,17 @@ class StatsControllerTest {
         // Проверяем, что сервис не вызывался
         verify(statsService, never()).getStats(any(), any(), any(), anyBoolean());
     }
+
+    @Test
+    void getStatsBatch_withStartAfterEnd_shouldThrowIllegalArgumentException() {
+        LocalDateTime now = LocalDateTime.now();
+        StatsBatchRequest request = new StatsBatchRequest(List.of(
+                new StatsQueryDto(now.minusDays(1), now, null, false),
+                new StatsQueryDto(now, now.minusDays(1), null, false)
+        ));
+
+        assertThrows(IllegalArgumentException.class, () -> statsController.getStatsBatch(request));
+
+        verify(statsService, never()).getStatsBatch(any());
+    }
 }
@@ -0,0 +1,48 @@
+package ru.practicum.service.entity;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.query.HitQueries;
+import ru.practicum.service.config.QueryConfig;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({EntityIdBackfill.class, QueryConfig.class})
+@TestPropertySource(properties = "stats.entities.backfill-batch-size=1")
+class EntityIdBackfillTest {
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private EntityIdBackfill backfill;
+
+    @Autowired
+    private HitQueries hitQueries;
+
+    @Test
+    void backfill_shouldSetEntityIdForLegacyHits() {
+        repository.save(EndpointHit.builder()
+                .app("app").uri("/events/12").ip("1.1.1.1").timestamp(LocalDateTime.now()).build());
+        repository.save(EndpointHit.builder()
+                .app("app").uri("/events/13").ip("1.1.1.1").timestamp(LocalDateTime.now()).build());
+        repository.save(EndpointHit.builder()
+                .app("app").uri("/events").ip("1.1.1.1").timestamp(LocalDateTime.now()).build());
+        repository.flush();
+
+        backfill.backfill();
+
+        Map<Long, Long> views = hitQueries.countEntityViews("events",
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), null, false);
+        assertEquals(Map.of(12L, 1L, 13L, 1L), views);
+    }
+}
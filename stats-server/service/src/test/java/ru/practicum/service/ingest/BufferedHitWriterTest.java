@@ -0,0 +1,191 @@
+package ru.practicum.service.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitJdbcRepository;
+import ru.practicum.service.repository.EndpointHitRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import(EndpointHitJdbcRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BufferedHitWriterTest {
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private EndpointHitJdbcRepository jdbcRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private HitListener listener;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        listener = mock(HitListener.class);
+    }
+
+    @Test
+    void flush_shouldSaveBufferedHitsAndDeleteJournal() throws IOException {
+        BufferedHitWriter writer = newWriter();
+
+        writer.write(List.of(hit("/events/1"), hit("/events/2")));
+
+        assertEquals(0, repository.count());
+        verifyNoInteractions(listener);
+
+        assertTrue(writer.flush());
+
+        assertEquals(2, repository.count());
+        verify(listener, times(2)).onHit(any());
+        assertEquals(1, journalFiles().size());
+    }
+
+    @Test
+    void flush_whenListenerFails_shouldStillDequeueSavedJournal() throws IOException {
+        doThrow(new IllegalStateException("boom")).when(listener).onHit(any());
+        BufferedHitWriter writer = newWriter();
+        writer.write(List.of(hit("/events/1")));
+
+        assertTrue(writer.flush());
+        assertTrue(writer.flush());
+
+        assertEquals(1, repository.count());
+        assertEquals(1, journalFiles().size());
+    }
+
+    @Test
+    void write_fromConcurrentThreads_shouldPersistEveryHit() throws Exception {
+        BufferedHitWriter writer = newWriter();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            writes.add(executor.submit(() -> writer.write(List.of(hit("/events/1")))));
+        }
+        for (Future<?> write : writes) {
+            write.get();
+        }
+        executor.shutdown();
+
+        assertTrue(writer.flush());
+        assertEquals(200, repository.count());
+    }
+
+    @Test
+    void constructor_shouldReplayJournalLeftByCrash() throws IOException {
+        BufferedHitWriter crashed = newWriter();
+        EndpointHit collapsed = hit("/events/3");
+        collapsed.setHitCount(4);
+        crashed.write(List.of(hit("/events/1"), hit("/events/2"), collapsed));
+
+        BufferedHitWriter restarted = newWriter();
+        assertTrue(restarted.flush());
+
+        assertEquals(3, repository.count());
+        assertEquals(6, repository.findAll().stream().mapToInt(EndpointHit::getHitCount).sum());
+        assertEquals(1, journalFiles().size());
+    }
+
+    @Test
+    void constructor_shouldDropTornRecordAtJournalTail() throws IOException {
+        BufferedHitWriter crashed = newWriter();
+        crashed.write(List.of(hit("/events/1"), hit("/events/2")));
+        Files.write(journalFiles().getFirst(), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        BufferedHitWriter restarted = newWriter();
+        restarted.flush();
+
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void drain_shouldFlushAndRemoveEmptyJournal() throws IOException {
+        BufferedHitWriter writer = newWriter();
+        writer.write(List.of(hit("/events/1")));
+
+        writer.drain();
+
+        assertEquals(1, repository.count());
+        assertTrue(journalFiles().isEmpty());
+    }
+
+    @Test
+    void write_whenPendingLimitReached_shouldFlushInline() throws IOException {
+        BufferedHitWriter writer = new BufferedHitWriter(jdbcRepository, transactionTemplate, List.of(listener),
+                true, directory.toString(), false, 2);
+
+        writer.write(List.of(hit("/events/1")));
+        assertEquals(0, repository.count());
+
+        writer.write(List.of(hit("/events/2")));
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void write_whenBufferFullAndDatabaseUnavailable_shouldRejectWithoutJournaling() throws IOException {
+        EndpointHitJdbcRepository failing = mock(EndpointHitJdbcRepository.class);
+        doThrow(new IllegalStateException("db down")).when(failing).insertAll(any());
+        BufferedHitWriter writer = new BufferedHitWriter(failing, transactionTemplate, List.of(listener),
+                true, directory.toString(), false, 2);
+
+        writer.write(List.of(hit("/events/1")));
+        writer.write(List.of(hit("/events/2")));
+        assertThrows(HitBufferOverflowException.class, () -> writer.write(List.of(hit("/events/3"))));
+
+        BufferedHitWriter restarted = newWriter();
+        assertTrue(restarted.flush());
+        assertEquals(2, repository.count());
+    }
+
+    private BufferedHitWriter newWriter() throws IOException {
+        return new BufferedHitWriter(jdbcRepository, transactionTemplate, List.of(listener),
+                true, directory.toString(), true, 1000);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("1.1.1.1")
+                .timestamp(LocalDateTime.now().withNano(123_000_000))
+                .duration(7L)
+                .entityType("events")
+                .entityId(Long.parseLong(uri.substring("/events/".length())))
+                .build();
+    }
+}
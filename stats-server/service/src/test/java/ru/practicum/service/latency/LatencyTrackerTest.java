@@ -0,0 +1,104 @@
+package ru.practicum.service.latency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.LatencyStats;
+import ru.practicum.service.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyTrackerTest {
+
+    private LatencyTracker tracker;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        tracker = new LatencyTracker(60, 24, 2);
+    }
+
+    @Test
+    void getLatency_shouldReturnPercentilesWithinHistogramError() {
+        for (long duration = 1; duration <= 1000; duration++) {
+            tracker.onHit(hit("/events/1", duration, now.minusMinutes(5)));
+        }
+
+        List<LatencyStats> result = tracker.getLatency(now.minusHours(1), now, List.of("/events/1"));
+
+        assertEquals(1, result.size());
+        LatencyStats stats = result.getFirst();
+        assertEquals(1000L, stats.getCount());
+        assertEquals(500, stats.getP50(), 500 / 16.0);
+        assertEquals(900, stats.getP90(), 900 / 16.0);
+        assertEquals(990, stats.getP99(), 990 / 16.0);
+    }
+
+    @Test
+    void getLatency_shouldSkipHitsWithoutDurationAndOtherUris() {
+        tracker.onHit(hit("/events/1", null, now));
+        tracker.onHit(hit("/events/2", 15L, now));
+
+        assertTrue(tracker.getLatency(now.minusHours(1), now, List.of("/events/1")).isEmpty());
+        assertEquals(15L, tracker.getLatency(now.minusHours(1), now, null).getFirst().getP99());
+    }
+
+    @Test
+    void evictExpired_shouldKeepBucketsWithinRetention() {
+        tracker.onHit(hit("/events/1", 10L, now.minusHours(2)));
+
+        tracker.evictExpired();
+
+        assertEquals(1L, tracker.getLatency(now.minusDays(1), now, null).getFirst().getCount());
+    }
+
+    @Test
+    void onHit_withHitOlderThanRetention_shouldNotCreateBucket() {
+        tracker.onHit(hit("/events/1", 10L, now.minusDays(3)));
+
+        assertTrue(tracker.getLatency(now.minusDays(4), now, null).isEmpty());
+    }
+
+    @Test
+    void onHit_overUriLimit_shouldFoldNewUrisIntoOverflowBucket() {
+        tracker.onHit(hit("/events/1", 10L, now));
+        tracker.onHit(hit("/events/2", 20L, now));
+        tracker.onHit(hit("/events/3", 30L, now));
+        tracker.onHit(hit("/events/4", 40L, now));
+        tracker.onHit(hit("/events/1", 10L, now));
+
+        List<LatencyStats> result = tracker.getLatency(now.minusHours(1), now, null);
+
+        assertEquals(3, result.size());
+        LatencyStats overflow = result.stream()
+                .filter(stats -> stats.getUri().equals(LatencyTracker.OVERFLOW_URI))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2L, overflow.getCount());
+        assertEquals(2L, tracker.getLatency(now.minusHours(1), now, List.of("/events/1")).getFirst().getCount());
+    }
+
+    @Test
+    void histogram_shouldMapValuesToMonotonicBuckets() {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= previous);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            previous = index;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    private EndpointHit hit(String uri, Long duration, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("127.0.0.1")
+                .timestamp(timestamp)
+                .duration(duration)
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.service.live;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.service.model.EndpointHit;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LiveViewsBroadcasterTest {
+
+    private LiveViewsBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        broadcaster = new LiveViewsBroadcaster(60_000L, 2);
+    }
+
+    @Test
+    void flush_shouldSendCoalescedDeltaOnlyToInterestedSubscribers() throws IOException {
+        SseEmitter first = mock(SseEmitter.class);
+        SseEmitter second = mock(SseEmitter.class);
+        broadcaster.register(Set.of("/events/1"), first);
+        broadcaster.register(Set.of("/events/2"), second);
+
+        broadcaster.onHit(hit("/events/1"));
+        broadcaster.onHit(hit("/events/1"));
+        broadcaster.onHit(hit("/events/3"));
+        broadcaster.flush();
+
+        verify(first, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(second, never()).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void flush_withoutNewHits_shouldNotSendAnything() throws IOException {
+        SseEmitter emitter = mock(SseEmitter.class);
+        broadcaster.register(Set.of("/events/1"), emitter);
+
+        broadcaster.onHit(hit("/events/1"));
+        broadcaster.flush();
+        broadcaster.flush();
+
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void flush_whenSubscriberFails_shouldDropSubscription() throws IOException {
+        SseEmitter emitter = mock(SseEmitter.class);
+        doThrow(new IOException("broken pipe")).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        broadcaster.register(Set.of("/events/1"), emitter);
+
+        broadcaster.onHit(hit("/events/1"));
+        broadcaster.flush();
+        broadcaster.onHit(hit("/events/1"));
+        broadcaster.flush();
+
+        verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    void constructor_withZeroUpdateRate_shouldFail() {
+        assertThrows(IllegalArgumentException.class, () -> new LiveViewsBroadcaster(60_000L, 0));
+    }
+
+    @Test
+    void flush_shouldNotLoseHitsRecordedConcurrently() throws Exception {
+        SseEmitter emitter = mock(SseEmitter.class);
+        broadcaster.register(Set.of("/events/1"), emitter);
+        int threads = 4;
+        int hitsPerThread = 10_000;
+        AtomicLong delivered = new AtomicLong();
+        doAnswer(invocation -> {
+            Set<ResponseBodyEmitter.DataWithMediaType> data = invocation.<SseEmitter.SseEventBuilder>getArgument(0)
+                    .build();
+            data.stream()
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(Map.class::isInstance)
+                    .forEach(update -> delivered.addAndGet((Long) ((Map<?, ?>) update).get("/events/1")));
+            return null;
+        }).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                for (int i = 0; i < hitsPerThread; i++) {
+                    broadcaster.onHit(hit("/events/1"));
+                }
+            }));
+        }
+        while (writers.stream().anyMatch(writer -> !writer.isDone())) {
+            broadcaster.flush();
+        }
+        executor.shutdown();
+        broadcaster.flush();
+
+        assertEquals((long) threads * hitsPerThread, delivered.get());
+    }
+
+    private EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("127.0.0.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
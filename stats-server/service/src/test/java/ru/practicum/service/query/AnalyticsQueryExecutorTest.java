@@ -0,0 +1,124 @@
+package ru.practicum.service.query;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import ru.practicum.dto.AnalyticsDimension;
+import ru.practicum.dto.AnalyticsQuery;
+import ru.practicum.dto.AnalyticsRow;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitRepository;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class AnalyticsQueryExecutorTest {
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private AnalyticsQueryExecutor executor;
+
+    private final LocalDateTime day = LocalDateTime.of(2024, 5, 10, 0, 0);
+
+    @BeforeEach
+    void setUp() {
+        executor = new AnalyticsQueryExecutor(dataSource, 1000, 10, 366);
+
+        repository.deleteAll();
+        save("ewm", "/events/1", "1.1.1.1", day.plusHours(1));
+        save("ewm", "/events/1", "1.1.1.2", day.plusHours(1).plusMinutes(5));
+        save("ewm", "/events/2", "1.1.1.1", day.plusHours(2));
+        save("ewm", "/compilations/1", "1.1.1.1", day.plusDays(1));
+        save("admin", "/events/1", "2.2.2.2", day.plusDays(1));
+        repository.flush();
+    }
+
+    @Test
+    void execute_groupByUriPrefix_shouldCollapseEntityUris() {
+        List<AnalyticsRow> rows = executor.execute(query()
+                .groupBy(List.of(AnalyticsDimension.URI_PREFIX))
+                .build());
+
+        assertEquals(2, rows.size());
+        assertEquals(Map.of("uri_prefix", "/events"), rows.get(0).getDimensions());
+        assertEquals(4L, rows.get(0).getHits());
+        assertEquals(Map.of("uri_prefix", "/compilations"), rows.get(1).getDimensions());
+        assertEquals(1L, rows.get(1).getHits());
+    }
+
+    @Test
+    void execute_groupByDayWithAppFilter_shouldBucketByDay() {
+        List<AnalyticsRow> rows = executor.execute(query()
+                .groupBy(List.of(AnalyticsDimension.DAY))
+                .apps(List.of("ewm"))
+                .orderBy(AnalyticsDimension.DAY)
+                .descending(false)
+                .build());
+
+        assertEquals(2, rows.size());
+        assertEquals("2024-05-10 00:00:00", rows.get(0).getDimensions().get("day"));
+        assertEquals(3L, rows.get(0).getHits());
+        assertEquals("2024-05-11 00:00:00", rows.get(1).getDimensions().get("day"));
+        assertEquals(1L, rows.get(1).getHits());
+    }
+
+    @Test
+    void execute_groupByHourUniqueWithPrefixFilter_shouldCountDistinctIps() {
+        List<AnalyticsRow> rows = executor.execute(query()
+                .groupBy(List.of(AnalyticsDimension.APP, AnalyticsDimension.HOUR))
+                .uriPrefix("/events/1")
+                .unique(true)
+                .limit(1)
+                .build());
+
+        assertEquals(1, rows.size());
+        assertEquals(Map.of("app", "ewm", "hour", "2024-05-10 01:00:00"), rows.get(0).getDimensions());
+        assertEquals(2L, rows.get(0).getHits());
+    }
+
+    @Test
+    void execute_withoutGroupBy_shouldReturnTotal() {
+        List<AnalyticsRow> rows = executor.execute(query().build());
+
+        assertEquals(1, rows.size());
+        assertTrue(rows.get(0).getDimensions().isEmpty());
+        assertEquals(5L, rows.get(0).getHits());
+    }
+
+    @Test
+    void execute_overRangeBudget_shouldThrowException() {
+        AnalyticsQuery query = query().start(day.minusYears(2)).build();
+
+        assertThrows(IllegalArgumentException.class, () -> executor.execute(query));
+    }
+
+    @Test
+    void execute_orderByDimensionOutsideGroupBy_shouldThrowException() {
+        AnalyticsQuery query = query()
+                .groupBy(List.of(AnalyticsDimension.APP))
+                .orderBy(AnalyticsDimension.DAY)
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> executor.execute(query));
+    }
+
+    private AnalyticsQuery.AnalyticsQueryBuilder query() {
+        return AnalyticsQuery.builder()
+                .start(day)
+                .end(day.plusDays(2));
+    }
+
+    private void save(String app, String uri, String ip, LocalDateTime timestamp) {
+        repository.save(EndpointHit.builder().app(app).uri(uri).ip(ip).timestamp(timestamp).build());
+    }
+}
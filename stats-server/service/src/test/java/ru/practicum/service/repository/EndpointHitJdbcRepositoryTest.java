@@ -0,0 +1,67 @@
+package ru.practicum.service.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import ru.practicum.service.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(EndpointHitJdbcRepository.class)
+class EndpointHitJdbcRepositoryTest {
+
+    @Autowired
+    private EndpointHitRepository repository;
+
+    @Autowired
+    private EndpointHitJdbcRepository jdbcRepository;
+
+    private final LocalDateTime now = LocalDateTime.now().withNano(0);
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+
+        repository.save(EndpointHit.builder()
+                .app("app1").uri("/uri1").ip("1.1.1.1").timestamp(now.minusDays(3))
+                .build());
+        repository.save(EndpointHit.builder()
+                .app("app1").uri("/uri1").ip("1.1.1.1").timestamp(now.minusMinutes(30))
+                .build());
+        repository.save(EndpointHit.builder()
+                .app("app1").uri("/uri1").ip("1.1.1.2").timestamp(now.minusMinutes(10))
+                .build());
+        repository.save(EndpointHit.builder()
+                .app("app1").uri("/uri2").ip("1.1.1.1").timestamp(now.minusHours(5))
+                .build());
+        repository.flush();
+    }
+
+    @Test
+    void insertAll_shouldInsertBatchWithEntityAndCount() {
+        EndpointHit collapsed = EndpointHit.builder()
+                .app("app1").uri("/events/7").ip("1.1.1.3").timestamp(now.minusMinutes(1))
+                .duration(12L).entityType("events").entityId(7L).hitCount(3)
+                .build();
+        EndpointHit single = EndpointHit.builder()
+                .app("app1").uri("/uri2").ip("1.1.1.3").timestamp(now.minusMinutes(1))
+                .build();
+
+        jdbcRepository.insertAll(List.of(collapsed, single));
+
+        assertEquals(6, repository.count());
+        EndpointHit saved = repository.findAll().stream()
+                .filter(hit -> hit.getUri().equals("/events/7"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(3, saved.getHitCount());
+        assertEquals(7L, saved.getEntityId());
+        assertEquals(12L, saved.getDuration());
+    }
+}
@@ -61,6 +61,19 @@ class EndpointHitRepositoryTest {
         assertEquals(1L, uri2.getHits());
     }
 
+    @Test
+    void findStats_shouldSumCollapsedHitCounts() {
+        repository.save(EndpointHit.builder()
+                .app("app1").uri("/uri2").ip("1.1.1.3").timestamp(now.minusHours(1)).hitCount(5)
+                .build());
+
+        List<ViewStats> stats = repository.findStats(now.minusDays(1), now.plusDays(1), List.of("/uri2"));
+        List<ViewStats> unique = repository.findStatsUnique(now.minusDays(1), now.plusDays(1), List.of("/uri2"));
+
+        assertEquals(6L, stats.getFirst().getHits());
+        assertEquals(2L, unique.getFirst().getHits());
+    }
+
     @Test
     void findStats_withUriFilter_shouldFilterCorrectly() {
         List<ViewStats> stats = repository.findStats(now.minusDays(1), now.plusDays(1), List.of("/uri1"));
@@ -68,4 +81,4 @@ class EndpointHitRepositoryTest {
         assertEquals(1, stats.size());
         assertEquals("/uri1", stats.getFirst().getUri());
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,35 @@
 package ru.practicum.service.service;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.StatsQueryDto;
 import ru.practicum.dto.ViewStats;
+import ru.practicum.query.EntityTemplates;
+import ru.practicum.query.HitQueries;
+import ru.practicum.query.abuse.AbuseFilter;
+import ru.practicum.query.governor.QueryBudgetExceededException;
+import ru.practicum.query.governor.QueryGovernor;
+import ru.practicum.service.archive.ArchivedHit;
+import ru.practicum.service.archive.HitArchive;
+import ru.practicum.service.ingest.BufferedHitWriter;
+import ru.practicum.service.ingest.HitsSavedEvent;
+import ru.practicum.service.model.EndpointHit;
+import ru.practicum.service.repository.EndpointHitJdbcRepository;
 import ru.practicum.service.repository.EndpointHitRepository;
+import ru.practicum.service.repository.QuarantinedHitRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -22,9 +41,41 @@ class StatsServiceTest {
     @Mock
     private EndpointHitRepository repository;
 
-    @InjectMocks
+    @Mock
+    private EndpointHitJdbcRepository jdbcRepository;
+
+    @Mock
+    private HitQueries hitQueries;
+
+    @Mock
+    private QuarantinedHitRepository quarantinedHitRepository;
+
+    @Mock
+    private AbuseFilter abuseFilter;
+
+    @Mock
+    private HitArchive archive;
+
+    @Mock
+    private BufferedHitWriter bufferedHitWriter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private JdbcTemplate governorJdbcTemplate;
+
     private StatsService statsService;
 
+    @BeforeEach
+    void setUp() {
+        statsService = new StatsService(repository, jdbcRepository, hitQueries, quarantinedHitRepository,
+                abuseFilter, new EntityTemplates(List.of("events:/events/{id}")), archive,
+                new QueryGovernor(mock(PlatformTransactionManager.class), governorJdbcTemplate,
+                        10_000, 200_000, 5_000_000, 2, 10, 30, 1000),
+                bufferedHitWriter, eventPublisher);
+    }
+
     @Test
     void saveHit_shouldConvertDtoAndSaveToRepository() {
         EndpointHitDto dto = new EndpointHitDto();
@@ -41,6 +92,26 @@ class StatsServiceTest {
                         hit.getIp().equals(dto.getIp()) &&
                         hit.getTimestamp().equals(dto.getTimestamp())
         ));
+        verify(eventPublisher).publishEvent(argThat((HitsSavedEvent event) -> event.hits().size() == 1
+                && event.hits().getFirst().getUri().equals(dto.getUri())));
+    }
+
+    @Test
+    void getStats_withManyUris_shouldUseArrayFilter() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        LocalDateTime end = LocalDateTime.now();
+        List<String> uris = IntStream.rangeClosed(0, StatsQueryDto.MAX_INLINE_URIS)
+                .mapToObj(i -> "/events/" + i)
+                .toList();
+
+        ViewStats expectedStats = new ViewStats("test-app", "/events/1", 4L);
+        when(hitQueries.findStats(start, end, uris, false))
+                .thenReturn(List.of(expectedStats));
+
+        List<ViewStats> result = statsService.getStats(start, end, uris, false);
+
+        assertEquals(List.of(expectedStats), result);
+        verify(repository, never()).findStats(any(), any(), any());
     }
 
     @Test
@@ -108,6 +179,7 @@ class StatsServiceTest {
 
         // Проверяем, что repository.save не вызывался
         verify(repository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -139,4 +211,127 @@ class StatsServiceTest {
         assertEquals(1, result.size());
         verify(repository).findStatsUnique(start, end, null); // должен передать null вместо пустого списка
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStatsBatch_shouldDelegateToHitQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StatsQueryDto> queries = List.of(
+                new StatsQueryDto(now.minusDays(1), now, List.of("/test"), false),
+                new StatsQueryDto(now.minusHours(1), now, List.of("/test"), true)
+        );
+        List<List<ViewStats>> expected = List.of(
+                List.of(new ViewStats("test-app", "/test", 10L)),
+                List.of(new ViewStats("test-app", "/test", 2L))
+        );
+        when(hitQueries.findStatsBatch(queries)).thenReturn(expected);
+
+        List<List<ViewStats>> result = statsService.getStatsBatch(queries);
+
+        assertEquals(expected, result);
+        verify(repository, never()).findStats(any(), any(), any());
+    }
+
+    @Test
+    void saveHit_fromSuspiciousIp_shouldGoToQuarantine() {
+        EndpointHitDto dto = new EndpointHitDto("test-app", "/events/1", "10.0.0.1", LocalDateTime.now());
+        when(abuseFilter.isSuspicious(any(), any(), anyInt())).thenReturn(true);
+
+        statsService.saveHit(dto);
+
+        verify(quarantinedHitRepository).save(argThat(hit -> hit.getIp().equals("10.0.0.1")));
+        verify(repository, never()).save(any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void saveHit_withEntityUri_shouldStoreEntityId() {
+        EndpointHitDto dto = new EndpointHitDto("test-app", "/events/42", "127.0.0.1", LocalDateTime.now());
+
+        statsService.saveHit(dto);
+
+        verify(repository).save(argThat(hit ->
+                "events".equals(hit.getEntityType()) && Long.valueOf(42L).equals(hit.getEntityId())));
+    }
+
+    @Test
+    void getEntityViews_shouldReturnIdToCountMap() {
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        LocalDateTime end = LocalDateTime.now();
+        when(hitQueries.countEntityViews("events", start, end, List.of(1L, 2L), true))
+                .thenReturn(Map.of(1L, 3L, 2L, 7L));
+
+        Map<Long, Long> result = statsService.getEntityViews("events", start, end, List.of(1L, 2L), true);
+
+        assertEquals(Map.of(1L, 3L, 2L, 7L), result);
+        verify(hitQueries, never()).countEntityViews(any(), any(), any(), any(), eq(false));
+    }
+
+    @Test
+    void getStats_reachingArchive_shouldAddArchivedCounts() {
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        LocalDateTime end = LocalDateTime.now();
+        when(archive.reaches(start)).thenReturn(true);
+        when(archive.countHits(eq(start), eq(end), any(), any()))
+                .thenAnswer(invocation -> {
+                    Function<ArchivedHit, Object> key = invocation.getArgument(3);
+                    Object appUri = key.apply(new ArchivedHit("test-app", "/test", "1.1.1.1", 0L, null, null, null, 1));
+                    return Map.of(appUri, 4L);
+                });
+        when(repository.findStats(start, end, List.of("/test")))
+                .thenReturn(List.of(new ViewStats("test-app", "/test", 6L)));
+
+        List<ViewStats> result = statsService.getStats(start, end, List.of("/test"), false);
+
+        assertEquals(1, result.size());
+        assertEquals(10L, result.getFirst().getHits());
+    }
+
+    @Test
+    void getStats_withinHotRange_shouldNotTouchArchive() {
+        LocalDateTime start = LocalDateTime.now().minusHours(1);
+        LocalDateTime end = LocalDateTime.now();
+        when(repository.findStats(start, end, null)).thenReturn(List.of());
+
+        statsService.getStats(start, end, null, false);
+
+        verify(archive, never()).countHits(any(), any(), any(), any());
+        verify(archive, never()).collectIpHashes(any(), any(), any(), any());
+    }
+
+    @Test
+    void getStats_overBudget_shouldBeRejected() {
+        LocalDateTime start = LocalDateTime.now().minusYears(10);
+        LocalDateTime end = LocalDateTime.now();
+        when(governorJdbcTemplate.queryForObject(startsWith("SELECT COUNT(*)"), eq(Long.class), any(Object[].class)))
+                .thenReturn(3_000_000L);
+
+        assertThrows(QueryBudgetExceededException.class, () -> statsService.getStats(start, end, null, true));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void saveHit_withAsyncIngest_shouldWriteToJournalInsteadOfRepository() {
+        when(bufferedHitWriter.isEnabled()).thenReturn(true);
+        EndpointHitDto dto = new EndpointHitDto("test-app", "/events/5", "127.0.0.1", LocalDateTime.now());
+
+        statsService.saveHit(dto);
+
+        verify(bufferedHitWriter).write(argThat(hits -> hits.size() == 1 && hits.getFirst().getEntityId() == 5L));
+        verify(repository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void saveHits_shouldSkipFutureHitsAndSaveRestInOneCall() {
+        List<EndpointHitDto> dtos = List.of(
+                new EndpointHitDto("test-app", "/events/1", "127.0.0.1", LocalDateTime.now().minusSeconds(5)),
+                new EndpointHitDto("test-app", "/events/2", "127.0.0.1", LocalDateTime.now().plusDays(1)),
+                new EndpointHitDto("test-app", "/events/3", "127.0.0.1", LocalDateTime.now().minusSeconds(1)));
+
+        statsService.saveHits(dtos);
+
+        verify(jdbcRepository).insertAll(argThat((List<EndpointHit> hits) -> hits.size() == 2
+                && hits.get(0).getEntityId() == 1L && hits.get(1).getEntityId() == 3L));
+        verify(eventPublisher).publishEvent(argThat((HitsSavedEvent event) -> event.hits().size() == 2));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.service.trending;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.dto.TrendingUri;
+import ru.practicum.service.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingTrackerTest {
+
+    private final LocalDateTime now = LocalDateTime.of(2024, 5, 10, 12, 0);
+
+    private TrendingTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new TrendingTracker(60, 5, 60, 3, 2);
+    }
+
+    @Test
+    void getTrending_shouldRankAcceleratingUriAboveSteadyOne() {
+        // /steady: по 2 хита каждую минуту последний час
+        for (int minute = 0; minute < 60; minute++) {
+            hit("/steady", now.minusMinutes(minute), 2);
+        }
+        // /rising: почти без истории, но 10 хитов за последние минуты
+        hit("/rising", now.minusMinutes(40), 1);
+        for (int minute = 0; minute < 5; minute++) {
+            hit("/rising", now.minusMinutes(minute), 2);
+        }
+
+        List<TrendingUri> trending = tracker.getTrending(now, 10);
+
+        assertEquals(2, trending.size());
+        assertEquals("/rising", trending.get(0).getUri());
+        assertEquals(10L, trending.get(0).getShortHits());
+        assertEquals(11L, trending.get(0).getLongHits());
+        assertEquals("/steady", trending.get(1).getUri());
+        assertTrue(trending.get(0).getScore() > trending.get(1).getScore() * 5);
+    }
+
+    @Test
+    void getTrending_shouldSkipUrisBelowMinHitsAndRespectLimit() {
+        hit("/a", now, 5);
+        hit("/b", now, 3);
+        hit("/c", now, 1);
+
+        List<TrendingUri> trending = tracker.getTrending(now, 1);
+
+        assertEquals(1, trending.size());
+        assertEquals("/a", trending.get(0).getUri());
+        assertEquals(2, tracker.getTrending(now, 10).size());
+    }
+
+    @Test
+    void getTrending_shouldForgetHitsOutsideLongWindow() {
+        hit("/old", now.minusHours(2), 10);
+
+        assertEquals(1, tracker.getTrending(now.minusHours(2), 10).size());
+        assertTrue(tracker.getTrending(now, 10).isEmpty());
+    }
+
+    @Test
+    void onHit_shouldNotTrackMoreThanMaxUris() {
+        hit("/a", now, 5);
+        hit("/b", now, 5);
+        hit("/c", now, 5);
+        hit("/d", now, 5);
+
+        assertEquals(3, tracker.getTrending(now, 10).size());
+    }
+
+    private void hit(String uri, LocalDateTime timestamp, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.onHit(EndpointHit.builder().app("ewm").uri(uri).ip("1.1.1.1").timestamp(timestamp).build());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.service.web;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GzipRequestFilterTest {
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static MockHttpServletRequest gzipRequest(String body) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/hits");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setContentType("application/json");
+        request.setContent(gzip(body));
+        return request;
+    }
+
+    @Test
+    void doFilter_shouldInflateGzipBody() throws Exception {
+        GzipRequestFilter filter = new GzipRequestFilter(1024);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(gzipRequest("{\"hits\":[]}"), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest passed = (HttpServletRequest) chain.getRequest();
+        assertEquals("{\"hits\":[]}", new String(passed.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertNull(passed.getHeader("Content-Encoding"));
+        assertEquals(-1, passed.getContentLength());
+    }
+
+    @Test
+    void doFilter_withoutContentEncoding_shouldPassRequestAsIs() throws Exception {
+        GzipRequestFilter filter = new GzipRequestFilter(1024);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/hit");
+        request.setContent("{}".getBytes(StandardCharsets.UTF_8));
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+    }
+
+    @Test
+    void doFilter_shouldRejectBodyInflatingAboveLimit() throws Exception {
+        GzipRequestFilter filter = new GzipRequestFilter(100);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(gzipRequest("x".repeat(10_000)), new MockHttpServletResponse(), chain);
+
+        HttpServletRequest passed = (HttpServletRequest) chain.getRequest();
+        assertThrows(IOException.class, () -> passed.getInputStream().readAllBytes());
+    }
+
+    @Test
+    void setReadListener_shouldDelegateToSourceStream() throws Exception {
+        GzipRequestFilter filter = new GzipRequestFilter(1024);
+        AtomicReference<ReadListener> registered = new AtomicReference<>();
+        ByteArrayInputStream compressed = new ByteArrayInputStream(gzip("{}"));
+        ServletInputStream source = new ServletInputStream() {
+            @Override
+            public int read() {
+                return compressed.read();
+            }
+
+            @Override
+            public boolean isFinished() {
+                return compressed.available() == 0;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                registered.set(readListener);
+            }
+        };
+        MockHttpServletRequest raw = gzipRequest("{}");
+        HttpServletRequest request = new HttpServletRequestWrapper(raw) {
+            @Override
+            public ServletInputStream getInputStream() {
+                return source;
+            }
+        };
+        MockFilterChain chain = new MockFilterChain();
+        ReadListener listener = new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+            }
+
+            @Override
+            public void onAllDataRead() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        ServletInputStream passed = ((HttpServletRequest) chain.getRequest()).getInputStream();
+        passed.setReadListener(listener);
+
+        assertSame(listener, registered.get());
+        assertTrue(passed.isReady());
+        assertEquals("{}", new String(passed.readAllBytes(), StandardCharsets.UTF_8));
+    }
+}